@@ -0,0 +1,364 @@
+package com.example.apipoller.api;
+
+import com.example.apipoller.config.AppConfig;
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Создание HTTP-клиентов для сервисов API и выполнение запросов с ограничением по времени.
+ * Клиенты получают тайм-ауты на установку соединения, ожидание соединения из пула
+ * и ожидание ответа; кроме того, каждый запрос ограничен общим сроком, по истечении
+ * которого он прерывается, а соединение закрывается и возвращается в пул.
+ * Для идемпотентных GET-запросов может применяться дублирование (см. {@link HedgingPolicy}).
+ */
+public final class ApiHttpClients {
+    private static final Logger logger = Logger.getLogger(ApiHttpClients.class.getName());
+
+    // Один общий поток-таймер прерывает запросы, превысившие общий срок
+    private static final ScheduledExecutorService DEADLINE_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "http-deadline-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Предел потоков для дублирующих попыток платформенных вызывающих потоков
+    private static final int MAX_HEDGE_THREADS = 16;
+
+    // Дублирующие попытки платформенных потоков; при заполнении пула дубль не отправляется
+    private static final ExecutorService HEDGE_EXECUTOR = new ThreadPoolExecutor(
+        0, MAX_HEDGE_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "http-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    // Дублирующие попытки виртуальных вызывающих потоков выполняются в собственных виртуальных потоках
+    private static final ExecutorService VIRTUAL_HEDGE_EXECUTOR = 
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-hedge-virtual-", 0).factory());
+
+    private ApiHttpClients() {
+    }
+
+    /**
+     * Создает HTTP-клиент с тайм-аутами из настроек CONNECT_TIMEOUT_SECONDS (по умолчанию 5)
+     * и RESPONSE_TIMEOUT_SECONDS (по умолчанию 15), в том числе с префиксом сервиса
+     * 
+     * @param serviceName имя сервиса
+     * @return HTTP-клиент
+     */
+    public static CloseableHttpClient create(String serviceName) {
+        Timeout connectTimeout = Timeout.ofSeconds(
+            Math.max(1, AppConfig.getServiceIntSetting(serviceName, "CONNECT_TIMEOUT_SECONDS", 5)));
+        Timeout responseTimeout = Timeout.ofSeconds(
+            Math.max(1, AppConfig.getServiceIntSetting(serviceName, "RESPONSE_TIMEOUT_SECONDS", 15)));
+        
+        return HttpClients.custom()
+            .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(connectTimeout)
+                    .setSocketTimeout(responseTimeout)
+                    .build())
+                .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(connectTimeout)
+                .setResponseTimeout(responseTimeout)
+                .build())
+            .build();
+    }
+
+    /**
+     * Возвращает общий срок выполнения запроса из настройки REQUEST_DEADLINE_SECONDS
+     * (в том числе с префиксом сервиса), по умолчанию 20 секунд
+     * 
+     * @param serviceName имя сервиса
+     * @return срок в миллисекундах
+     */
+    public static long requestDeadlineMillis(String serviceName) {
+        return TimeUnit.SECONDS.toMillis(
+            Math.max(1, AppConfig.getServiceIntSetting(serviceName, "REQUEST_DEADLINE_SECONDS", 20)));
+    }
+
+    /**
+     * Выполняет запрос с общим сроком. Если срок истек, запрос прерывается,
+     * а вызывающий код получает {@link SocketTimeoutException}.
+     * 
+     * @param httpClient HTTP-клиент
+     * @param request запрос
+     * @param handler обработчик ответа
+     * @param deadlineMillis общий срок выполнения в миллисекундах
+     * @return результат обработчика ответа
+     * @throws IOException если запрос завершился ошибкой или был прерван по сроку
+     */
+    public static <T> T execute(CloseableHttpClient httpClient, HttpUriRequestBase request,
+                                HttpClientResponseHandler<? extends T> handler,
+                                long deadlineMillis) throws IOException {
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> abort = DEADLINE_TIMER.schedule(() -> {
+            expired.set(true);
+            logger.warning("Request to " + request.getRequestUri() + " exceeded deadline of " + 
+                          deadlineMillis + " ms, aborting");
+            request.cancel();
+        }, deadlineMillis, TimeUnit.MILLISECONDS);
+        RequestContext context = RequestContext.current();
+        if (context != null) {
+            context.register(request);
+        }
+        
+        try {
+            return httpClient.execute(request, handler);
+        } catch (IOException e) {
+            if (expired.get()) {
+                SocketTimeoutException timeout = new SocketTimeoutException(
+                    "Request exceeded total deadline of " + deadlineMillis + " ms");
+                timeout.initCause(e);
+                throw timeout;
+            }
+            throw e;
+        } finally {
+            abort.cancel(false);
+            if (context != null) {
+                context.unregister(request);
+            }
+        }
+    }
+
+    /**
+     * Выполняет запрос с общим сроком и дублированием по политике сервиса.
+     * Если политика выключена или запрос не является GET, запрос выполняется
+     * как в {@link #execute(CloseableHttpClient, HttpUriRequestBase, HttpClientResponseHandler, long)}.
+     * Иначе основная попытка выполняется в вызывающем потоке (и, значит, в пределах
+     * ограничений сервиса), а дублирующая - в виртуальном потоке, если вызывающий поток
+     * виртуальный, или в ограниченном пуле. Ответы попыток буферизуются, обработчик
+     * вызывается один раз для первого успешного ответа, а оставшаяся попытка прерывается.
+     * 
+     * @param httpClient HTTP-клиент
+     * @param request запрос
+     * @param handler обработчик ответа
+     * @param deadlineMillis общий срок выполнения в миллисекундах
+     * @param hedging политика дублирования запросов
+     * @return результат обработчика ответа
+     * @throws IOException если все попытки завершились ошибкой или истек срок
+     */
+    public static <T> T execute(CloseableHttpClient httpClient, HttpUriRequestBase request,
+                                HttpClientResponseHandler<? extends T> handler,
+                                long deadlineMillis, HedgingPolicy hedging) throws IOException {
+        if (hedging == null || !hedging.isEnabled() || !HttpGet.METHOD_NAME.equals(request.getMethod())) {
+            return execute(httpClient, request, handler, deadlineMillis);
+        }
+        
+        long started = System.nanoTime();
+        long deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        List<HttpUriRequestBase> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger failedAttempts = new AtomicInteger();
+        CompletableFuture<ClassicHttpResponse> winner = new CompletableFuture<>();
+        AtomicBoolean expired = new AtomicBoolean();
+        ExecutorService hedgeExecutor = Thread.currentThread().isVirtual() ? VIRTUAL_HEDGE_EXECUTOR : HEDGE_EXECUTOR;
+        RequestContext context = RequestContext.current();
+        
+        hedging.onRequest();
+        attempts.add(request);
+        if (context != null) {
+            context.register(request);
+        }
+        ScheduledFuture<?> abort = DEADLINE_TIMER.schedule(() -> {
+            expired.set(true);
+            logger.warning("Request to " + request.getRequestUri() + " exceeded deadline of " + 
+                          deadlineMillis + " ms, aborting");
+            cancelAttempts(attempts, null);
+        }, deadlineMillis, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> hedge = null;
+        try {
+            long hedgeDelayNanos = hedging.hedgeDelayNanos();
+            if (hedgeDelayNanos >= 0 && hedgeDelayNanos < deadlineNanos) {
+                HttpUriRequestBase copy = copyOf(request);
+                hedge = DEADLINE_TIMER.schedule(() -> startHedge(
+                    httpClient, copy, hedging, hedgeExecutor, context, hedgeDelayNanos, attempts, failedAttempts, winner),
+                    hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            }
+            
+            runAttempt(httpClient, request, hedging, attempts, failedAttempts, winner);
+            ClassicHttpResponse response = winner.get(
+                Math.max(0, deadlineNanos - (System.nanoTime() - started)), TimeUnit.NANOSECONDS);
+            return handler.handleResponse(response);
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException("Request exceeded total deadline of " + deadlineMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to " + request.getRequestUri() + " was interrupted");
+        } catch (ExecutionException e) {
+            if (expired.get()) {
+                SocketTimeoutException timeout = new SocketTimeoutException(
+                    "Request exceeded total deadline of " + deadlineMillis + " ms");
+                timeout.initCause(e.getCause());
+                throw timeout;
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Request to " + request.getRequestUri() + " failed: " + e.getCause(), e.getCause());
+        } catch (HttpException e) {
+            throw new ClientProtocolException(e.getMessage(), e);
+        } finally {
+            abort.cancel(false);
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+            // Прерываем незавершенные попытки; завершенным отмена не вредит
+            cancelAttempts(attempts, null);
+            if (context != null) {
+                for (HttpUriRequestBase attempt : attempts) {
+                    context.unregister(attempt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Отправляет дублирующую попытку, если ответ еще не получен, в отсеке сервиса есть
+     * свободное место, квота позволяет еще один запрос (см. {@link RequestContext.HedgeGuard})
+     * и бюджет дублирования не исчерпан. Если в пуле нет свободного потока,
+     * дубль не отправляется, а занятые ресурсы и бюджет возвращаются.
+     */
+    private static void startHedge(CloseableHttpClient httpClient, HttpUriRequestBase attempt,
+                                   HedgingPolicy hedging, ExecutorService executor, RequestContext context,
+                                   long hedgeDelayNanos, List<HttpUriRequestBase> attempts,
+                                   AtomicInteger failedAttempts, CompletableFuture<ClassicHttpResponse> winner) {
+        if (winner.isDone()) {
+            return;
+        }
+        if (context != null && !context.tryAcquireHedge()) {
+            logger.fine("No free bulkhead slot or rate limit token, not hedging request to " + attempt.getRequestUri());
+            return;
+        }
+        if (!hedging.tryAcquireHedge()) {
+            if (context != null) {
+                context.releaseHedge();
+            }
+            return;
+        }
+        attempts.add(attempt);
+        if (context != null) {
+            context.register(attempt);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runAttempt(httpClient, attempt, hedging, attempts, failedAttempts, winner);
+                } finally {
+                    if (context != null) {
+                        context.releaseHedge();
+                    }
+                }
+            });
+            logger.fine("Hedging request to " + attempt.getRequestUri() + " after " + 
+                       TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos) + " ms");
+        } catch (RejectedExecutionException e) {
+            attempts.remove(attempt);
+            if (context != null) {
+                context.unregister(attempt);
+                context.releaseHedge();
+            }
+            hedging.releaseHedge();
+            logger.fine("No free hedge threads, not hedging request to " + attempt.getRequestUri());
+        }
+    }
+
+    /**
+     * Выполняет попытку запроса в текущем потоке. Первый успешный ответ завершает
+     * общий результат и прерывает остальные попытки; ошибка завершает его, только если
+     * ошибкой завершились все попытки. Задержка учитывается и для прерванных попыток:
+     * проигравшая или прерванная по сроку попытка длилась не меньше замеренного времени.
+     */
+    private static void runAttempt(CloseableHttpClient httpClient, HttpUriRequestBase attempt,
+                                   HedgingPolicy hedging, List<HttpUriRequestBase> attempts,
+                                   AtomicInteger failedAttempts, CompletableFuture<ClassicHttpResponse> winner) {
+        long attemptStarted = System.nanoTime();
+        try {
+            ClassicHttpResponse response = httpClient.execute(attempt, ApiHttpClients::buffer);
+            hedging.recordLatency(System.nanoTime() - attemptStarted);
+            if (winner.complete(response)) {
+                cancelAttempts(attempts, attempt);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (attempt.isCancelled()) {
+                hedging.recordLatency(System.nanoTime() - attemptStarted);
+            }
+            if (failedAttempts.incrementAndGet() == attempts.size()) {
+                winner.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void cancelAttempts(List<HttpUriRequestBase> attempts, HttpUriRequestBase except) {
+        for (HttpUriRequestBase attempt : attempts) {
+            if (attempt != except) {
+                attempt.cancel();
+            }
+        }
+    }
+
+    /**
+     * Копирует ответ вместе с телом в память, чтобы соединение попытки
+     * освободилось сразу, а обработчик мог быть вызван позже
+     */
+    private static ClassicHttpResponse buffer(ClassicHttpResponse response) throws IOException {
+        BasicClassicHttpResponse copy = new BasicClassicHttpResponse(response.getCode(), response.getReasonPhrase());
+        copy.setHeaders(response.getHeaders());
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            copy.setEntity(new ByteArrayEntity(EntityUtils.toByteArray(entity), 
+                                               ContentType.parseLenient(entity.getContentType()),
+                                               entity.getContentEncoding()));
+        }
+        return copy;
+    }
+
+    /**
+     * Создает копию GET-запроса для дублирующей попытки
+     */
+    private static HttpUriRequestBase copyOf(HttpUriRequestBase request) throws IOException {
+        try {
+            HttpGet copy = new HttpGet(request.getUri());
+            copy.setHeaders(request.getHeaders());
+            return copy;
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid request URI: " + e.getMessage(), e);
+        }
+    }
+}
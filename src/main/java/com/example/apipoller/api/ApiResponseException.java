@@ -0,0 +1,37 @@
+package com.example.apipoller.api;
+
+import java.io.IOException;
+
+/**
+ * Исключение для ответов API с кодом, отличным от 200.
+ * Хранит код ответа и сведения о квоте, чтобы вызывающий код мог
+ * отличить превышение лимита (429) от прочих ошибок и учесть Retry-After.
+ */
+public class ApiResponseException extends IOException {
+    private final int statusCode;
+    private final RateLimitStatus rateLimitStatus;
+
+    public ApiResponseException(int statusCode, String reasonPhrase, RateLimitStatus rateLimitStatus) {
+        super("API returned status code: " + statusCode + " - " + reasonPhrase);
+        this.statusCode = statusCode;
+        this.rateLimitStatus = rateLimitStatus;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return сведения о квоте из заголовков ответа или null, если их не было
+     */
+    public RateLimitStatus getRateLimitStatus() {
+        return rateLimitStatus;
+    }
+
+    /**
+     * @return true, если сервер сообщил о превышении лимита запросов
+     */
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.apipoller.api;
 
+import com.example.apipoller.dedup.DedupCache;
 import com.example.apipoller.model.ApiRecord;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Интерфейс для сервисов, выполняющих запросы к API
@@ -20,4 +24,45 @@ public interface ApiService {
      * @throws IOException если произошла ошибка при запросе
      */
     List<ApiRecord> fetchData() throws IOException;
+    
+    /**
+     * Выполняет запрос к API асинхронно. По умолчанию {@link #fetchData()} выполняется
+     * на переданном исполнителе; обертки, выполняющие запросы в собственном отсеке,
+     * переопределяют метод, чтобы ответ ожидался в отсеке сервиса.
+     * Ошибка запроса завершает future самим исключением, без обертки CompletionException.
+     * 
+     * @param executor исполнитель для запроса
+     * @return future списка новых записей
+     */
+    default CompletableFuture<List<ApiRecord>> fetchDataAsync(Executor executor) {
+        CompletableFuture<List<ApiRecord>> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(fetchData());
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+    
+    /**
+     * Возвращает сведения о квоте из заголовков последнего ответа API
+     * @return сведения о квоте или null, если сервис их не предоставляет
+     */
+    default RateLimitStatus getRateLimitStatus() {
+        return null;
+    }
+    
+    /**
+     * Возвращает набор уже обработанных идентификаторов сервиса
+     * @return набор идентификаторов или null, если сервис не устраняет повторы
+     */
+    default DedupCache getDedupCache() {
+        return null;
+    }
 }
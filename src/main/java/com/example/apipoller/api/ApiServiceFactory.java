@@ -1,5 +1,7 @@
 package com.example.apipoller.api;
 
+import com.example.apipoller.dedup.DedupRegistry;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -10,10 +12,10 @@ public class ApiServiceFactory {
     private static final Map<String, ApiService> services = new HashMap<>();
     
     static {
-        // Регистрация доступных сервисов
-        services.put("news", new NewsApiService());
-        services.put("weather", new WeatherApiService());
-        services.put("nasa", new NasaApiService());
+        // Регистрация доступных сервисов; повторы отслеживаются в общем реестре процесса
+        services.put("news", new NewsApiService(DedupRegistry.shared()));
+        services.put("weather", new WeatherApiService(DedupRegistry.shared()));
+        services.put("nasa", new NasaApiService(DedupRegistry.shared()));
     }
     
     /**
@@ -0,0 +1,132 @@
+package com.example.apipoller.api;
+
+import com.example.apipoller.config.AppConfig;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Политика дублирующих (хеджированных) запросов сервиса.
+ * Если ответ на идемпотентный запрос не получен за время, равное заданному
+ * перцентилю наблюдаемых задержек, отправляется второй такой же запрос;
+ * используется первый полученный ответ, а второй запрос прерывается.
+ * <p>
+ * Доля дублирующих запросов ограничена бюджетом: каждый основной запрос
+ * пополняет бюджет на budgetPercent/100, а каждый дублирующий расходует единицу,
+ * поэтому дублирование не добавляет больше budgetPercent% дополнительного трафика.
+ */
+public class HedgingPolicy {
+    private static final int LATENCY_SAMPLES = 256;
+    // Минимальное число замеров, после которого перцентиль считается достоверным
+    private static final int MIN_SAMPLES = 20;
+    // Верхняя граница накопленного бюджета, чтобы после долгого затишья не отправлять пачку дублей
+    private static final double MAX_CREDITS = 10;
+
+    private final int budgetPercent;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount = 0;
+    private int latencyIndex = 0;
+    private double credits = 0;
+    private final LongAdder hedgesSent = new LongAdder();
+
+    /**
+     * @param budgetPercent допустимая доля дублирующих запросов в процентах; 0 отключает дублирование
+     * @param percentile перцентиль задержки, после которого отправляется дубль
+     * @param minDelay минимальная задержка перед отправкой дубля
+     * @param unit единица измерения задержки
+     */
+    public HedgingPolicy(int budgetPercent, double percentile, long minDelay, TimeUnit unit) {
+        this.budgetPercent = Math.max(0, budgetPercent);
+        this.percentile = percentile;
+        this.minDelayNanos = unit.toNanos(minDelay);
+    }
+
+    /**
+     * @return политика без дублирования запросов
+     */
+    public static HedgingPolicy disabled() {
+        return new HedgingPolicy(0, 95, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Создает политику по настройкам HEDGE_BUDGET_PERCENT (по умолчанию 0 - дублирование выключено),
+     * HEDGE_PERCENTILE (по умолчанию 95) и HEDGE_MIN_DELAY_MILLIS (по умолчанию 50),
+     * в том числе с префиксом сервиса
+     * 
+     * @param serviceName имя сервиса
+     * @return политика дублирования запросов
+     */
+    public static HedgingPolicy fromConfig(String serviceName) {
+        return new HedgingPolicy(
+            AppConfig.getServiceIntSetting(serviceName, "HEDGE_BUDGET_PERCENT", 0),
+            Math.min(99, Math.max(50, AppConfig.getServiceIntSetting(serviceName, "HEDGE_PERCENTILE", 95))),
+            Math.max(0, AppConfig.getServiceIntSetting(serviceName, "HEDGE_MIN_DELAY_MILLIS", 50)),
+            TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return budgetPercent > 0;
+    }
+
+    /**
+     * Учитывает отправку основного запроса и пополняет бюджет дублирования
+     */
+    synchronized void onRequest() {
+        credits = Math.min(MAX_CREDITS, credits + budgetPercent / 100.0);
+    }
+
+    /**
+     * Пытается израсходовать бюджет на дублирующий запрос
+     * @return true, если дубль можно отправить
+     */
+    synchronized boolean tryAcquireHedge() {
+        if (credits < 1) {
+            return false;
+        }
+        credits -= 1;
+        hedgesSent.increment();
+        return true;
+    }
+
+    /**
+     * Возвращает бюджет дубля, который не удалось отправить
+     */
+    synchronized void releaseHedge() {
+        credits = Math.min(MAX_CREDITS, credits + 1);
+        hedgesSent.decrement();
+    }
+
+    /**
+     * Регистрирует задержку попытки: успешной или прерванной до получения ответа
+     * @param latencyNanos задержка в наносекундах
+     */
+    synchronized void recordLatency(long latencyNanos) {
+        latencies[latencyIndex] = latencyNanos;
+        latencyIndex = (latencyIndex + 1) % LATENCY_SAMPLES;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+    }
+
+    /**
+     * Возвращает задержку, после которой отправляется дублирующий запрос
+     * @return задержка в наносекундах или -1, если замеров пока недостаточно
+     */
+    synchronized long hedgeDelayNanos() {
+        if (latencyCount < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * latencyCount) - 1;
+        return Math.max(minDelayNanos, sorted[Math.max(0, Math.min(index, latencyCount - 1))]);
+    }
+
+    /**
+     * @return количество отправленных дублирующих запросов
+     */
+    public long getHedgesSent() {
+        return hedgesSent.sum();
+    }
+}
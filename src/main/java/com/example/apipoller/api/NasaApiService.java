@@ -1,6 +1,9 @@
 package com.example.apipoller.api;
 
 import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.dedup.DedupRegistry;
+import com.example.apipoller.dedup.FingerprintIndex;
 import com.example.apipoller.model.ApiRecord;
 import com.example.apipoller.model.NasaRecord;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -10,7 +13,6 @@ import org.apache.hc.client5.http.ConnectTimeoutException;
 import org.apache.hc.client5.http.ClientProtocolException;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.HttpHostConnectException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.message.StatusLine;
@@ -35,16 +37,25 @@ public class NasaApiService implements ApiService {
     private static final String MARS_PHOTOS_API_URL = "https://api.nasa.gov/mars-photos/api/v1/rovers/curiosity/photos";
     private static final String[] API_TYPES = {"apod", "mars_photos"};
     
-    private final Set<String> processedIds = Collections.synchronizedSet(new HashSet<>());
+    private final DedupRegistry dedupRegistry;
     private final CloseableHttpClient httpClient;
     private final ObjectMapper mapper;
+    private final HedgingPolicy hedgingPolicy = HedgingPolicy.fromConfig("nasa");
+    private volatile RateLimitStatus rateLimitStatus;
     private int currentApiTypeIndex = 0;
 
     /**
-     * Конструктор по умолчанию
+     * Конструктор по умолчанию; повторы отслеживаются в собственном реестре сервиса
      */
     public NasaApiService() {
-        this(HttpClients.createDefault());
+        this(ApiHttpClients.create("nasa"));
+    }
+    
+    /**
+     * @param dedupRegistry реестр обработанных идентификаторов, общий с другими сервисами
+     */
+    public NasaApiService(DedupRegistry dedupRegistry) {
+        this(ApiHttpClients.create("nasa"), dedupRegistry);
     }
     
     /**
@@ -53,8 +64,17 @@ public class NasaApiService implements ApiService {
      * @param httpClient HTTP клиент для выполнения запросов
      */
     public NasaApiService(CloseableHttpClient httpClient) {
+        this(httpClient, new DedupRegistry());
+    }
+    
+    /**
+     * @param httpClient HTTP клиент для выполнения запросов
+     * @param dedupRegistry реестр обработанных идентификаторов
+     */
+    public NasaApiService(CloseableHttpClient httpClient, DedupRegistry dedupRegistry) {
         this.httpClient = httpClient;
         this.mapper = new ObjectMapper();
+        this.dedupRegistry = dedupRegistry;
     }
 
     @Override
@@ -62,6 +82,16 @@ public class NasaApiService implements ApiService {
         return "nasa";
     }
 
+    @Override
+    public RateLimitStatus getRateLimitStatus() {
+        return rateLimitStatus;
+    }
+
+    @Override
+    public DedupCache getDedupCache() {
+        return dedupRegistry.getCache(getServiceName());
+    }
+
     @Override
     public List<ApiRecord> fetchData() throws IOException {
         String apiType = API_TYPES[currentApiTypeIndex];
@@ -92,13 +122,14 @@ public class NasaApiService implements ApiService {
         HttpGet request = new HttpGet(apiUrl);
         
         try {
-            return httpClient.execute(request, response -> {
+            return ApiHttpClients.execute(httpClient, request, response -> {
                 try {
+                    rateLimitStatus = RateLimitStatus.fromResponse(response);
                     int statusCode = response.getCode();
                     if (statusCode != 200) {
                         String statusMessage = new StatusLine(response).getReasonPhrase();
                         logger.warning("NASA API returned status code: " + statusCode + " - " + statusMessage);
-                        throw new IOException("API returned status code: " + statusCode + " - " + statusMessage);
+                        throw new ApiResponseException(statusCode, statusMessage, rateLimitStatus);
                     }
                     
                     JsonNode root = mapper.readTree(response.getEntity().getContent());
@@ -106,13 +137,6 @@ public class NasaApiService implements ApiService {
                     String date = root.path("date").asText();
                     String id = "apod_" + date;
                     
-                    if (processedIds.contains(id)) {
-                        logger.info("Already processed NASA APOD data for date: " + date);
-                        return Collections.emptyList();
-                    }
-                    
-                    processedIds.add(id);
-                    
                     NasaRecord record = new NasaRecord(
                         id,
                         root.path("title").asText(),
@@ -123,12 +147,19 @@ public class NasaApiService implements ApiService {
                         root.path("copyright").asText("")
                     );
                     
+                    // Снимок дня может быть исправлен после публикации, поэтому учитывается содержимое
+                    long content = FingerprintIndex.contentFingerprint(record.toMap());
+                    if (!dedupRegistry.tryClaim(getServiceName(), id, content)) {
+                        logger.info("Already processed NASA APOD data for date: " + date);
+                        return Collections.emptyList();
+                    }
+                    
                     logger.info("Fetched new NASA APOD data for date: " + date);
                     return Collections.singletonList(record);
                 } finally {
                     EntityUtils.consume(response.getEntity());
                 }
-            });
+            }, ApiHttpClients.requestDeadlineMillis(getServiceName()), hedgingPolicy);
         } catch (ConnectTimeoutException e) {
             logger.log(Level.SEVERE, "Connection timeout when accessing NASA APOD API", e);
             throw new IOException("Connection timeout when accessing NASA APOD API: " + e.getMessage(), e);
@@ -166,13 +197,14 @@ public class NasaApiService implements ApiService {
         HttpGet request = new HttpGet(apiUrl);
         
         try {
-            return httpClient.execute(request, response -> {
+            return ApiHttpClients.execute(httpClient, request, response -> {
                 try {
+                    rateLimitStatus = RateLimitStatus.fromResponse(response);
                     int statusCode = response.getCode();
                     if (statusCode != 200) {
                         String statusMessage = new StatusLine(response).getReasonPhrase();
                         logger.warning("NASA Mars Rover API returned status code: " + statusCode + " - " + statusMessage);
-                        throw new IOException("API returned status code: " + statusCode + " - " + statusMessage);
+                        throw new ApiResponseException(statusCode, statusMessage, rateLimitStatus);
                     }
                     
                     JsonNode root = mapper.readTree(response.getEntity().getContent());
@@ -190,14 +222,6 @@ public class NasaApiService implements ApiService {
                     
                     String id = "mars_" + photoNode.path("id").asText();
                     
-                    // Пропускаем уже обработанные фотографии
-                    if (processedIds.contains(id)) {
-                        logger.info("Already processed Mars Rover photo with id: " + id);
-                        return Collections.emptyList();
-                    }
-                    
-                    processedIds.add(id);
-                    
                     // Создание записи с данными фотографии
                     String earthDate = photoNode.path("earth_date").asText();
                     JsonNode cameraNode = photoNode.path("camera");
@@ -216,12 +240,19 @@ public class NasaApiService implements ApiService {
                         "NASA/JPL"
                     );
                     
+                    // Пропускаем уже обработанные фотографии, если их данные не изменились
+                    long content = FingerprintIndex.contentFingerprint(record.toMap());
+                    if (!dedupRegistry.tryClaim(getServiceName(), id, content)) {
+                        logger.info("Already processed Mars Rover photo with id: " + id);
+                        return Collections.emptyList();
+                    }
+                    
                     logger.info("Fetched new Mars Rover photo data for sol: " + sol);
                     return Collections.singletonList(record);
                 } finally {
                     EntityUtils.consume(response.getEntity());
                 }
-            });
+            }, ApiHttpClients.requestDeadlineMillis(getServiceName()), hedgingPolicy);
         } catch (ConnectTimeoutException e) {
             logger.log(Level.SEVERE, "Connection timeout when accessing NASA Mars Rover API", e);
             throw new IOException("Connection timeout when accessing NASA Mars Rover API: " + e.getMessage(), e);
@@ -1,6 +1,9 @@
 package com.example.apipoller.api;
 
 import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.dedup.DedupRegistry;
+import com.example.apipoller.dedup.FingerprintIndex;
 import com.example.apipoller.model.ApiRecord;
 import com.example.apipoller.model.NewsRecord;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -11,7 +14,6 @@ import org.apache.hc.client5.http.ClientProtocolException;
 import org.apache.hc.client5.http.HttpHostConnectException;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.message.StatusLine;
 
@@ -32,16 +34,26 @@ public class NewsApiService implements ApiService {
     private static final String API_URL = 
         "https://newsapi.org/v2/top-headlines?country=us&apiKey=" + API_KEY;
     
-    private final Set<String> processedIds = Collections.synchronizedSet(new HashSet<>());
+    private final DedupRegistry dedupRegistry;
     private final CloseableHttpClient httpClient;
     private final ObjectMapper mapper;
+    private final HedgingPolicy hedgingPolicy = HedgingPolicy.fromConfig("news");
+    private volatile RateLimitStatus rateLimitStatus;
 
     /**
-     * Стандартный конструктор
+     * Стандартный конструктор; повторы отслеживаются в собственном реестре сервиса
      */
     public NewsApiService() {
+        this(new DedupRegistry());
+    }
+    
+    /**
+     * @param dedupRegistry реестр обработанных идентификаторов, общий с другими сервисами
+     */
+    public NewsApiService(DedupRegistry dedupRegistry) {
         this.httpClient = createHttpClient();
         this.mapper = new ObjectMapper();
+        this.dedupRegistry = dedupRegistry;
     }
     
     /**
@@ -52,6 +64,7 @@ public class NewsApiService implements ApiService {
     protected NewsApiService(CloseableHttpClient httpClient) {
         this.httpClient = httpClient;
         this.mapper = new ObjectMapper();
+        this.dedupRegistry = new DedupRegistry();
     }
     
     /**
@@ -61,7 +74,7 @@ public class NewsApiService implements ApiService {
      * @return HTTP-клиент для выполнения запросов
      */
     protected CloseableHttpClient createHttpClient() {
-        return HttpClients.createDefault();
+        return ApiHttpClients.create("news");
     }
 
     @Override
@@ -69,6 +82,16 @@ public class NewsApiService implements ApiService {
         return "news";
     }
 
+    @Override
+    public RateLimitStatus getRateLimitStatus() {
+        return rateLimitStatus;
+    }
+
+    @Override
+    public DedupCache getDedupCache() {
+        return dedupRegistry.getCache(getServiceName());
+    }
+
     @Override
     public List<ApiRecord> fetchData() throws IOException {
         logger.info("Fetching data from News API");
@@ -76,13 +99,14 @@ public class NewsApiService implements ApiService {
         
         try {
             // Используем execute с HttpClientResponseHandler
-            return httpClient.execute(request, response -> {
+            return ApiHttpClients.execute(httpClient, request, response -> {
                 try {
+                    rateLimitStatus = RateLimitStatus.fromResponse(response);
                     int statusCode = response.getCode();
                     if (statusCode != 200) {
                         String statusMessage = new StatusLine(response).getReasonPhrase();
                         logger.warning("News API returned status code: " + statusCode + " - " + statusMessage);
-                        throw new IOException("API returned status code: " + statusCode + " - " + statusMessage);
+                        throw new ApiResponseException(statusCode, statusMessage, rateLimitStatus);
                     }
                     
                     JsonNode root = mapper.readTree(response.getEntity().getContent());
@@ -98,13 +122,6 @@ public class NewsApiService implements ApiService {
                     for (JsonNode article : articles) {
                         String url = article.path("url").asText();
                         
-                        // Пропускаем уже обработанные новости
-                        if (processedIds.contains(url)) {
-                            continue;
-                        }
-                        
-                        processedIds.add(url);
-                        
                         JsonNode sourceNode = article.path("source");
                         String source = sourceNode.has("name") ? sourceNode.get("name").asText() : "Unknown";
                         
@@ -117,6 +134,12 @@ public class NewsApiService implements ApiService {
                             article.path("author").asText()
                         );
                         
+                        // Пропускаем уже обработанные новости; исправленная новость выдается снова
+                        long content = FingerprintIndex.contentFingerprint(record.toMap());
+                        if (!dedupRegistry.tryClaim(getServiceName(), url, content)) {
+                            continue;
+                        }
+                        
                         records.add(record);
                     }
                     
@@ -126,7 +149,7 @@ public class NewsApiService implements ApiService {
                     // Освобождаем ресурсы
                     EntityUtils.consume(response.getEntity());
                 }
-            });
+            }, ApiHttpClients.requestDeadlineMillis(getServiceName()), hedgingPolicy);
         } catch (ConnectTimeoutException e) {
             logger.log(Level.SEVERE, "Connection timeout when accessing News API", e);
             throw new IOException("Connection timeout when accessing News API: " + e.getMessage(), e);
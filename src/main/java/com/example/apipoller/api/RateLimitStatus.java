@@ -0,0 +1,117 @@
+package com.example.apipoller.api;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Сведения о квоте запросов, полученные из заголовков ответа API:
+ * Retry-After и X-RateLimit-Limit / X-RateLimit-Remaining / X-RateLimit-Reset.
+ * Отсутствующие значения представлены числом -1.
+ */
+public class RateLimitStatus {
+    // Значения X-RateLimit-Reset больше этого порога считаются unix-временем, меньше - задержкой в секундах
+    private static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+
+    private final long limit;
+    private final long remaining;
+    private final long resetAfterMillis;
+    private final long retryAfterMillis;
+
+    public RateLimitStatus(long limit, long remaining, long resetAfterMillis, long retryAfterMillis) {
+        this.limit = limit;
+        this.remaining = remaining;
+        this.resetAfterMillis = resetAfterMillis;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Извлекает сведения о квоте из заголовков ответа
+     * @param response HTTP-ответ
+     * @return сведения о квоте или null, если ответ не содержит соответствующих заголовков
+     */
+    public static RateLimitStatus fromResponse(HttpResponse response) {
+        if (response == null) {
+            return null;
+        }
+        long limit = parseLong(response.getFirstHeader("X-RateLimit-Limit"));
+        long remaining = parseLong(response.getFirstHeader("X-RateLimit-Remaining"));
+        long resetAfterMillis = parseReset(response.getFirstHeader("X-RateLimit-Reset"));
+        long retryAfterMillis = parseRetryAfter(response.getFirstHeader("Retry-After"));
+        if (limit < 0 && remaining < 0 && resetAfterMillis < 0 && retryAfterMillis < 0) {
+            return null;
+        }
+        return new RateLimitStatus(limit, remaining, resetAfterMillis, retryAfterMillis);
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public long getResetAfterMillis() {
+        return resetAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    private static long parseLong(Header header) {
+        if (header == null || header.getValue() == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.getValue().trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseReset(Header header) {
+        long value = parseLong(header);
+        if (value < 0) {
+            return -1;
+        }
+        if (value > EPOCH_SECONDS_THRESHOLD) {
+            return Math.max(0, value * 1000 - System.currentTimeMillis());
+        }
+        return value * 1000;
+    }
+
+    private static long parseRetryAfter(Header header) {
+        if (header == null || header.getValue() == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        long seconds = parseLong(header);
+        if (seconds >= 0) {
+            return seconds * 1000;
+        }
+        // Retry-After может содержать дату в формате HTTP-date
+        try {
+            Instant at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return Math.max(0, Duration.between(Instant.now(), at).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitStatus{" +
+               "limit=" + limit +
+               ", remaining=" + remaining +
+               ", resetAfterMillis=" + resetAfterMillis +
+               ", retryAfterMillis=" + retryAfterMillis +
+               '}';
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.apipoller.api;
+
+import org.apache.hc.core5.concurrent.Cancellable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Контекст запроса к сервису, выполняемого в текущем потоке.
+ * Слой отказоустойчивости привязывает контекст к потоку, выполняющему запрос,
+ * а {@link ApiHttpClients} регистрирует в нем выполняемые HTTP-запросы.
+ * Отмена контекста прерывает зарегистрированные запросы: в отличие от прерывания
+ * потока, это закрывает соединение и освобождает поток, заблокированный на чтении сокета.
+ * <p>
+ * Слои, ограничивающие запросы к сервису, регистрируют в контексте свои ограничения
+ * ({@link HedgeGuard}), чтобы дублирующая попытка запроса занимала место в отсеке
+ * и расходовала квоту наравне с основной.
+ */
+public final class RequestContext {
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Ограничение, которое дублирующая попытка запроса должна пройти, как и основная
+     */
+    public interface HedgeGuard {
+        /**
+         * @return true, если ресурс для дублирующей попытки занят
+         */
+        boolean tryAcquire();
+
+        /**
+         * Возвращает ресурс после завершения дублирующей попытки
+         */
+        void release();
+    }
+
+    private final Set<Cancellable> requests = ConcurrentHashMap.newKeySet();
+    private final List<HedgeGuard> hedgeGuards = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled = false;
+
+    /**
+     * @return контекст, привязанный к текущему потоку, или null
+     */
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Выполняет вызов, привязав к текущему потоку этот контекст
+     *
+     * @param call вызов
+     * @return результат вызова
+     * @throws Exception ошибка вызова
+     */
+    public <T> T call(Callable<T> call) throws Exception {
+        RequestContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Регистрирует выполняемый запрос; если контекст уже отменен, запрос прерывается сразу
+     *
+     * @param request запрос
+     */
+    public void register(Cancellable request) {
+        requests.add(request);
+        if (cancelled) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * Снимает регистрацию завершенного запроса
+     *
+     * @param request запрос
+     */
+    public void unregister(Cancellable request) {
+        requests.remove(request);
+    }
+
+    /**
+     * Отменяет контекст и прерывает все зарегистрированные запросы
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Cancellable request : requests) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * Добавляет ограничение для дублирующих попыток запросов этого контекста
+     *
+     * @param guard ограничение
+     */
+    public void addHedgeGuard(HedgeGuard guard) {
+        hedgeGuards.add(guard);
+    }
+
+    /**
+     * Занимает ресурсы всех ограничений для дублирующей попытки.
+     * Если какой-либо ресурс недоступен, уже занятые возвращаются.
+     *
+     * @return true, если дублирующую попытку можно отправить
+     */
+    public boolean tryAcquireHedge() {
+        List<HedgeGuard> acquired = new ArrayList<>();
+        for (HedgeGuard guard : hedgeGuards) {
+            if (!guard.tryAcquire()) {
+                for (HedgeGuard taken : acquired) {
+                    taken.release();
+                }
+                return false;
+            }
+            acquired.add(guard);
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает ресурсы, занятые дублирующей попыткой
+     */
+    public void releaseHedge() {
+        for (HedgeGuard guard : hedgeGuards) {
+            guard.release();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
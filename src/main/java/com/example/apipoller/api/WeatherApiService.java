@@ -1,6 +1,9 @@
 package com.example.apipoller.api;
 
 import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.dedup.DedupRegistry;
+import com.example.apipoller.dedup.FingerprintIndex;
 import com.example.apipoller.model.ApiRecord;
 import com.example.apipoller.model.WeatherRecord;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -11,7 +14,6 @@ import org.apache.hc.client5.http.ClientProtocolException;
 import org.apache.hc.client5.http.HttpHostConnectException;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.message.StatusLine;
 
@@ -39,18 +41,28 @@ public class WeatherApiService implements ApiService {
         "Berlin", new double[]{52.5200, 13.4050}
     );
     
-    private final Set<String> processedIds = Collections.synchronizedSet(new HashSet<>());
+    private final DedupRegistry dedupRegistry;
     private final CloseableHttpClient httpClient;
     private final ObjectMapper mapper;
+    private final HedgingPolicy hedgingPolicy = HedgingPolicy.fromConfig("weather");
+    private volatile RateLimitStatus rateLimitStatus;
     private int currentCityIndex = 0;
     private final List<String> cityNames = new ArrayList<>(CITIES.keySet());
 
     /**
-     * Конструктор по умолчанию
+     * Конструктор по умолчанию; повторы отслеживаются в собственном реестре сервиса
      */
     public WeatherApiService() {
+        this(new DedupRegistry());
+    }
+    
+    /**
+     * @param dedupRegistry реестр обработанных идентификаторов, общий с другими сервисами
+     */
+    public WeatherApiService(DedupRegistry dedupRegistry) {
         this.httpClient = createHttpClient();
         this.mapper = new ObjectMapper();
+        this.dedupRegistry = dedupRegistry;
     }
     
     /**
@@ -61,6 +73,7 @@ public class WeatherApiService implements ApiService {
     protected WeatherApiService(CloseableHttpClient httpClient) {
         this.httpClient = httpClient;
         this.mapper = new ObjectMapper();
+        this.dedupRegistry = new DedupRegistry();
     }
     
     /**
@@ -70,7 +83,7 @@ public class WeatherApiService implements ApiService {
      * @return HTTP-клиент для выполнения запросов
      */
     protected CloseableHttpClient createHttpClient() {
-        return HttpClients.createDefault();
+        return ApiHttpClients.create("weather");
     }
 
     /**
@@ -81,7 +94,7 @@ public class WeatherApiService implements ApiService {
      * @return true, если запись уже обрабатывалась
      */
     protected boolean isProcessed(String id) {
-        return processedIds.contains(id);
+        return dedupRegistry.isClaimed(getServiceName(), id);
     }
 
 
@@ -90,6 +103,16 @@ public class WeatherApiService implements ApiService {
         return "weather";
     }
 
+    @Override
+    public RateLimitStatus getRateLimitStatus() {
+        return rateLimitStatus;
+    }
+
+    @Override
+    public DedupCache getDedupCache() {
+        return dedupRegistry.getCache(getServiceName());
+    }
+
     @Override
     public List<ApiRecord> fetchData() throws IOException {
         // Циклически меняем город для разнообразия данных
@@ -109,13 +132,14 @@ public class WeatherApiService implements ApiService {
         
         try {
             // Используем execute с HttpClientResponseHandler
-            return httpClient.execute(request, response -> {
+            return ApiHttpClients.execute(httpClient, request, response -> {
                 try {
+                    rateLimitStatus = RateLimitStatus.fromResponse(response);
                     int statusCode = response.getCode();
                     if (statusCode != 200) {
                         String statusMessage = new StatusLine(response).getReasonPhrase();
                         logger.warning("Weather API returned status code: " + statusCode + " - " + statusMessage);
-                        throw new IOException("API returned status code: " + statusCode + " - " + statusMessage);
+                        throw new ApiResponseException(statusCode, statusMessage, rateLimitStatus);
                     }
                     
                     JsonNode root = mapper.readTree(response.getEntity().getContent());
@@ -125,14 +149,6 @@ public class WeatherApiService implements ApiService {
                     long timestamp = root.path("dt").asLong();
                     String id = city + "_" + timestamp;
                     
-                    // Пропускаем уже обработанные данные о погоде
-                    if (processedIds.contains(id)) {
-                        logger.info("Already processed weather data for " + city);
-                        return Collections.emptyList();
-                    }
-                    
-                    processedIds.add(id);
-                    
                     // Извлечение нужных данных из JSON
                     JsonNode main = root.path("main");
                     JsonNode wind = root.path("wind");
@@ -154,13 +170,20 @@ public class WeatherApiService implements ApiService {
                         timestamp
                     );
                     
+                    // Пропускаем уже обработанные данные о погоде, если они не изменились
+                    long content = FingerprintIndex.contentFingerprint(record.toMap());
+                    if (!dedupRegistry.tryClaim(getServiceName(), id, content)) {
+                        logger.info("Already processed weather data for " + city);
+                        return Collections.emptyList();
+                    }
+                    
                     logger.info("Fetched new weather data for " + city);
                     return Collections.singletonList(record);
                 } finally {
                     // Освобождаем ресурсы
                     EntityUtils.consume(response.getEntity());
                 }
-            });
+            }, ApiHttpClients.requestDeadlineMillis(getServiceName()), hedgingPolicy);
         } catch (ConnectTimeoutException e) {
             logger.log(Level.SEVERE, "Connection timeout when accessing Weather API for " + cityName, e);
             throw new IOException("Connection timeout when accessing Weather API for " + cityName + ": " + e.getMessage(), e);
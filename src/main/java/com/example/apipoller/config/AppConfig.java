@@ -6,7 +6,9 @@ import io.github.cdimascio.dotenv.DotenvException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,19 +62,75 @@ public class AppConfig {
         return key;
     }
     
+    /**
+     * Возвращает режим выполнения задач опроса ("platform" или "virtual")
+     * @return название режима из переменной EXECUTION_MODE
+     */
+    public static String getExecutionMode() {
+        return getSetting("EXECUTION_MODE", "platform").toLowerCase();
+    }
+    
+    /**
+     * Возвращает строковую настройку из .env или переменных окружения
+     * @param key имя настройки
+     * @param defaultValue значение по умолчанию
+     * @return значение настройки или значение по умолчанию
+     */
+    public static String getSetting(String key, String defaultValue) {
+        String value = dotenv.get(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+    
+    /**
+     * Возвращает целочисленную настройку из .env или переменных окружения
+     * @param key имя настройки
+     * @param defaultValue значение по умолчанию
+     * @return значение настройки или значение по умолчанию, если оно отсутствует или некорректно
+     */
+    public static int getIntSetting(String key, int defaultValue) {
+        String value = getSetting(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid integer value for " + key + ": " + value + ", using default " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Возвращает целочисленную настройку для конкретного сервиса.
+     * Сначала ищется ключ с префиксом сервиса (например, NEWS_POLL_MIN_INTERVAL_SECONDS),
+     * затем общий ключ без префикса.
+     * @param service имя сервиса
+     * @param key имя настройки без префикса
+     * @param defaultValue значение по умолчанию
+     * @return значение настройки или значение по умолчанию
+     */
+    public static int getServiceIntSetting(String service, String key, int defaultValue) {
+        return getIntSetting(service.toUpperCase() + "_" + key, getIntSetting(key, defaultValue));
+    }
+    
     // Существующие поля и методы
     private final int maxThreads;
     private final int timeoutSeconds;
     private final List<String> services;
     private final String outputFormat;
+    private final List<String> outputFormats;
     private final Path outputFile;
 
+    /**
+     * @param outputFormat формат вывода или несколько форматов через запятую (например, "ndjson,csv")
+     */
     public AppConfig(int maxThreads, int timeoutSeconds, List<String> services, String outputFormat) {
         this.maxThreads = maxThreads;
         this.timeoutSeconds = timeoutSeconds;
         this.services = services;
-        this.outputFormat = outputFormat.toLowerCase();
-        this.outputFile = Paths.get("output." + this.outputFormat);
+        this.outputFormats = parseFormats(outputFormat);
+        this.outputFormat = String.join(",", outputFormats);
+        this.outputFile = getOutputFile(outputFormats.get(0));
     }
 
     public int getMaxThreads() {
@@ -91,10 +149,44 @@ public class AppConfig {
         return outputFormat;
     }
 
+    /**
+     * @return форматы вывода в порядке, указанном пользователем
+     */
+    public List<String> getOutputFormats() {
+        return outputFormats;
+    }
+
+    /**
+     * @return файл вывода первого формата
+     */
     public Path getOutputFile() {
         return outputFile;
     }
 
+    /**
+     * @param format формат вывода
+     * @return файл вывода для формата, например output.csv
+     */
+    public Path getOutputFile(String format) {
+        return Paths.get("output." + format);
+    }
+
+    /**
+     * Разбирает список форматов через запятую, удаляя пробелы, пустые элементы и повторы
+     */
+    private static List<String> parseFormats(String outputFormat) {
+        Set<String> formats = new LinkedHashSet<>();
+        for (String format : outputFormat.toLowerCase().split(",")) {
+            if (!format.isBlank()) {
+                formats.add(format.trim());
+            }
+        }
+        if (formats.isEmpty()) {
+            throw new ConfigurationException("At least one output format must be specified");
+        }
+        return List.copyOf(formats);
+    }
+
     /**
      * Создает объект конфигурации из аргументов командной строки.
      *
@@ -106,7 +198,7 @@ public class AppConfig {
         try {
             if (args.length < 4) {
                 throw new ConfigurationException(
-                    "Not enough arguments. Usage: java ApiPollerApp <maxThreads> <timeoutSec> <format:json|csv> <service1> [service2 ...]"
+                    "Not enough arguments. Usage: java ApiPollerApp <maxThreads> <timeoutSec> <format:json|csv|ndjson|binlog|columnar[,format...]> <service1> [service2 ...]"
                 );
             }
 
@@ -131,8 +223,11 @@ public class AppConfig {
             }
 
             String format = args[2].toLowerCase();
-            if (!format.equals("json") && !format.equals("csv")) {
-                throw new ConfigurationException("Invalid format: " + format + ". Format must be 'json' or 'csv'");
+            for (String single : parseFormats(format)) {
+                if (!isFormatSupported(single)) {
+                    throw new ConfigurationException("Invalid format: " + single + 
+                                                    ". Format must be 'json', 'csv', 'ndjson', 'binlog' or 'columnar'");
+                }
             }
 
             List<String> services = Arrays.asList(args).subList(3, args.length);
@@ -168,6 +263,17 @@ public class AppConfig {
         return service.equals("news") || service.equals("weather") || service.equals("nasa");
     }
 
+    /**
+     * Проверяет, поддерживается ли формат вывода
+     * 
+     * @param format название формата
+     * @return true, если формат поддерживается
+     */
+    private static boolean isFormatSupported(String format) {
+        return format.equals("json") || format.equals("csv") || format.equals("ndjson") || format.equals("binlog") ||
+               format.equals("columnar");
+    }
+
     @Override
     public String toString() {
         return "AppConfig{" +
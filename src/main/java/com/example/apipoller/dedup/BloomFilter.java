@@ -0,0 +1,105 @@
+package com.example.apipoller.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Фильтр Блума для 64-битных отпечатков идентификаторов.
+ * Размер битового массива и количество хеш-функций вычисляются по ожидаемому
+ * количеству элементов и целевой доле ложных срабатываний; позиции битов
+ * получаются двойным хешированием из двух половин отпечатка.
+ * <p>
+ * Фильтр не синхронизирован: доступ к нему синхронизирует владелец.
+ */
+public class BloomFilter {
+    private final long[] words;
+    private final long bits;
+    private final int hashes;
+    private final double targetRate;
+    private long setBits;
+
+    /**
+     * @param expectedItems ожидаемое количество элементов
+     * @param falsePositiveRate целевая доля ложных срабатываний (от 0 до 1)
+     */
+    public BloomFilter(long expectedItems, double falsePositiveRate) {
+        if (expectedItems <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter parameters: " + expectedItems +
+                                               " items, false positive rate " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.words = new long[(int) Math.min(Integer.MAX_VALUE - 8, (Math.max(64, optimalBits) + 63) / 64)];
+        this.bits = 64L * words.length;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedItems * ln2));
+        this.targetRate = falsePositiveRate;
+    }
+
+    private long position(long fingerprint, int i) {
+        long combined = fingerprint + i * ((fingerprint >>> 32) | 1);
+        return (combined & Long.MAX_VALUE) % bits;
+    }
+
+    /**
+     * @param fingerprint отпечаток идентификатора
+     * @return false, если элемента точно нет в фильтре; true, если он возможно есть
+     */
+    public boolean mightContain(long fingerprint) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = position(fingerprint, i);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Добавляет элемент в фильтр
+     * @param fingerprint отпечаток идентификатора
+     */
+    public void put(long fingerprint) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = position(fingerprint, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                setBits++;
+            }
+        }
+    }
+
+    /**
+     * Очищает фильтр
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+        setBits = 0;
+    }
+
+    /**
+     * @return оценка текущей доли ложных срабатываний по доле установленных битов
+     */
+    public double getFalsePositiveRate() {
+        return Math.pow((double) setBits / bits, hashes);
+    }
+
+    /**
+     * @return true, если оценка доли ложных срабатываний вдвое превысила целевую
+     *         и фильтр следует перестроить
+     */
+    public boolean isSaturated() {
+        return getFalsePositiveRate() > 2 * targetRate;
+    }
+
+    /**
+     * @return размер битового массива в байтах
+     */
+    public long getMemoryBytes() {
+        return 8L * words.length;
+    }
+
+    int getHashCount() {
+        return hashes;
+    }
+}
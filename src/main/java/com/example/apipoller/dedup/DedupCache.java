@@ -0,0 +1,391 @@
+package com.example.apipoller.dedup;
+
+import com.example.apipoller.config.AppConfig;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограниченный по размеру и времени жизни набор уже обработанных идентификаторов.
+ * Заменяет неограниченные множества в сервисах: при долгой работе объем памяти
+ * не превышает заданной емкости.
+ * <p>
+ * Набор разбит на сегменты по хешу идентификатора, у каждого сегмента своя
+ * блокировка, поэтому потоки разных сервисов и запросов редко ждут друг друга.
+ * Внутри сегмента используется сегментированный LRU: новый идентификатор попадает
+ * в испытательную часть, а при повторной встрече переносится в защищенную
+ * (80% емкости сегмента). Вытесняются в первую очередь идентификаторы, встреченные
+ * один раз, поэтому разовый всплеск новых записей не вытесняет те, что приходят
+ * в каждом ответе API. Идентификатор, не встречавшийся дольше времени жизни,
+ * считается новым.
+ * <p>
+ * Вместе с идентификатором хранится отпечаток содержимого записи
+ * (см. {@link FingerprintIndex#contentFingerprint(Map)}): запись с известным
+ * идентификатором, но измененным содержимым, считается обновлением и обрабатывается.
+ * <p>
+ * Перед картами сегмента стоит фильтр Блума ({@link BloomFilter}), рассчитанный
+ * на емкость сегмента и заданную долю ложных срабатываний. Идентификатор,
+ * которого точно нет в фильтре, добавляется без поиска строки в картах;
+ * остальные проверяются точно. Вытесненные идентификаторы остаются в фильтре,
+ * поэтому при заметном росте доли ложных срабатываний фильтр сегмента
+ * перестраивается по хранимым идентификаторам.
+ */
+public class DedupCache {
+    private static final int MAX_SEGMENTS = 16;
+    // Минимальная емкость сегмента, при которой набор еще разбивается на сегменты
+    private static final int MIN_SEGMENT_CAPACITY = 256;
+    private static final int PROTECTED_PERCENT = 80;
+    // Сколько самых старых записей проверяется на истечение при каждом добавлении
+    private static final int EXPIRY_SCAN = 4;
+    static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Сведения об идентификаторе: момент истечения в наносекундах и отпечаток содержимого
+     */
+    private static final class Entry {
+        long expiresAt;
+        long contentFingerprint;
+
+        Entry(long expiresAt, long contentFingerprint) {
+            this.expiresAt = expiresAt;
+            this.contentFingerprint = contentFingerprint;
+        }
+    }
+
+    /**
+     * Сегмент набора; доступ синхронизирован по самому сегменту.
+     * Карты хранят идентификаторы от самого давнего к самому свежему; порядок меняет
+     * только {@link #add(String, long)}, перенося встреченный идентификатор в конец,
+     * поэтому чтение без добавления не влияет на вытеснение
+     */
+    private static final class Segment {
+        final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>();
+        final LinkedHashMap<String, Entry> protectedIds = new LinkedHashMap<>();
+        final BloomFilter filter;
+
+        Segment(BloomFilter filter) {
+            this.filter = filter;
+        }
+
+        int size() {
+            return probation.size() + protectedIds.size();
+        }
+    }
+
+    private final Segment[] segments;
+    private final int segmentCapacity;
+    private final int protectedCapacity;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder filterFalsePositives = new LongAdder();
+    private final LongAdder contentChanges = new LongAdder();
+
+    /**
+     * @param capacity максимальное количество хранимых идентификаторов
+     * @param ttl время жизни идентификатора с последней встречи; 0 - без ограничения
+     * @param unit единица измерения времени жизни
+     */
+    public DedupCache(int capacity, long ttl, TimeUnit unit) {
+        this(capacity, ttl, unit, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * @param capacity максимальное количество хранимых идентификаторов
+     * @param ttl время жизни идентификатора с последней встречи; 0 - без ограничения
+     * @param unit единица измерения времени жизни
+     * @param falsePositiveRate целевая доля ложных срабатываний фильтра Блума; 0 - без фильтра
+     */
+    public DedupCache(int capacity, long ttl, TimeUnit unit, double falsePositiveRate) {
+        this(capacity, ttl, unit, falsePositiveRate, System::nanoTime);
+    }
+
+    DedupCache(int capacity, long ttl, TimeUnit unit, double falsePositiveRate, LongSupplier clock) {
+        if (capacity <= 0 || ttl < 0) {
+            throw new IllegalArgumentException("Invalid dedup cache limits: capacity " + capacity + ", ttl " + ttl + " " + unit);
+        }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, capacity / MIN_SEGMENT_CAPACITY)));
+        this.segments = new Segment[count];
+        this.segmentCapacity = (capacity + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(falsePositiveRate > 0 ? new BloomFilter(segmentCapacity, falsePositiveRate) : null);
+        }
+        this.protectedCapacity = Math.max(0, (int) ((long) segmentCapacity * PROTECTED_PERCENT / 100));
+        this.ttlNanos = ttl == 0 ? 0 : unit.toNanos(ttl);
+        this.clock = clock;
+    }
+
+    /**
+     * Создает набор по настройкам DEDUP_CAPACITY (по умолчанию 100000 идентификаторов)
+     * и DEDUP_TTL_HOURS (по умолчанию 168 - неделя; 0 - без ограничения),
+     * с долей ложных срабатываний фильтра DEDUP_FILTER_FPP_PERMILLE
+     * (по умолчанию 10 - 1%; 0 отключает фильтр), в том числе с префиксом сервиса
+     *
+     * @param serviceName имя сервиса
+     * @return набор обработанных идентификаторов
+     */
+    public static DedupCache fromConfig(String serviceName) {
+        return new DedupCache(
+            Math.max(1, AppConfig.getServiceIntSetting(serviceName, "DEDUP_CAPACITY", 100000)),
+            Math.max(0, AppConfig.getServiceIntSetting(serviceName, "DEDUP_TTL_HOURS", 168)),
+            TimeUnit.HOURS,
+            Math.min(999, Math.max(0, AppConfig.getServiceIntSetting(serviceName, "DEDUP_FILTER_FPP_PERMILLE", 10))) / 1000.0);
+    }
+
+    private Segment segmentFor(String id) {
+        int hash = id.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private boolean isExpired(long expiresAt, long now) {
+        return ttlNanos > 0 && now - expiresAt >= 0;
+    }
+
+    /**
+     * Отмечает идентификатор как обработанный без учета содержимого записи
+     *
+     * @param id идентификатор записи
+     * @return true, если идентификатор встречен впервые (или его время жизни истекло)
+     *         и запись нужно обработать; false, если это повтор
+     */
+    public boolean add(String id) {
+        return add(id, 0);
+    }
+
+    /**
+     * Отмечает идентификатор как обработанный и запоминает отпечаток содержимого
+     *
+     * @param id идентификатор записи
+     * @param contentFingerprint отпечаток содержимого записи
+     * @return true, если идентификатор встречен впервые (или его время жизни истекло)
+     *         либо содержимое изменилось, и запись нужно обработать; false, если это повтор
+     */
+    public boolean add(String id, long contentFingerprint) {
+        Segment segment = segmentFor(id);
+        long now = clock.getAsLong();
+        long expiresAt = now + ttlNanos;
+        long fingerprint = FingerprintIndex.fingerprint(id);
+        synchronized (segment) {
+            // Фильтр проверяется под блокировкой сегмента, иначе два потока могли бы
+            // одновременно счесть новым один и тот же идентификатор
+            if (segment.filter == null || segment.filter.mightContain(fingerprint)) {
+                Entry previous = segment.protectedIds.get(id);
+                if (previous != null) {
+                    if (!isExpired(previous.expiresAt, now)) {
+                        previous.expiresAt = expiresAt;
+                        segment.protectedIds.putLast(id, previous);
+                        return updateContent(previous, contentFingerprint);
+                    }
+                    segment.protectedIds.remove(id);
+                    expirations.increment();
+                }
+                Entry probationary = segment.probation.remove(id);
+                if (probationary != null) {
+                    if (!isExpired(probationary.expiresAt, now)) {
+                        probationary.expiresAt = expiresAt;
+                        promote(segment, id, probationary);
+                        return updateContent(probationary, contentFingerprint);
+                    }
+                    expirations.increment();
+                }
+                if (segment.filter != null && previous == null && probationary == null) {
+                    filterFalsePositives.increment();
+                }
+            } else {
+                filterNegatives.increment();
+            }
+
+            removeExpired(segment, now);
+            segment.probation.put(id, new Entry(expiresAt, contentFingerprint));
+            while (segment.size() > segmentCapacity) {
+                Map<String, Entry> victims = segment.probation.isEmpty() ? segment.protectedIds : segment.probation;
+                Iterator<String> eldest = victims.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+            if (segment.filter != null) {
+                segment.filter.put(fingerprint);
+                if (segment.filter.isSaturated()) {
+                    rebuildFilter(segment);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Запоминает отпечаток содержимого известного идентификатора
+     *
+     * @return true, если содержимое изменилось
+     */
+    private boolean updateContent(Entry entry, long contentFingerprint) {
+        if (entry.contentFingerprint == contentFingerprint) {
+            return false;
+        }
+        entry.contentFingerprint = contentFingerprint;
+        contentChanges.increment();
+        return true;
+    }
+
+    /**
+     * Перестраивает фильтр сегмента по хранимым идентификаторам,
+     * убирая из него вытесненные и устаревшие
+     */
+    private static void rebuildFilter(Segment segment) {
+        segment.filter.clear();
+        for (String id : segment.probation.keySet()) {
+            segment.filter.put(FingerprintIndex.fingerprint(id));
+        }
+        for (String id : segment.protectedIds.keySet()) {
+            segment.filter.put(FingerprintIndex.fingerprint(id));
+        }
+    }
+
+    /**
+     * Переносит повторно встреченный идентификатор в защищенную часть,
+     * возвращая ее самый старый идентификатор в испытательную часть при переполнении
+     */
+    private void promote(Segment segment, String id, Entry entry) {
+        segment.protectedIds.put(id, entry);
+        while (segment.protectedIds.size() > protectedCapacity) {
+            Iterator<Map.Entry<String, Entry>> eldest = segment.protectedIds.entrySet().iterator();
+            Map.Entry<String, Entry> demoted = eldest.next();
+            eldest.remove();
+            segment.probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    /**
+     * Удаляет несколько самых давних идентификаторов с истекшим временем жизни,
+     * чтобы устаревшие записи не занимали место до вытеснения
+     */
+    private void removeExpired(Segment segment, long now) {
+        if (ttlNanos == 0) {
+            return;
+        }
+        for (Map<String, Entry> part : List.of(segment.probation, segment.protectedIds)) {
+            Iterator<Entry> eldest = part.values().iterator();
+            for (int i = 0; i < EXPIRY_SCAN && eldest.hasNext(); i++) {
+                if (!isExpired(eldest.next().expiresAt, now)) {
+                    break;
+                }
+                eldest.remove();
+                expirations.increment();
+            }
+        }
+    }
+
+    /**
+     * Проверяет, обработан ли идентификатор, не продлевая его время жизни
+     * и не меняя порядок вытеснения
+     *
+     * @param id идентификатор записи
+     * @return true, если идентификатор есть в наборе и его время жизни не истекло
+     */
+    public boolean contains(String id) {
+        Segment segment = segmentFor(id);
+        long now = clock.getAsLong();
+        long fingerprint = FingerprintIndex.fingerprint(id);
+        synchronized (segment) {
+            if (segment.filter != null && !segment.filter.mightContain(fingerprint)) {
+                return false;
+            }
+            Entry entry = segment.protectedIds.get(id);
+            if (entry == null) {
+                entry = segment.probation.get(id);
+            }
+            return entry != null && !isExpired(entry.expiresAt, now);
+        }
+    }
+
+    /**
+     * @return количество хранимых идентификаторов, включая еще не удаленные устаревшие
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return максимальное количество хранимых идентификаторов
+     */
+    public int getCapacity() {
+        return segmentCapacity * segments.length;
+    }
+
+    /**
+     * @return количество идентификаторов, вытесненных из-за превышения емкости
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return количество идентификаторов, удаленных по истечении времени жизни
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return количество известных идентификаторов, содержимое которых изменилось
+     */
+    public long getContentChanges() {
+        return contentChanges.sum();
+    }
+
+    /**
+     * @return объем памяти битовых массивов фильтров Блума в байтах
+     */
+    public long getFilterMemoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            if (segment.filter != null) {
+                bytes += segment.filter.getMemoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return количество новых идентификаторов, принятых по фильтру без поиска в картах
+     */
+    public long getFilterNegatives() {
+        return filterNegatives.sum();
+    }
+
+    /**
+     * @return наблюдаемая доля ложных срабатываний фильтра среди отсутствующих идентификаторов
+     */
+    public double getFilterFalsePositiveRate() {
+        long falsePositives = filterFalsePositives.sum();
+        long absent = falsePositives + filterNegatives.sum();
+        return absent == 0 ? 0 : (double) falsePositives / absent;
+    }
+
+    /**
+     * @return краткое описание состояния набора для вывода пользователю
+     */
+    public String describe() {
+        return "ids=" + size() + "/" + getCapacity() +
+               ", evicted=" + getEvictions() +
+               ", expired=" + getExpirations() +
+               ", changed=" + getContentChanges() +
+               ", filter=" + (getFilterMemoryBytes() + 1023) / 1024 + "KB" +
+               ", filterFpp=" + String.format(Locale.ROOT, "%.2f%%", 100 * getFilterFalsePositiveRate());
+    }
+}
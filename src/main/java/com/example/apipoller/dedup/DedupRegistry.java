@@ -0,0 +1,100 @@
+package com.example.apipoller.dedup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Реестр обработанных идентификаторов, разделенный на пространства имен
+ * (по одному на сервис). Идентификатор "занимается" одним атомарным вызовом
+ * {@link #tryClaim(String, String)}, поэтому одновременные опросы одного
+ * или разных сервисов не выдадут одну и ту же запись дважды.
+ * <p>
+ * Пространства имен хранятся в {@link ConcurrentHashMap}, а идентификаторы
+ * каждого пространства - в {@link DedupCache} с блокировками по сегментам.
+ * Общий для процесса реестр возвращает {@link #shared()}; через него
+ * повторы могут проверять и писатели.
+ */
+public class DedupRegistry {
+    private static final DedupRegistry SHARED = new DedupRegistry();
+
+    private final Function<String, DedupCache> cacheFactory;
+    private final ConcurrentHashMap<String, DedupCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Создает реестр, пространства имен которого настраиваются через {@link DedupCache#fromConfig(String)}
+     */
+    public DedupRegistry() {
+        this(DedupCache::fromConfig);
+    }
+
+    /**
+     * @param cacheFactory создает набор идентификаторов для пространства имен
+     */
+    public DedupRegistry(Function<String, DedupCache> cacheFactory) {
+        this.cacheFactory = cacheFactory;
+    }
+
+    /**
+     * @return общий для процесса реестр
+     */
+    public static DedupRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Атомарно проверяет и отмечает идентификатор как обработанный
+     *
+     * @param namespace пространство имен (обычно имя сервиса)
+     * @param id идентификатор записи
+     * @return true, если идентификатор занят этим вызовом и запись нужно обработать;
+     *         false, если он уже был занят
+     */
+    public boolean tryClaim(String namespace, String id) {
+        return getCache(namespace).add(id);
+    }
+
+    /**
+     * Атомарно проверяет и отмечает запись как обработанную с учетом ее содержимого
+     *
+     * @param namespace пространство имен (обычно имя сервиса)
+     * @param id идентификатор записи
+     * @param contentFingerprint отпечаток содержимого (см. {@link FingerprintIndex#contentFingerprint})
+     * @return true, если запись новая или ее содержимое изменилось и ее нужно обработать;
+     *         false, если такая же запись уже обработана
+     */
+    public boolean tryClaim(String namespace, String id, long contentFingerprint) {
+        return getCache(namespace).add(id, contentFingerprint);
+    }
+
+    /**
+     * Проверяет, занят ли идентификатор, не занимая его
+     *
+     * @param namespace пространство имен
+     * @param id идентификатор записи
+     * @return true, если идентификатор уже занят
+     */
+    public boolean isClaimed(String namespace, String id) {
+        DedupCache cache = caches.get(namespace);
+        return cache != null && cache.contains(id);
+    }
+
+    /**
+     * Возвращает набор идентификаторов пространства имен, создавая его при первом обращении
+     *
+     * @param namespace пространство имен
+     * @return набор идентификаторов
+     */
+    public DedupCache getCache(String namespace) {
+        return caches.computeIfAbsent(namespace, cacheFactory);
+    }
+
+    /**
+     * @return неизменяемая карта "пространство имен - набор идентификаторов", упорядоченная по имени
+     */
+    public Map<String, DedupCache> getCaches() {
+        return Collections.unmodifiableMap(new TreeMap<>(caches));
+    }
+}
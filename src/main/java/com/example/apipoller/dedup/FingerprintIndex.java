@@ -0,0 +1,312 @@
+package com.example.apipoller.dedup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Хранимый на диске индекс 64-битных отпечатков идентификаторов записей
+ * с отпечатком содержимого каждой записи.
+ * Индекс - хеш-таблица с открытой адресацией и линейным пробированием в файле,
+ * отображенном в память, поэтому при запуске он открывается без чтения
+ * и разбора содержимого, а каждое изменение сразу попадает в файл.
+ * <p>
+ * Формат файла: заголовок из магического числа, количества ячеек (степень двойки),
+ * количества отпечатков и меток записи (номеров пакетов журнала упреждающей записи
+ * и метки загрузки системы, см. {@link #getAppliedSequence()}), затем ячейки
+ * по 16 байт (отпечаток идентификатора и отпечаток содержимого); пустая ячейка
+ * содержит нулевой отпечаток.
+ * Когда таблица заполняется наполовину, она перестраивается в файл вдвое
+ * большего размера, который атомарно заменяет прежний.
+ * <p>
+ * Отпечатки могут совпасть у разных идентификаторов; при миллионе записей
+ * вероятность этого около 10^-7, что допустимо для устранения повторов.
+ */
+public class FingerprintIndex implements Closeable {
+    private static final Logger logger = Logger.getLogger(FingerprintIndex.class.getName());
+
+    static final int MAGIC = 0x44445833;
+    static final int HEADER_SIZE = 48;
+    private static final int APPLIED_OFFSET = 16;
+    private static final int COMMITTED_OFFSET = 24;
+    private static final int BOOT_OFFSET = 32;
+    static final int SLOT_SIZE = 16;
+    private static final int MIN_SLOTS = 1024;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // Ограничение размера отображения одним буфером (до 2 ГБ)
+    private static final int MAX_SLOTS = 1 << 26;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer table;
+    private int slots;
+    private int count;
+
+    /**
+     * Открывает индекс, создавая его при отсутствии.
+     * Поврежденный файл заменяется пустым индексом.
+     *
+     * @param path путь к файлу индекса
+     * @throws IOException при ошибке открытия файла
+     */
+    public FingerprintIndex(Path path) throws IOException {
+        this.path = path;
+        if (Files.exists(path)) {
+            try {
+                open(path);
+                return;
+            } catch (IOException e) {
+                logger.warning("Discarding corrupt dedup index " + path + ": " + e.getMessage());
+                close();
+            }
+        }
+        create(path, MIN_SLOTS);
+        open(path);
+    }
+
+    /**
+     * Вычисляет 64-битный отпечаток идентификатора (FNV-1a с финальным перемешиванием)
+     *
+     * @param id идентификатор записи
+     * @return ненулевой отпечаток
+     */
+    public static long fingerprint(String id) {
+        long hash = FNV_OFFSET;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return finish(hash);
+    }
+
+    /**
+     * Вычисляет 64-битный отпечаток содержимого записи. Поля обходятся в порядке
+     * имен, поэтому отпечаток не зависит от порядка полей в карте.
+     *
+     * @param fields поля записи (см. {@link com.example.apipoller.model.ApiRecord#toMap()})
+     * @return ненулевой отпечаток
+     */
+    public static long contentFingerprint(Map<String, ?> fields) {
+        long hash = FNV_OFFSET;
+        for (Map.Entry<String, ?> field : new TreeMap<>(fields).entrySet()) {
+            hash = mix(hash, field.getKey());
+            hash = mix(hash, String.valueOf(field.getValue()));
+        }
+        return finish(hash);
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Разделитель, чтобы ("ab", "c") и ("a", "bc") давали разные отпечатки
+        hash ^= 0xffff;
+        return hash * FNV_PRIME;
+    }
+
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        // 0 обозначает пустую ячейку
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static void create(Path path, int slots) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) SLOT_SIZE * slots);
+            buffer.putInt(0, MAGIC).putInt(4, slots).putInt(8, 0);
+            buffer.force();
+        }
+    }
+
+    private void open(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Truncated header");
+        }
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        int size = table.getInt(4);
+        if (table.getInt(0) != MAGIC || Integer.bitCount(size) != 1 ||
+            channel.size() != HEADER_SIZE + (long) SLOT_SIZE * size) {
+            throw new IOException("Invalid header");
+        }
+        slots = size;
+        count = table.getInt(8);
+    }
+
+    /**
+     * @return смещение ячейки с отпечатком или пустой ячейки, в которую его следует записать
+     */
+    private static int probe(MappedByteBuffer buffer, int slots, long fingerprint) {
+        int mask = slots - 1;
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        while (true) {
+            int offset = HEADER_SIZE + SLOT_SIZE * slot;
+            long stored = buffer.getLong(offset);
+            if (stored == 0 || stored == fingerprint) {
+                return offset;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @param fingerprint отпечаток идентификатора
+     * @return true, если отпечаток есть в индексе
+     */
+    public synchronized boolean contains(long fingerprint) {
+        return table.getLong(probe(table, slots, fingerprint)) != 0;
+    }
+
+    /**
+     * @param fingerprint отпечаток идентификатора
+     * @return отпечаток содержимого, сохраненный для идентификатора, или 0, если его нет в индексе
+     */
+    public synchronized long getContentFingerprint(long fingerprint) {
+        int offset = probe(table, slots, fingerprint);
+        return table.getLong(offset) != 0 ? table.getLong(offset + 8) : 0;
+    }
+
+    /**
+     * Добавляет отпечаток в индекс или обновляет отпечаток содержимого
+     *
+     * @param fingerprint отпечаток идентификатора
+     * @param contentFingerprint отпечаток содержимого записи
+     * @return true, если отпечатка еще не было в индексе или содержимое изменилось
+     * @throws IOException при ошибке расширения файла индекса
+     */
+    public synchronized boolean put(long fingerprint, long contentFingerprint) throws IOException {
+        int offset = probe(table, slots, fingerprint);
+        if (table.getLong(offset) != 0) {
+            if (table.getLong(offset + 8) == contentFingerprint) {
+                return false;
+            }
+            table.putLong(offset + 8, contentFingerprint);
+            return true;
+        }
+        if (2L * (count + 1) > slots) {
+            grow();
+            offset = probe(table, slots, fingerprint);
+        }
+        // Отпечаток идентификатора пишется последним: ячейка становится занятой уже с содержимым
+        table.putLong(offset + 8, contentFingerprint);
+        table.putLong(offset, fingerprint);
+        table.putInt(8, ++count);
+        return true;
+    }
+
+    /**
+     * Перестраивает таблицу в файл вдвое большего размера и атомарно заменяет им прежний
+     */
+    private void grow() throws IOException {
+        if (slots >= MAX_SLOTS) {
+            throw new IOException("Dedup index " + path + " is full (" + count + " fingerprints)");
+        }
+        int grown = slots * 2;
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        create(temporary, grown);
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_WRITE, 0, file.size());
+            for (int slot = 0; slot < slots; slot++) {
+                int offset = HEADER_SIZE + SLOT_SIZE * slot;
+                long fingerprint = table.getLong(offset);
+                if (fingerprint != 0) {
+                    int target = probe(buffer, grown, fingerprint);
+                    buffer.putLong(target, fingerprint);
+                    buffer.putLong(target + 8, table.getLong(offset + 8));
+                }
+            }
+            buffer.putInt(8, count);
+            for (int offset = APPLIED_OFFSET; offset < HEADER_SIZE; offset += 8) {
+                buffer.putLong(offset, table.getLong(offset));
+            }
+            buffer.force();
+        }
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open(path);
+    }
+
+    /**
+     * @return количество отпечатков в индексе
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Номер последнего пакета журнала упреждающей записи, переданного выводу.
+     * Обновляется без сброса на устройство, поэтому после сбоя питания может
+     * опережать вывод; доверять ему можно только вместе с {@link #getBootMarker()}.
+     *
+     * @return номер пакета или 0
+     */
+    public synchronized long getAppliedSequence() {
+        return table.getLong(APPLIED_OFFSET);
+    }
+
+    public synchronized void setAppliedSequence(long sequence) {
+        table.putLong(APPLIED_OFFSET, sequence);
+    }
+
+    /**
+     * @return номер последнего пакета, вывод которого сброшен на устройство вместе с индексом, или 0
+     */
+    public synchronized long getCommittedSequence() {
+        return table.getLong(COMMITTED_OFFSET);
+    }
+
+    public synchronized void setCommittedSequence(long sequence) {
+        table.putLong(COMMITTED_OFFSET, sequence);
+    }
+
+    /**
+     * @return метка загрузки системы, в которой индекс изменялся последним, или 0
+     */
+    public synchronized long getBootMarker() {
+        return table.getLong(BOOT_OFFSET);
+    }
+
+    public synchronized void setBootMarker(long marker) {
+        table.putLong(BOOT_OFFSET, marker);
+    }
+
+    /**
+     * @return путь к файлу индекса
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Сбрасывает изменения индекса на устройство
+     */
+    public synchronized void force() {
+        table.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (table != null) {
+            table.force();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.apipoller.metrics;
+
+import com.example.apipoller.api.ApiService;
+import com.example.apipoller.api.RateLimitStatus;
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.resilience.CallNotPermittedException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Обертка над ApiService, собирающая {@link ServiceMetrics} по каждому опросу.
+ * Тайм-аутом считается любая ошибка, в цепочке причин которой есть
+ * {@link InterruptedIOException}: тайм-ауты соединения и сокета,
+ * прерывание запроса по общему сроку и отмена по сроку отсека.
+ */
+public class MeteredApiService implements ApiService {
+    private final ApiService delegate;
+    private final ServiceMetrics metrics;
+
+    public MeteredApiService(ApiService delegate, ServiceMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getServiceName() {
+        return delegate.getServiceName();
+    }
+
+    @Override
+    public List<ApiRecord> fetchData() throws IOException {
+        long started = System.nanoTime();
+        try {
+            List<ApiRecord> records = delegate.fetchData();
+            recordSuccess(started, records);
+            return records;
+        } catch (IOException | RuntimeException e) {
+            recordError(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<ApiRecord>> fetchDataAsync(Executor executor) {
+        long started = System.nanoTime();
+        CompletableFuture<List<ApiRecord>> result = new CompletableFuture<>();
+        delegate.fetchDataAsync(executor).whenComplete((records, error) -> {
+            if (error == null) {
+                recordSuccess(started, records);
+                result.complete(records);
+            } else {
+                recordError(error);
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    private void recordSuccess(long started, List<ApiRecord> records) {
+        metrics.recordSuccess(System.nanoTime() - started, records == null ? 0 : records.size());
+    }
+
+    private void recordError(Throwable error) {
+        if (error instanceof CallNotPermittedException) {
+            metrics.recordRejected();
+        } else if (isTimeout(error)) {
+            metrics.recordTimeout();
+        } else {
+            metrics.recordFailure();
+        }
+    }
+
+    @Override
+    public RateLimitStatus getRateLimitStatus() {
+        return delegate.getRateLimitStatus();
+    }
+
+    @Override
+    public DedupCache getDedupCache() {
+        return delegate.getDedupCache();
+    }
+
+    /**
+     * Проверяет, вызвана ли ошибка тайм-аутом или прерыванием запроса
+     * @param error ошибка
+     * @return true, если в цепочке причин есть InterruptedIOException
+     */
+    static boolean isTimeout(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedIOException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
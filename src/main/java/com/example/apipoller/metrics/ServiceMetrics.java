@@ -0,0 +1,135 @@
+package com.example.apipoller.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики опросов одного сервиса: успешные и неудачные опросы, тайм-ауты,
+ * отклоненные слоем отказоустойчивости вызовы, сброшенные при перегрузке опросы, полученные записи,
+ * а также задержки последних успешных опросов для оценки перцентилей.
+ */
+public class ServiceMetrics {
+    private static final int LATENCY_SAMPLES = 256;
+
+    private final String serviceName;
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount = 0;
+    private int latencyIndex = 0;
+
+    public ServiceMetrics(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Регистрирует успешный опрос
+     * @param latencyNanos длительность опроса в наносекундах
+     * @param newRecords количество полученных записей
+     */
+    public void recordSuccess(long latencyNanos, int newRecords) {
+        successes.increment();
+        records.add(Math.max(0, newRecords));
+        recordLatency(latencyNanos);
+    }
+
+    /**
+     * Регистрирует опрос, завершившийся ошибкой
+     */
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * Регистрирует опрос, прерванный по тайм-ауту
+     */
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * Регистрирует вызов, не допущенный к сервису слоем отказоустойчивости
+     */
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * Регистрирует опрос, пропущенный планировщиком при перегрузке
+     */
+    public void recordShed() {
+        shed.increment();
+    }
+
+    /**
+     * Регистрирует длительность обращения к сервису
+     * @param latencyNanos длительность в наносекундах
+     */
+    public synchronized void recordLatency(long latencyNanos) {
+        latencies[latencyIndex] = latencyNanos;
+        latencyIndex = (latencyIndex + 1) % LATENCY_SAMPLES;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+    }
+
+    /**
+     * Оценивает перцентиль задержки по последним успешным опросам
+     * @param percentile перцентиль от 0 до 100
+     * @return задержка в наносекундах или -1, если данных нет
+     */
+    public synchronized long latencyPercentileNanos(double percentile) {
+        if (latencyCount == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * latencyCount) - 1;
+        return sorted[Math.max(0, Math.min(latencyCount - 1, index))];
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getShed() {
+        return shed.sum();
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * @return краткое описание счетчиков для вывода пользователю
+     */
+    public String describe() {
+        long p95 = latencyPercentileNanos(95);
+        return "ok=" + getSuccesses() +
+               ", failed=" + getFailures() +
+               ", timeouts=" + getTimeouts() +
+               ", rejected=" + getRejected() +
+               ", shed=" + getShed() +
+               ", records=" + getRecords() +
+               ", p95=" + (p95 < 0 ? "n/a" : TimeUnit.NANOSECONDS.toMillis(p95) + "ms");
+    }
+}
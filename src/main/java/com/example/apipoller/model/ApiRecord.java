@@ -1,5 +1,6 @@
 package com.example.apipoller.model;
 
+import java.time.LocalDate;
 import java.util.Map;
 
 /**
@@ -14,6 +15,18 @@ public interface ApiRecord {
      */
     String getId();
     
+    /**
+     * Возвращает тип записи (совпадает с именем сервиса-источника)
+     * @return тип записи, например "news"
+     */
+    String getType();
+    
+    /**
+     * Возвращает дату события записи в UTC, по которой вывод разбивается на разделы
+     * @return дата события или null, если ее нельзя определить
+     */
+    LocalDate getEventDate();
+    
     /**
      * Преобразует запись в карту для сериализации
      * @return карта с полями записи
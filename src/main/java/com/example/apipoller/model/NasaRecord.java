@@ -1,5 +1,7 @@
 package com.example.apipoller.model;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -33,10 +35,27 @@ public class NasaRecord implements ApiRecord {
         return id;
     }
 
+    @Override
+    public String getType() {
+        return "nasa";
+    }
+
+    /**
+     * @return дата публикации снимка или null, если она не указана или не распознана
+     */
+    @Override
+    public LocalDate getEventDate() {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     @Override
     public Map<String, Object> toMap() {
         Map<String, Object> map = new HashMap<>();
-        map.put("type", "nasa");
+        map.put("type", getType());
         map.put("id", id);
         map.put("title", title);
         map.put("date", date);
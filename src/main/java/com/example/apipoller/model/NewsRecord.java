@@ -1,5 +1,9 @@
 package com.example.apipoller.model;
 
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -30,10 +34,31 @@ public class NewsRecord implements ApiRecord {
         return url;
     }
 
+    @Override
+    public String getType() {
+        return "news";
+    }
+
+    /**
+     * @return дата публикации в UTC или null, если она не указана или не распознана
+     */
+    @Override
+    public LocalDate getEventDate() {
+        try {
+            return OffsetDateTime.parse(publishedAt).atZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+        } catch (DateTimeParseException e) {
+            try {
+                return publishedAt.length() >= 10 ? LocalDate.parse(publishedAt.substring(0, 10)) : null;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
     @Override
     public Map<String, Object> toMap() {
         Map<String, Object> map = new HashMap<>();
-        map.put("type", "news");
+        map.put("type", getType());
         map.put("title", title);
         map.put("description", description);
         map.put("url", url);
@@ -1,5 +1,8 @@
 package com.example.apipoller.model;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -30,10 +33,23 @@ public class WeatherRecord implements ApiRecord {
         return city + "_" + timestamp;
     }
 
+    @Override
+    public String getType() {
+        return "weather";
+    }
+
+    /**
+     * @return дата измерения в UTC (время измерения задано в секундах Unix)
+     */
+    @Override
+    public LocalDate getEventDate() {
+        return LocalDate.ofInstant(Instant.ofEpochSecond(timestamp), ZoneOffset.UTC);
+    }
+
     @Override
     public Map<String, Object> toMap() {
         Map<String, Object> map = new HashMap<>();
-        map.put("type", "weather");
+        map.put("type", getType());
         map.put("city", city);
         map.put("temperature", temperature);
         map.put("windSpeed", windSpeed);
@@ -0,0 +1,315 @@
+package com.example.apipoller.resilience;
+
+import com.example.apipoller.api.RequestContext;
+import com.example.apipoller.config.AppConfig;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Изолированный отсек (bulkhead) для обращений к одному сервису.
+ * У каждого отсека свой исполнитель, свой лимит одновременных вызовов и своя
+ * ограниченная очередь ожидания, поэтому зависшие запросы одного сервиса
+ * занимают только его собственные ресурсы. Вызов, не завершившийся к сроку,
+ * отменяется: его HTTP-запросы прерываются (см. {@link RequestContext}),
+ * а выполняющий его поток получает прерывание.
+ * <p>
+ * {@link #submit(Callable, long, TimeUnit)} выполняет вызов асинхронно: ожидание
+ * места и результата происходит на исполнителе отсека, а не в вызывающем потоке.
+ */
+public class Bulkhead {
+    private static final Logger logger = Logger.getLogger(Bulkhead.class.getName());
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Semaphore permits;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final ExecutorService executor;
+
+    /**
+     * @param name имя отсека (сервиса)
+     * @param maxConcurrent максимальное число одновременно выполняемых вызовов
+     * @param maxQueued максимальное число вызовов, ожидающих свободного места
+     * @param executor исполнитель, на котором выполняются вызовы этого отсека
+     */
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, ExecutorService executor) {
+        if (maxConcurrent <= 0 || maxQueued < 0) {
+            throw new IllegalArgumentException("Invalid bulkhead limits for " + name);
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.executor = executor;
+    }
+
+    /**
+     * Создает отсек с лимитами из настроек BULKHEAD_MAX_CONCURRENT и BULKHEAD_MAX_QUEUED
+     * (в том числе с префиксом сервиса)
+     * 
+     * @param serviceName имя сервиса
+     * @param executor исполнитель для вызовов сервиса
+     * @return отсек для сервиса
+     */
+    public static Bulkhead fromConfig(String serviceName, ExecutorService executor) {
+        return new Bulkhead(serviceName, configuredMaxConcurrent(serviceName), configuredMaxQueued(serviceName), executor);
+    }
+
+    /**
+     * Возвращает число потоков, достаточное исполнителю отсека с лимитами из настроек:
+     * по потоку на каждый выполняемый вызов и на ожидание каждого допущенного
+     * асинхронного вызова. Исполнитель большего размера отсеку не нужен.
+     * 
+     * @param serviceName имя сервиса
+     * @return максимальное число потоков исполнителя отсека
+     */
+    public static int configuredMaxThreads(String serviceName) {
+        int maxConcurrent = configuredMaxConcurrent(serviceName);
+        return maxConcurrent + maxConcurrent + configuredMaxQueued(serviceName);
+    }
+
+    private static int configuredMaxConcurrent(String serviceName) {
+        return Math.max(1, AppConfig.getServiceIntSetting(serviceName, "BULKHEAD_MAX_CONCURRENT", 1));
+    }
+
+    private static int configuredMaxQueued(String serviceName) {
+        return Math.max(0, AppConfig.getServiceIntSetting(serviceName, "BULKHEAD_MAX_QUEUED", 1));
+    }
+
+    /**
+     * Выполняет вызов в отсеке с ограничением по времени.
+     * Время ожидания свободного места входит в срок вызова.
+     * 
+     * @param call вызов
+     * @param timeout срок выполнения
+     * @param unit единица измерения срока
+     * @return результат вызова
+     * @throws CallNotPermittedException если отсек и его очередь заполнены
+     * @throws DeadlineExceededException если вызов не завершился к сроку
+     * @throws IOException если вызов завершился ошибкой ввода-вывода
+     */
+    public <T> T call(Callable<T> call, long timeout, TimeUnit unit) throws IOException {
+        long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        admit(unit.toNanos(timeout));
+        return callAdmitted(call, deadlineNanos, unit.toNanos(timeout));
+    }
+
+    /**
+     * Асинхронно выполняет вызов в отсеке с ограничением по времени.
+     * Ожидание свободного места и результата происходит на исполнителе отсека,
+     * поэтому вызывающий поток освобождается сразу.
+     * 
+     * @param call вызов
+     * @param timeout срок выполнения, включая ожидание места
+     * @param unit единица измерения срока
+     * @return future результата; завершается {@link CallNotPermittedException}, если отсек
+     *         и его очередь заполнены, и {@link DeadlineExceededException}, если вызов не завершился к сроку
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call, long timeout, TimeUnit unit) {
+        long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            admit(unit.toNanos(timeout));
+        } catch (CallNotPermittedException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(callAdmitted(call, deadlineNanos, unit.toNanos(timeout)));
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                } catch (Error e) {
+                    result.completeExceptionally(e);
+                    throw e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.decrementAndGet();
+            result.completeExceptionally(new CallNotPermittedException(
+                "Bulkhead executor for " + name + " rejected the call", unit.toNanos(timeout)));
+        }
+        return result;
+    }
+
+    /**
+     * Занимает место в отсеке или его очереди
+     * 
+     * @param retryAfterNanos рекомендуемая задержка повтора при отказе
+     * @throws CallNotPermittedException если отсек и его очередь заполнены
+     */
+    private void admit(long retryAfterNanos) throws CallNotPermittedException {
+        if (admitted.incrementAndGet() > maxConcurrent + maxQueued) {
+            admitted.decrementAndGet();
+            throw new CallNotPermittedException("Bulkhead for " + name + " is full", retryAfterNanos);
+        }
+    }
+
+    /**
+     * Выполняет вызов, уже занявший место в отсеке или его очереди
+     */
+    private <T> T callAdmitted(Callable<T> call, long deadlineNanos, long timeoutNanos) throws IOException {
+        boolean submitted = false;
+        try {
+            if (!permits.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new DeadlineExceededException("Timed out waiting for a free slot in bulkhead for " + name);
+            }
+            
+            SlotTask<T> future = new SlotTask<>(call);
+            try {
+                executor.execute(future);
+                submitted = true;
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw new CallNotPermittedException("Bulkhead executor for " + name + " rejected the call", 
+                                                    timeoutNanos);
+            }
+            
+            return await(future, deadlineNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Interrupted while waiting for bulkhead " + name);
+        } finally {
+            if (!submitted) {
+                admitted.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Задача, занимающая место в отсеке. Место освобождается после фактического
+     * завершения вызова, даже если вызывающий поток уже перестал ждать результата;
+     * если задача отменена до начала выполнения, место освобождается сразу.
+     * Вызов выполняется в собственном {@link RequestContext}: отмена задачи прерывает
+     * его HTTP-запросы, поэтому поток, заблокированный на чтении сокета, и место
+     * в отсеке освобождаются сразу, а не по тайм-ауту сокета.
+     */
+    private class SlotTask<T> extends FutureTask<T> {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final AtomicBoolean started;
+        private final RequestContext context;
+
+        SlotTask(Callable<T> call) {
+            this(call, new AtomicBoolean(), new RequestContext());
+        }
+
+        private SlotTask(Callable<T> call, AtomicBoolean started, RequestContext context) {
+            // Место освобождается до публикации результата, чтобы ожидающий поток
+            // мог сразу выполнить следующий вызов
+            super(() -> {
+                started.set(true);
+                try {
+                    return context.call(call);
+                } finally {
+                    releaseSlot();
+                }
+            });
+            this.started = started;
+            this.context = context;
+            // Дублирующая попытка запроса занимает отдельное место в отсеке
+            context.addHedgeGuard(new RequestContext.HedgeGuard() {
+                @Override
+                public boolean tryAcquire() {
+                    try {
+                        // Ожидание с нулевым сроком не обходит очередь справедливого семафора
+                        return permits.tryAcquire(0, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+
+                @Override
+                public void release() {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            if (claimed.compareAndSet(false, true)) {
+                super.run();
+                if (!started.get()) {
+                    // Задача отменена между захватом и запуском
+                    releaseSlot();
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            context.cancel();
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() && claimed.compareAndSet(false, true)) {
+                releaseSlot();
+            }
+        }
+    }
+
+    private void releaseSlot() {
+        permits.release();
+        admitted.decrementAndGet();
+    }
+
+    private <T> T await(Future<T> future, long deadlineNanos) throws IOException, InterruptedException {
+        try {
+            return future.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warning("Call to " + name + " exceeded its deadline and was cancelled");
+            throw new DeadlineExceededException("Call to " + name + " exceeded its deadline");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (CancellationException e) {
+            throw new DeadlineExceededException("Call to " + name + " was cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Call to " + name + " failed: " + cause, cause);
+        }
+    }
+
+    /**
+     * @return количество вызовов, выполняемых или ожидающих в отсеке
+     */
+    public int getAdmittedCalls() {
+        return admitted.get();
+    }
+
+    /**
+     * Останавливает исполнитель отсека, прерывая выполняющиеся вызовы
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.apipoller.resilience;
+
+import com.example.apipoller.api.ApiService;
+import com.example.apipoller.api.RateLimitStatus;
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обертка над ApiService, выполняющая каждый запрос в отсеке сервиса
+ * с жестким сроком. Если запрос не уложился в срок, он отменяется,
+ * а вызывающий поток сразу освобождается. При асинхронном запросе
+ * ответ ожидается на исполнителе отсека, а не в вызывающем потоке.
+ */
+public class BulkheadApiService implements ApiService {
+    private final ApiService delegate;
+    private final Bulkhead bulkhead;
+    private final long deadlineMillis;
+
+    public BulkheadApiService(ApiService delegate, Bulkhead bulkhead, long deadline, TimeUnit unit) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+        this.deadlineMillis = unit.toMillis(deadline);
+    }
+
+    /**
+     * Возвращает срок выполнения запроса из настройки FETCH_DEADLINE_SECONDS
+     * (в том числе с префиксом сервиса), по умолчанию 30 секунд
+     * 
+     * @param serviceName имя сервиса
+     * @return срок в секундах
+     */
+    public static int configuredDeadlineSeconds(String serviceName) {
+        return Math.max(1, AppConfig.getServiceIntSetting(serviceName, "FETCH_DEADLINE_SECONDS", 30));
+    }
+
+    @Override
+    public String getServiceName() {
+        return delegate.getServiceName();
+    }
+
+    @Override
+    public List<ApiRecord> fetchData() throws IOException {
+        return bulkhead.call(delegate::fetchData, deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Передает запрос в отсек сервиса; переданный исполнитель не используется
+     */
+    @Override
+    public CompletableFuture<List<ApiRecord>> fetchDataAsync(Executor executor) {
+        return bulkhead.submit(delegate::fetchData, deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public RateLimitStatus getRateLimitStatus() {
+        return delegate.getRateLimitStatus();
+    }
+
+    @Override
+    public DedupCache getDedupCache() {
+        return delegate.getDedupCache();
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+}
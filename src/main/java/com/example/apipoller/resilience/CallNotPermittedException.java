@@ -0,0 +1,24 @@
+package com.example.apipoller.resilience;
+
+import java.io.IOException;
+
+/**
+ * Исключение, означающее, что обращение к API не выполнялось,
+ * потому что его запретил слой отказоустойчивости (лимит запросов и т.п.).
+ * Содержит время, через которое имеет смысл повторить попытку.
+ */
+public class CallNotPermittedException extends IOException {
+    private final long retryAfterNanos;
+
+    public CallNotPermittedException(String message, long retryAfterNanos) {
+        super(message);
+        this.retryAfterNanos = Math.max(0, retryAfterNanos);
+    }
+
+    /**
+     * @return задержка до следующей разрешенной попытки в наносекундах
+     */
+    public long getRetryAfterNanos() {
+        return retryAfterNanos;
+    }
+}
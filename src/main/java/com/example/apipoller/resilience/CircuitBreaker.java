@@ -0,0 +1,195 @@
+package com.example.apipoller.resilience;
+
+import com.example.apipoller.config.AppConfig;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Автоматический выключатель (circuit breaker) для одного сервиса.
+ * <ul>
+ *     <li>CLOSED - вызовы разрешены, результаты последних windowSize вызовов учитываются;
+ *     при доле ошибок не ниже порога выключатель размыкается;</li>
+ *     <li>OPEN - вызовы запрещены до окончания паузы;</li>
+ *     <li>HALF_OPEN - разрешен один пробный вызов: успех замыкает выключатель,
+ *     ошибка снова размыкает его.</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+    private static final Logger logger = Logger.getLogger(CircuitBreaker.class.getName());
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRatePercent;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final boolean[] outcomes;
+
+    private State state = State.CLOSED;
+    private int nextIndex = 0;
+    private int recordedCalls = 0;
+    private int failedCalls = 0;
+    private long openedAtNanos;
+    private boolean trialInFlight = false;
+
+    /**
+     * @param name имя сервиса для логирования
+     * @param failureRatePercent доля ошибок в процентах, при которой выключатель размыкается
+     * @param windowSize количество последних вызовов, по которым считается доля ошибок
+     * @param minimumCalls минимальное количество вызовов в окне для принятия решения
+     * @param openDuration длительность паузы в разомкнутом состоянии
+     * @param unit единица измерения паузы
+     */
+    public CircuitBreaker(String name, int failureRatePercent, int windowSize, int minimumCalls,
+                          long openDuration, TimeUnit unit) {
+        this(name, failureRatePercent, windowSize, minimumCalls, openDuration, unit, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureRatePercent, int windowSize, int minimumCalls,
+                   long openDuration, TimeUnit unit, LongSupplier clock) {
+        if (failureRatePercent <= 0 || failureRatePercent > 100 || windowSize <= 0 || openDuration <= 0) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings for " + name);
+        }
+        this.name = name;
+        this.failureRatePercent = failureRatePercent;
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.openNanos = unit.toNanos(openDuration);
+        this.clock = clock;
+    }
+
+    /**
+     * Создает выключатель с параметрами из настроек CIRCUIT_FAILURE_RATE_PERCENT,
+     * CIRCUIT_WINDOW_SIZE, CIRCUIT_MINIMUM_CALLS и CIRCUIT_OPEN_SECONDS
+     * (в том числе с префиксом сервиса)
+     * 
+     * @param serviceName имя сервиса
+     * @return выключатель для сервиса
+     */
+    public static CircuitBreaker fromConfig(String serviceName) {
+        return new CircuitBreaker(serviceName,
+            AppConfig.getServiceIntSetting(serviceName, "CIRCUIT_FAILURE_RATE_PERCENT", 50),
+            AppConfig.getServiceIntSetting(serviceName, "CIRCUIT_WINDOW_SIZE", 10),
+            AppConfig.getServiceIntSetting(serviceName, "CIRCUIT_MINIMUM_CALLS", 5),
+            AppConfig.getServiceIntSetting(serviceName, "CIRCUIT_OPEN_SECONDS", 60),
+            TimeUnit.SECONDS);
+    }
+
+    /**
+     * Запрашивает разрешение на вызов
+     * @return 0, если вызов разрешен, иначе время в наносекундах до следующей попытки
+     */
+    public synchronized long tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return 0;
+            case OPEN:
+                long remaining = openedAtNanos + openNanos - clock.getAsLong();
+                if (remaining > 0) {
+                    return remaining;
+                }
+                transitionTo(State.HALF_OPEN);
+                trialInFlight = true;
+                return 0;
+            case HALF_OPEN:
+            default:
+                if (trialInFlight) {
+                    return openNanos;
+                }
+                trialInFlight = true;
+                return 0;
+        }
+    }
+
+    /**
+     * Регистрирует успешный вызов
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * Регистрирует неудачный вызов
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        record(true);
+        if (recordedCalls >= minimumCalls && failedCalls * 100 >= failureRatePercent * recordedCalls) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Возвращает разрешение, если вызов не состоялся по причинам, не связанным с сервисом
+     */
+    public synchronized void releasePermission() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return доля ошибок в текущем окне в процентах
+     */
+    public synchronized int getFailureRatePercent() {
+        return recordedCalls == 0 ? 0 : failedCalls * 100 / recordedCalls;
+    }
+
+    /**
+     * @return краткое описание состояния для вывода пользователю
+     */
+    public synchronized String describe() {
+        StringBuilder sb = new StringBuilder(state.name())
+            .append(" (failure rate ").append(getFailureRatePercent()).append("% of ")
+            .append(recordedCalls).append(" calls");
+        if (state == State.OPEN) {
+            long remaining = Math.max(0, openedAtNanos + openNanos - clock.getAsLong());
+            sb.append(", retry in ").append(TimeUnit.NANOSECONDS.toSeconds(remaining)).append("s");
+        }
+        return sb.append(')').toString();
+    }
+
+    private void record(boolean failure) {
+        if (recordedCalls == outcomes.length) {
+            if (outcomes[nextIndex]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        outcomes[nextIndex] = failure;
+        if (failure) {
+            failedCalls++;
+        }
+        nextIndex = (nextIndex + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State newState) {
+        logger.warning("Circuit breaker for " + name + " changed state: " + state + " -> " + newState);
+        state = newState;
+        trialInFlight = false;
+        if (newState == State.OPEN) {
+            openedAtNanos = clock.getAsLong();
+        } else if (newState == State.CLOSED) {
+            nextIndex = 0;
+            recordedCalls = 0;
+            failedCalls = 0;
+        }
+    }
+}
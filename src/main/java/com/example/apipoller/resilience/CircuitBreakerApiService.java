@@ -0,0 +1,107 @@
+package com.example.apipoller.resilience;
+
+import com.example.apipoller.api.ApiResponseException;
+import com.example.apipoller.api.ApiService;
+import com.example.apipoller.api.RateLimitStatus;
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обертка над ApiService, пропускающая вызовы через {@link CircuitBreaker}.
+ * Пока выключатель разомкнут, обращения к API не выполняются и сразу
+ * завершаются {@link CallNotPermittedException}.
+ * Ошибками сервиса считаются ошибки ввода-вывода и ответы 5xx;
+ * ответы 4xx (в том числе 429) говорят о проблеме запроса или квоты и не учитываются.
+ */
+public class CircuitBreakerApiService implements ApiService {
+    private final ApiService delegate;
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerApiService(ApiService delegate, CircuitBreaker circuitBreaker) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public String getServiceName() {
+        return delegate.getServiceName();
+    }
+
+    @Override
+    public List<ApiRecord> fetchData() throws IOException {
+        acquirePermission();
+        try {
+            List<ApiRecord> records = delegate.fetchData();
+            circuitBreaker.onSuccess();
+            return records;
+        } catch (IOException | RuntimeException e) {
+            recordError(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<ApiRecord>> fetchDataAsync(Executor executor) {
+        CompletableFuture<List<ApiRecord>> result = new CompletableFuture<>();
+        try {
+            acquirePermission();
+        } catch (CallNotPermittedException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        
+        delegate.fetchDataAsync(executor).whenComplete((records, error) -> {
+            if (error == null) {
+                circuitBreaker.onSuccess();
+                result.complete(records);
+            } else {
+                recordError(error);
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    private void acquirePermission() throws CallNotPermittedException {
+        long waitNanos = circuitBreaker.tryAcquirePermission();
+        if (waitNanos > 0) {
+            throw new CallNotPermittedException("Circuit breaker for " + getServiceName() + " is " + 
+                                                circuitBreaker.getState() + ", next attempt in " + 
+                                                TimeUnit.NANOSECONDS.toSeconds(waitNanos) + " s", waitNanos);
+        }
+    }
+
+    /**
+     * Учитывает ошибку вызова в выключателе
+     */
+    private void recordError(Throwable error) {
+        if (error instanceof CallNotPermittedException) {
+            // Вызов отклонен внутренним слоем и до сервиса не дошел
+            circuitBreaker.releasePermission();
+        } else if (error instanceof ApiResponseException && ((ApiResponseException) error).getStatusCode() < 500) {
+            circuitBreaker.releasePermission();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    @Override
+    public RateLimitStatus getRateLimitStatus() {
+        return delegate.getRateLimitStatus();
+    }
+
+    @Override
+    public DedupCache getDedupCache() {
+        return delegate.getDedupCache();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.apipoller.resilience;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Исключение, означающее, что обращение к API не уложилось в отведенное время
+ * и было прервано. Наследует {@link SocketTimeoutException}, поэтому обрабатывается
+ * вызывающим кодом так же, как тайм-аут сокета.
+ */
+public class DeadlineExceededException extends SocketTimeoutException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.apipoller.resilience;
+
+import com.example.apipoller.api.ApiResponseException;
+import com.example.apipoller.api.ApiService;
+import com.example.apipoller.api.RateLimitStatus;
+import com.example.apipoller.api.RequestContext;
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Обертка над ApiService, ограничивающая частоту запросов ведром токенов.
+ * Если токена нет, запрос не выполняется, а выбрасывается {@link CallNotPermittedException}
+ * с временем до следующей попытки. Ответы 429 и заголовки Retry-After / X-RateLimit-*
+ * приостанавливают выдачу токенов или уменьшают их запас до остатка квоты на сервере.
+ * Дублирующие попытки запроса (см. {@link com.example.apipoller.api.HedgingPolicy})
+ * отправляются, только если для них тоже есть токен.
+ */
+public class RateLimitedApiService implements ApiService {
+    private static final Logger logger = Logger.getLogger(RateLimitedApiService.class.getName());
+    
+    // Квоты по умолчанию: {запросов, период в секундах}
+    private static final Map<String, int[]> DEFAULT_QUOTAS = Map.of(
+        "nasa", new int[]{30, 3600},     // DEMO_KEY: 30 запросов в час
+        "news", new int[]{100, 86400},   // бесплатный тариф NewsAPI: 100 запросов в сутки
+        "weather", new int[]{60, 60}     // бесплатный тариф OpenWeatherMap: 60 запросов в минуту
+    );
+    private static final long DEFAULT_RETRY_AFTER_MS = 60_000;
+
+    private final ApiService delegate;
+    private final TokenBucket bucket;
+
+    public RateLimitedApiService(ApiService delegate, TokenBucket bucket) {
+        this.delegate = delegate;
+        this.bucket = bucket;
+    }
+
+    /**
+     * Оборачивает сервис ограничителем с квотой из настроек
+     * RATE_LIMIT_REQUESTS, RATE_LIMIT_PERIOD_SECONDS и RATE_LIMIT_BURST
+     * (в том числе с префиксом сервиса, например NASA_RATE_LIMIT_REQUESTS).
+     * 
+     * @param service исходный сервис
+     * @return сервис с ограничением частоты или исходный сервис, если квота не задана
+     */
+    public static ApiService withConfiguredQuota(ApiService service) {
+        String name = service.getServiceName();
+        int[] defaults = DEFAULT_QUOTAS.getOrDefault(name, new int[]{0, 0});
+        int requests = AppConfig.getServiceIntSetting(name, "RATE_LIMIT_REQUESTS", defaults[0]);
+        int period = AppConfig.getServiceIntSetting(name, "RATE_LIMIT_PERIOD_SECONDS", defaults[1]);
+        if (requests <= 0 || period <= 0) {
+            return service;
+        }
+        int burst = AppConfig.getServiceIntSetting(name, "RATE_LIMIT_BURST", 1);
+        logger.info("Rate limit for " + name + ": " + requests + " requests per " + period + " seconds");
+        return new RateLimitedApiService(service, new TokenBucket(requests, Math.max(1, burst), period, TimeUnit.SECONDS));
+    }
+
+    @Override
+    public String getServiceName() {
+        return delegate.getServiceName();
+    }
+
+    @Override
+    public List<ApiRecord> fetchData() throws IOException {
+        long waitNanos = bucket.tryAcquire();
+        if (waitNanos > 0) {
+            throw new CallNotPermittedException("Rate limit reached for " + getServiceName() + 
+                                                ", next request allowed in " + 
+                                                TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms", waitNanos);
+        }
+        RequestContext context = RequestContext.current();
+        if (context != null) {
+            // Дублирующая попытка запроса расходует квоту наравне с основной
+            context.addHedgeGuard(new RequestContext.HedgeGuard() {
+                @Override
+                public boolean tryAcquire() {
+                    return bucket.tryAcquire() == 0;
+                }
+
+                @Override
+                public void release() {
+                }
+            });
+        }
+        
+        try {
+            List<ApiRecord> records = delegate.fetchData();
+            applyStatus(delegate.getRateLimitStatus());
+            return records;
+        } catch (ApiResponseException e) {
+            RateLimitStatus status = e.getRateLimitStatus();
+            if (e.isRateLimited()) {
+                long pauseMs = retryDelayMillis(status);
+                logger.warning(getServiceName() + " quota exceeded, pausing requests for " + pauseMs + " ms");
+                bucket.blockFor(pauseMs, TimeUnit.MILLISECONDS);
+            } else if (status != null && status.getRetryAfterMillis() >= 0) {
+                bucket.blockFor(status.getRetryAfterMillis(), TimeUnit.MILLISECONDS);
+            }
+            applyStatus(status);
+            throw e;
+        }
+    }
+
+    @Override
+    public RateLimitStatus getRateLimitStatus() {
+        return delegate.getRateLimitStatus();
+    }
+
+    @Override
+    public DedupCache getDedupCache() {
+        return delegate.getDedupCache();
+    }
+
+    /**
+     * Синхронизирует ведро с остатком квоты, сообщенным сервером
+     */
+    private void applyStatus(RateLimitStatus status) {
+        if (status == null) {
+            return;
+        }
+        if (status.getRemaining() >= 0) {
+            bucket.limitTo(status.getRemaining());
+            if (status.getRemaining() == 0 && status.getResetAfterMillis() > 0) {
+                bucket.blockFor(status.getResetAfterMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static long retryDelayMillis(RateLimitStatus status) {
+        if (status != null && status.getRetryAfterMillis() >= 0) {
+            return status.getRetryAfterMillis();
+        }
+        if (status != null && status.getResetAfterMillis() >= 0) {
+            return status.getResetAfterMillis();
+        }
+        return DEFAULT_RETRY_AFTER_MS;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.apipoller.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Потокобезопасное "ведро токенов" для ограничения частоты запросов.
+ * Квота задается как requests запросов за period; ведро вмещает burst токенов,
+ * а оставшиеся (requests - burst) токенов равномерно пополняются за период.
+ * Поэтому в любом окне длиной period выдается не более requests токенов.
+ * Выдачу можно приостановить до указанного момента (например, по Retry-After).
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double tokensPerNano;
+    private final LongSupplier clock;
+    private double tokens;
+    private long lastRefillNanos;
+    private long blockedUntilNanos;
+
+    /**
+     * @param requests количество запросов, разрешенных за период
+     * @param burst максимальное количество запросов подряд
+     * @param period длительность периода
+     * @param unit единица измерения периода
+     */
+    public TokenBucket(long requests, long burst, long period, TimeUnit unit) {
+        this(requests, burst, period, unit, System::nanoTime);
+    }
+
+    TokenBucket(long requests, long burst, long period, TimeUnit unit, LongSupplier clock) {
+        if (requests <= 0 || burst <= 0 || period <= 0) {
+            throw new IllegalArgumentException("Invalid token bucket quota: " + requests + " per " + period + " " + unit);
+        }
+        this.capacity = Math.min(burst, requests);
+        long refilled = Math.max(1, requests - capacity);
+        this.tokensPerNano = (double) refilled / unit.toNanos(period);
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefillNanos = clock.getAsLong();
+        this.blockedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Пытается получить токен
+     * @return 0, если токен получен, иначе время в наносекундах до появления токена
+     */
+    public synchronized long tryAcquire() {
+        long now = clock.getAsLong();
+        refill(now);
+        if (blockedUntilNanos - now > 0) {
+            return blockedUntilNanos - now;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * Запрещает выдачу токенов на указанное время
+     * @param delay длительность паузы
+     * @param unit единица измерения
+     */
+    public synchronized void blockFor(long delay, TimeUnit unit) {
+        long until = clock.getAsLong() + unit.toNanos(delay);
+        if (until - blockedUntilNanos > 0) {
+            blockedUntilNanos = until;
+        }
+    }
+
+    /**
+     * Уменьшает количество доступных токенов до остатка квоты, сообщенного сервером
+     * @param remaining остаток квоты
+     */
+    public synchronized void limitTo(long remaining) {
+        refill(clock.getAsLong());
+        tokens = Math.min(tokens, Math.max(0, remaining));
+    }
+
+    /**
+     * @return текущее количество доступных токенов
+     */
+    public synchronized double availableTokens() {
+        refill(clock.getAsLong());
+        return tokens;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.apipoller.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Адаптивный интервал опроса сервиса по схеме AIMD.
+ * Если опрос принес новые записи, интервал уменьшается вдвое (источник "горячий"),
+ * если новых записей нет, интервал увеличивается на постоянный шаг.
+ * Интервал всегда остается в границах [min, max].
+ */
+public class AdaptiveInterval {
+    private final long minNanos;
+    private final long maxNanos;
+    private final long stepNanos;
+    private long currentNanos;
+
+    /**
+     * @param base начальный интервал
+     * @param min минимальный интервал
+     * @param max максимальный интервал
+     * @param unit единица измерения интервалов
+     */
+    public AdaptiveInterval(long base, long min, long max, TimeUnit unit) {
+        if (min <= 0 || min > max) {
+            throw new IllegalArgumentException("Invalid interval bounds: min=" + min + ", max=" + max);
+        }
+        this.minNanos = unit.toNanos(min);
+        this.maxNanos = unit.toNanos(max);
+        this.currentNanos = clamp(unit.toNanos(base));
+        // Шаг увеличения - половина базового интервала, но не меньше минимального
+        this.stepNanos = Math.max(this.minNanos, this.currentNanos / 2);
+    }
+
+    /**
+     * Создает фиксированный интервал, не зависящий от результатов опроса
+     * @param interval длительность интервала
+     * @param unit единица измерения
+     * @return неадаптивный интервал
+     */
+    public static AdaptiveInterval fixed(long interval, TimeUnit unit) {
+        long nanos = Math.max(1, unit.toNanos(interval));
+        return new AdaptiveInterval(nanos, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Учитывает результат успешного опроса и возвращает следующий интервал
+     * @param newRecords количество новых записей, полученных при опросе
+     * @return задержка до следующего опроса в наносекундах
+     */
+    public synchronized long onPoll(int newRecords) {
+        if (newRecords > 0) {
+            currentNanos = clamp(currentNanos / 2);
+        } else {
+            currentNanos = clamp(currentNanos + stepNanos);
+        }
+        return currentNanos;
+    }
+
+    /**
+     * Возвращает текущий интервал без его изменения (например, после ошибки опроса)
+     * @return задержка до следующего опроса в наносекундах
+     */
+    public synchronized long currentNanos() {
+        return currentNanos;
+    }
+
+    private long clamp(long nanos) {
+        return Math.max(minNanos, Math.min(maxNanos, nanos));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.apipoller.service;
+
+import com.example.apipoller.config.AppConfig.ConfigurationException;
+
+/**
+ * Режим выполнения задач опроса.
+ * В режиме PLATFORM задачи выполняются в фиксированном пуле платформенных потоков,
+ * в режиме VIRTUAL каждая задача получает собственный виртуальный поток,
+ * а maxThreads ограничивает число одновременно выполняемых опросов.
+ */
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL;
+
+    /**
+     * Определяет режим по его названию
+     * @param name название режима ("platform" или "virtual")
+     * @return соответствующий режим выполнения
+     * @throws ConfigurationException если режим не поддерживается
+     */
+    public static ExecutionMode fromString(String name) {
+        switch (name.toLowerCase()) {
+            case "platform":
+                return PLATFORM;
+            case "virtual":
+                return VIRTUAL;
+            default:
+                throw new ConfigurationException("Unsupported execution mode: " + name + 
+                                                ". Mode must be 'platform' or 'virtual'");
+        }
+    }
+}
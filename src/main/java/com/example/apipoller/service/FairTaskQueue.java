@@ -0,0 +1,126 @@
+package com.example.apipoller.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Очередь готовых к запуску задач со взвешенным справедливым обслуживанием.
+ * Задачи с более высоким приоритетом всегда выбираются первыми; внутри одного
+ * приоритета доля запусков сервиса пропорциональна его весу (самотактируемое
+ * справедливое обслуживание: каждой задаче назначается виртуальное время окончания,
+ * выбирается задача с наименьшим). При перегрузке задачи низкого приоритета,
+ * прождавшие дольше допустимого, сбрасываются.
+ * <p>
+ * Класс не потокобезопасен и используется только потоком-координатором.
+ */
+class FairTaskQueue {
+    /**
+     * Параметры обслуживания одного сервиса
+     */
+    private static class Flow {
+        final int priority;
+        final int weight;
+        final long maxWaitNanos;
+        double lastFinish;
+
+        Flow(int priority, int weight, long maxWaitNanos) {
+            this.priority = priority;
+            this.weight = Math.max(1, weight);
+            this.maxWaitNanos = maxWaitNanos;
+        }
+    }
+
+    private static class Entry {
+        final PollTask task;
+        final Flow flow;
+        final double finish;
+
+        Entry(PollTask task, Flow flow, double finish) {
+            this.task = task;
+            this.flow = flow;
+            this.finish = finish;
+        }
+    }
+
+    private final Map<String, Flow> flows = new HashMap<>();
+    private final PriorityQueue<Entry> ready = new PriorityQueue<>(
+        Comparator.<Entry>comparingInt(entry -> -entry.flow.priority)
+                  .thenComparingDouble(entry -> entry.finish));
+    private double virtualTime = 0;
+
+    /**
+     * Задает параметры обслуживания сервиса
+     * 
+     * @param serviceName имя сервиса
+     * @param priority приоритет (большее значение обслуживается раньше)
+     * @param weight вес сервиса внутри своего приоритета
+     * @param maxWaitNanos допустимое ожидание в очереди, после которого задача
+     *                     может быть сброшена; 0 отключает сброс
+     */
+    void register(String serviceName, int priority, int weight, long maxWaitNanos) {
+        flows.put(serviceName, new Flow(priority, weight, maxWaitNanos));
+    }
+
+    /**
+     * Добавляет готовую к запуску задачу
+     * @param task задача, время запуска которой наступило
+     */
+    void add(PollTask task) {
+        // Незарегистрированные сервисы обслуживаются с параметрами по умолчанию
+        Flow flow = flows.computeIfAbsent(task.getServiceName(), name -> new Flow(0, 1, 0));
+        double finish = Math.max(virtualTime, flow.lastFinish) + 1.0 / flow.weight;
+        flow.lastFinish = finish;
+        ready.add(new Entry(task, flow, finish));
+    }
+
+    /**
+     * Извлекает следующую задачу для запуска
+     * @return задача или null, если очередь пуста
+     */
+    PollTask poll() {
+        Entry entry = ready.poll();
+        if (entry == null) {
+            return null;
+        }
+        virtualTime = entry.finish;
+        return entry.task;
+    }
+
+    /**
+     * Удаляет из очереди задачи, прождавшие дольше допустимого, если в очереди
+     * есть задачи более высокого приоритета
+     * 
+     * @return сброшенные задачи
+     */
+    List<PollTask> shedOverdue() {
+        List<PollTask> shed = new ArrayList<>();
+        Entry head = ready.peek();
+        if (head == null) {
+            return shed;
+        }
+        int topPriority = head.flow.priority;
+        Iterator<Entry> iterator = ready.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.flow.priority < topPriority && entry.flow.maxWaitNanos > 0 &&
+                entry.task.overdueNanos() > entry.flow.maxWaitNanos) {
+                iterator.remove();
+                shed.add(entry.task);
+            }
+        }
+        return shed;
+    }
+
+    int size() {
+        return ready.size();
+    }
+
+    boolean isEmpty() {
+        return ready.isEmpty();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.apipoller.service;
+
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.config.AppConfig.ConfigurationException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Случайное смещение интервала между опросами, не позволяющее задачам
+ * синхронизироваться по фазе и срабатывать одновременно.
+ * <ul>
+ *     <li>NONE - интервал не изменяется;</li>
+ *     <li>FULL - интервал выбирается равномерно из [0, 2d), средний период опроса сохраняется;</li>
+ *     <li>DECORRELATED - интервал выбирается из [d/2, 3p], где p - предыдущий интервал,
+ *     и ограничивается сверху значением 2d.</li>
+ * </ul>
+ * Экземпляр хранит состояние и должен использоваться одной задачей.
+ */
+public class Jitter {
+    public enum Mode {
+        NONE,
+        FULL,
+        DECORRELATED
+    }
+
+    private final Mode mode;
+    private long previousNanos = -1;
+
+    public Jitter(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * @return смещение, не изменяющее интервал
+     */
+    public static Jitter none() {
+        return new Jitter(Mode.NONE);
+    }
+
+    /**
+     * Создает смещение по настройке POLL_JITTER (none, full или decorrelated)
+     * 
+     * @return смещение для одной задачи
+     * @throws ConfigurationException если режим не поддерживается
+     */
+    public static Jitter fromConfig() {
+        return new Jitter(parseMode(AppConfig.getSetting("POLL_JITTER", "none")));
+    }
+
+    static Mode parseMode(String name) {
+        try {
+            return Mode.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException("Unsupported jitter mode: " + name + 
+                                            ". Mode must be 'none', 'full' or 'decorrelated'");
+        }
+    }
+
+    /**
+     * Применяет смещение к интервалу
+     * @param delayNanos интервал до следующего опроса
+     * @return смещенный интервал в наносекундах
+     */
+    public synchronized long apply(long delayNanos) {
+        if (delayNanos <= 0) {
+            return delayNanos;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (mode) {
+            case FULL:
+                return random.nextLong(2 * delayNanos);
+            case DECORRELATED:
+                long lower = Math.max(1, delayNanos / 2);
+                long previous = previousNanos > 0 ? previousNanos : delayNanos;
+                long upper = Math.max(lower + 1, Math.min(2 * delayNanos, 3 * previous));
+                previousNanos = random.nextLong(lower, upper);
+                return previousNanos;
+            case NONE:
+            default:
+                return delayNanos;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.apipoller.service;
 
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.metrics.ServiceMetrics;
+import com.example.apipoller.resilience.CircuitBreaker;
+
 import java.lang.management.ManagementFactory;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.concurrent.CountDownLatch;
@@ -19,8 +24,10 @@ public class ParserShutdownMonitor implements Runnable {
     private static final Logger logger = Logger.getLogger(ParserShutdownMonitor.class.getName());
     private static final long CHECK_INTERVAL_MS = 500; // Интервал проверки состояния
     private static final long HEALTH_CHECK_INTERVAL_MS = 30000; // Интервал проверки состояния системы (30 секунд)
+    private static final long SIGINT_SHUTDOWN_TIMEOUT_MS = 10000; // Время на корректную остановку после Ctrl+C
     
     private final AtomicBoolean shutdownRequested = new AtomicBoolean(false);
+    private final AtomicBoolean interruptReceived = new AtomicBoolean(false);
     private final CountDownLatch shutdownComplete = new CountDownLatch(1);
     private final PollScheduler scheduler;
     private long lastHealthCheckTime = 0;
@@ -29,14 +36,30 @@ public class ParserShutdownMonitor implements Runnable {
     public ParserShutdownMonitor(PollScheduler scheduler) {
         this.scheduler = scheduler;
         
-        // Добавляем обработчик сигнала Ctrl+C для немедленного завершения
+        // Добавляем обработчик сигнала Ctrl+C: первый сигнал запускает корректную
+        // остановку с записью буферов, повторный завершает процесс немедленно
         try {
             Signal.handle(new Signal("INT"), new SignalHandler() {
                 @Override
                 public void handle(Signal signal) {
-                    logger.info("Received Ctrl+C signal, exiting immediately");
-                    // Немедленный выход без запроса подтверждения
-                    System.exit(130); // 130 - код выхода для SIGINT
+                    if (!interruptReceived.compareAndSet(false, true)) {
+                        logger.warning("Received second Ctrl+C signal, exiting immediately");
+                        Runtime.getRuntime().halt(130); // 130 - код выхода для SIGINT
+                    }
+                    logger.info("Received Ctrl+C signal, shutting down gracefully (press Ctrl+C again to force exit)");
+                    requestShutdown();
+                    Thread exitThread = new Thread(() -> {
+                        try {
+                            if (!awaitTermination(SIGINT_SHUTDOWN_TIMEOUT_MS)) {
+                                logger.warning("Parser shutdown timed out after Ctrl+C");
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        System.exit(130);
+                    }, "sigint-shutdown");
+                    exitThread.setDaemon(true);
+                    exitThread.start();
                 }
             });
             logger.info("Ctrl+C signal handler registered");
@@ -183,6 +206,38 @@ public class ParserShutdownMonitor implements Runnable {
         System.out.println("Memory utilization: " + (usedMemory * 100 / totalMemory) + "%");
         System.out.println("Thread count: " + Thread.activeCount());
         System.out.println("Uptime: " + formatUptime());
+        
+        Map<String, CircuitBreaker> circuitBreakers = scheduler.getCircuitBreakers();
+        if (circuitBreakers != null && !circuitBreakers.isEmpty()) {
+            System.out.println("Circuit breakers:");
+            for (Map.Entry<String, CircuitBreaker> entry : circuitBreakers.entrySet()) {
+                System.out.println("  " + entry.getKey() + ": " + entry.getValue().describe());
+            }
+        }
+        
+        Map<String, ServiceMetrics> metrics = scheduler.getMetrics();
+        if (metrics != null && !metrics.isEmpty()) {
+            System.out.println("Service metrics:");
+            for (Map.Entry<String, ServiceMetrics> entry : metrics.entrySet()) {
+                System.out.println("  " + entry.getKey() + ": " + entry.getValue().describe());
+            }
+        }
+        
+        Map<String, DedupCache> dedupCaches = scheduler.getDedupCaches();
+        if (dedupCaches != null && !dedupCaches.isEmpty()) {
+            System.out.println("Dedup caches:");
+            for (Map.Entry<String, DedupCache> entry : dedupCaches.entrySet()) {
+                System.out.println("  " + entry.getKey() + ": " + entry.getValue().describe());
+            }
+        }
+        
+        Map<String, String> writerStatus = scheduler.getWriterStatus();
+        if (writerStatus != null && !writerStatus.isEmpty()) {
+            System.out.println("Output sinks:");
+            for (Map.Entry<String, String> entry : writerStatus.entrySet()) {
+                System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+            }
+        }
         System.out.println("======================\n");
     }
     
@@ -3,12 +3,26 @@ package com.example.apipoller.service;
 import com.example.apipoller.api.ApiService;
 import com.example.apipoller.api.ApiServiceFactory;
 import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.dedup.DedupCache;
+import com.example.apipoller.metrics.MeteredApiService;
+import com.example.apipoller.metrics.ServiceMetrics;
+import com.example.apipoller.resilience.Bulkhead;
+import com.example.apipoller.resilience.BulkheadApiService;
+import com.example.apipoller.resilience.CircuitBreaker;
+import com.example.apipoller.resilience.CircuitBreakerApiService;
+import com.example.apipoller.resilience.RateLimitedApiService;
+import com.example.apipoller.writer.AsyncDataWriter;
+import com.example.apipoller.writer.FanOutDataWriter;
 import com.example.apipoller.writer.DataWriter;
 import com.example.apipoller.writer.DataWriterFactory;
+import com.example.apipoller.writer.WriteAheadLogDataWriter;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -16,29 +30,115 @@ import java.util.logging.Logger;
 /**
  * Планировщик задач опроса API, гарантирующий выполнение
  * не более N одновременных задач.
+ * Ожидающие задачи хранятся в {@link DelayQueue} и упорядочены по времени
+ * следующего запуска, поэтому в простое ни один поток не просыпается.
+ * Задачи выполняются либо в пуле платформенных потоков, либо на виртуальных
+ * потоках (см. {@link ExecutionMode}); в обоих режимах число одновременных
+ * опросов ограничено разрешениями семафора (maxThreads). Ответ сервиса ожидается
+ * в его отсеке ({@link Bulkhead}) и не занимает поток планировщика, а разрешение
+ * возвращается по завершении опроса: зависший сервис удерживает его не дольше
+ * жесткого срока запроса своего отсека.
+ * Задачи, время запуска которых наступило, ожидают свободного разрешения
+ * в {@link FairTaskQueue}: при насыщении первыми запускаются сервисы с большим
+ * приоритетом, а внутри приоритета - пропорционально весу сервиса.
  */
 public class PollScheduler {
     private static final Logger logger = Logger.getLogger(PollScheduler.class.getName());
     
     private final AppConfig config;
+    private final ExecutionMode executionMode;
     private final ExecutorService executor;
-    private final BlockingQueue<Runnable> taskQueue = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+    private static final long DISPATCH_WAIT_MILLIS = 50;
+    
+    private final DelayQueue<PollTask> taskQueue = new DelayQueue<>();
+    private final FairTaskQueue readyQueue = new FairTaskQueue();
     private final List<PollTask> tasks = new ArrayList<>();
+    private final Map<String, CircuitBreaker> circuitBreakers = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<Bulkhead> bulkheads = new ArrayList<>();
+    private final Map<String, ServiceMetrics> metrics = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, DedupCache> dedupCaches = Collections.synchronizedMap(new LinkedHashMap<>());
     private final DataWriter writer;
-    private boolean isRunning = false;
+    private volatile boolean isRunning = false;
     
     private Thread coordinatorThread;
 
     public PollScheduler(AppConfig config) {
+        this(config, createWriter(config), ExecutionMode.fromString(AppConfig.getExecutionMode()));
+    }
+
+    /**
+     * Создает писатель результатов: для одного формата - с асинхронной ступенью,
+     * для нескольких - с отдельной асинхронной ступенью на каждый вывод.
+     * Первой ступенью ставится журнал упреждающей записи, поэтому пакет опроса
+     * сохраняется на устройстве до того, как попадет в буферы асинхронных ступеней
+     *
+     * @param config конфигурация приложения
+     * @return писатель результатов опроса
+     */
+    private static DataWriter createWriter(AppConfig config) {
+        List<String> formats = config.getOutputFormats();
+        if (formats == null || formats.size() <= 1) {
+            return DataWriterFactory.withWriteAheadLog(config.getOutputFile(), AsyncDataWriter.fromConfig(
+                DataWriterFactory.createWriter(config.getOutputFormat(), config.getOutputFile())));
+        }
+        Map<String, DataWriter> writers = new LinkedHashMap<>();
+        for (String format : formats) {
+            writers.put(format, DataWriterFactory.createWriter(format, config.getOutputFile(format)));
+        }
+        return DataWriterFactory.withWriteAheadLog(config.getOutputFile(), FanOutDataWriter.fromConfig(writers));
+    }
+    
+    /**
+     * Конструктор с явно заданным писателем и режимом выполнения
+     * 
+     * @param config конфигурация приложения
+     * @param writer писатель результатов опроса
+     * @param executionMode режим выполнения задач
+     */
+    PollScheduler(AppConfig config, DataWriter writer, ExecutionMode executionMode) {
         this.config = config;
-        this.executor = Executors.newFixedThreadPool(config.getMaxThreads());
-        this.writer = DataWriterFactory.createWriter(config.getOutputFormat(), config.getOutputFile());
+        this.executionMode = executionMode;
+        this.executor = createExecutor(executionMode, config.getMaxThreads());
+        this.permits = new Semaphore(Math.max(1, config.getMaxThreads()));
+        this.writer = writer;
+    }
+    
+    /**
+     * Создает исполнителя задач для указанного режима
+     * 
+     * @param mode режим выполнения
+     * @param maxThreads размер пула для платформенного режима
+     * @return исполнитель задач
+     */
+    private static ExecutorService createExecutor(ExecutionMode mode, int maxThreads) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("poll-virtual-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(Math.max(1, maxThreads));
     }
 
     /**
      * Запускает планировщик задач
      */
     public synchronized void start() {
+        List<ApiService> services = new ArrayList<>();
+        for (String serviceName : config.getServices()) {
+            try {
+                services.add(ApiServiceFactory.createService(serviceName));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Skipping unknown service: " + serviceName + ". Reason: " + e.getMessage());
+            }
+        }
+        start(services);
+    }
+    
+    /**
+     * Запускает планировщик для заданного набора сервисов
+     * 
+     * @param services сервисы, которые нужно опрашивать
+     */
+    synchronized void start(List<ApiService> services) {
         if (isRunning) {
             return;
         }
@@ -46,16 +146,21 @@ public class PollScheduler {
         isRunning = true;
         
         // Создание задач опроса для каждого сервиса
-        for (String serviceName : config.getServices()) {
-            try {
-                ApiService apiService = ApiServiceFactory.createService(serviceName);
-                PollTask task = new PollTask(apiService, writer, taskQueue, 
-                                           config.getTimeoutSeconds(), TimeUnit.SECONDS);
-                tasks.add(task);
-                taskQueue.add(task);
-            } catch (IllegalArgumentException e) {
-                logger.warning("Skipping unknown service: " + serviceName + ". Reason: " + e.getMessage());
-            }
+        for (ApiService service : services) {
+            ApiService apiService = decorate(service);
+            PollTask task = new PollTask(apiService, writer, taskQueue, 
+                                       config.getTimeoutSeconds(), TimeUnit.SECONDS,
+                                       createInterval(apiService.getServiceName()),
+                                       Jitter.fromConfig());
+            registerFairShare(apiService.getServiceName());
+            tasks.add(task);
+        }
+        
+        // Разнесение первых запусков, чтобы сервисы не срабатывали одновременно
+        for (int i = 0; i < tasks.size(); i++) {
+            PollTask task = tasks.get(i);
+            task.delayFirstRun(initialDelayNanos(i, tasks.size()));
+            taskQueue.add(task);
         }
         
         if (tasks.isEmpty()) {
@@ -64,12 +169,172 @@ public class PollScheduler {
         }
         
         // Запуск координатора задач
-        coordinatorThread = new Thread(this::coordinateTasks);
+        coordinatorThread = new Thread(this::coordinateTasks, "poll-coordinator");
         coordinatorThread.setDaemon(true);
         coordinatorThread.start();
         
-        logger.info("Scheduler started with " + tasks.size() + " services and " + 
-                   config.getMaxThreads() + " max concurrent threads");
+        logger.info("Scheduler started with " + tasks.size() + " services in " + executionMode + 
+                   " mode and " + config.getMaxThreads() + " concurrent polls");
+    }
+
+    /**
+     * Оборачивает сервис слоями отказоустойчивости (снаружи внутрь):
+     * сбором метрик опросов;
+     * автоматическим выключателем, чтобы разомкнутый выключатель не занимал отсек и не расходовал квоту;
+     * отсеком с собственным исполнителем и жестким сроком запроса;
+     * ограничителем частоты запросов.
+     * 
+     * @param service исходный сервис
+     * @return сервис со слоями отказоустойчивости
+     */
+    private ApiService decorate(ApiService service) {
+        String serviceName = service.getServiceName();
+        CircuitBreaker circuitBreaker = CircuitBreaker.fromConfig(serviceName);
+        circuitBreakers.put(serviceName, circuitBreaker);
+        if (service.getDedupCache() != null) {
+            dedupCaches.put(serviceName, service.getDedupCache());
+        }
+        
+        Bulkhead bulkhead = Bulkhead.fromConfig(serviceName, createBulkheadExecutor(serviceName));
+        bulkheads.add(bulkhead);
+        
+        ApiService limited = RateLimitedApiService.withConfiguredQuota(service);
+        ApiService isolated = new BulkheadApiService(limited, bulkhead, 
+                                                     BulkheadApiService.configuredDeadlineSeconds(serviceName), 
+                                                     TimeUnit.SECONDS);
+        ServiceMetrics serviceMetrics = new ServiceMetrics(serviceName);
+        metrics.put(serviceName, serviceMetrics);
+        return new MeteredApiService(new CircuitBreakerApiService(isolated, circuitBreaker), serviceMetrics);
+    }
+    
+    /**
+     * Создает собственный исполнитель отсека сервиса в соответствии с режимом выполнения.
+     * Пул платформенных потоков ограничен числом потоков, которое нужно отсеку
+     * (см. {@link Bulkhead#configuredMaxThreads(String)})
+     * 
+     * @param serviceName имя сервиса
+     * @return исполнитель запросов сервиса
+     */
+    private ExecutorService createBulkheadExecutor(String serviceName) {
+        String prefix = "bulkhead-" + serviceName + "-";
+        if (executionMode == ExecutionMode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+        }
+        return new ThreadPoolExecutor(0, Bulkhead.configuredMaxThreads(serviceName), 60, TimeUnit.SECONDS,
+                                      new SynchronousQueue<>(),
+                                      Thread.ofPlatform().daemon(true).name(prefix, 0).factory());
+    }
+
+    /**
+     * Возвращает автоматические выключатели опрашиваемых сервисов
+     * @return неизменяемая карта "имя сервиса - выключатель"
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        synchronized (circuitBreakers) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(circuitBreakers));
+        }
+    }
+
+    /**
+     * Возвращает метрики опросов сервисов
+     * @return неизменяемая карта "имя сервиса - метрики"
+     */
+    public Map<String, ServiceMetrics> getMetrics() {
+        synchronized (metrics) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(metrics));
+        }
+    }
+
+    /**
+     * Возвращает наборы обработанных идентификаторов сервисов
+     * @return неизменяемая карта "имя сервиса - набор идентификаторов"
+     */
+    public Map<String, DedupCache> getDedupCaches() {
+        synchronized (dedupCaches) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(dedupCaches));
+        }
+    }
+
+    /**
+     * @return состояние буферов выводов по именам; пусто, если запись выполняется синхронно
+     */
+    public Map<String, String> getWriterStatus() {
+        Map<String, String> status = new LinkedHashMap<>();
+        DataWriter stage = writer instanceof WriteAheadLogDataWriter 
+            ? ((WriteAheadLogDataWriter) writer).getDelegate() : writer;
+        if (stage instanceof FanOutDataWriter) {
+            for (Map.Entry<String, AsyncDataWriter> sink : ((FanOutDataWriter) stage).getSinks().entrySet()) {
+                status.put(sink.getKey(), sink.getValue().describe());
+            }
+        } else if (stage instanceof AsyncDataWriter) {
+            status.put(config.getOutputFormat(), ((AsyncDataWriter) stage).describe());
+        }
+        return status;
+    }
+
+    /**
+     * Задает параметры справедливого обслуживания сервиса по настройкам
+     * POLL_PRIORITY (по умолчанию 0), POLL_WEIGHT (по умолчанию 1) и
+     * POLL_MAX_WAIT_SECONDS - допустимому ожиданию свободного разрешения,
+     * после которого опрос низкоприоритетного сервиса сбрасывается
+     * (по умолчанию равно таймауту, 0 отключает сброс)
+     * 
+     * @param serviceName имя сервиса
+     */
+    private void registerFairShare(String serviceName) {
+        int priority = AppConfig.getServiceIntSetting(serviceName, "POLL_PRIORITY", 0);
+        int weight = Math.max(1, AppConfig.getServiceIntSetting(serviceName, "POLL_WEIGHT", 1));
+        int maxWaitSeconds = Math.max(0, AppConfig.getServiceIntSetting(serviceName, "POLL_MAX_WAIT_SECONDS", 
+                                                                        config.getTimeoutSeconds()));
+        readyQueue.register(serviceName, priority, weight, TimeUnit.SECONDS.toNanos(maxWaitSeconds));
+    }
+
+    /**
+     * Вычисляет задержку первого запуска задачи по настройке START_STAGGER:
+     * none - все задачи стартуют сразу, even - старты равномерно распределены
+     * по окну START_STAGGER_SECONDS (по умолчанию равному таймауту),
+     * random - старт в случайный момент окна
+     * 
+     * @param index порядковый номер задачи
+     * @param count общее количество задач
+     * @return задержка первого запуска в наносекундах
+     */
+    private long initialDelayNanos(int index, int count) {
+        String stagger = AppConfig.getSetting("START_STAGGER", "none").toLowerCase();
+        long windowNanos = TimeUnit.SECONDS.toNanos(
+            Math.max(0, AppConfig.getIntSetting("START_STAGGER_SECONDS", config.getTimeoutSeconds())));
+        switch (stagger) {
+            case "even":
+                return windowNanos * index / count;
+            case "random":
+                return windowNanos > 0 ? ThreadLocalRandom.current().nextLong(windowNanos) : 0;
+            case "none":
+                return 0;
+            default:
+                throw new AppConfig.ConfigurationException("Unsupported start stagger mode: " + stagger + 
+                                                          ". Mode must be 'none', 'even' or 'random'");
+        }
+    }
+
+    /**
+     * Создает адаптивный интервал опроса для сервиса.
+     * Границы задаются настройками POLL_MIN_INTERVAL_SECONDS и POLL_MAX_INTERVAL_SECONDS
+     * (в том числе с префиксом сервиса); по умолчанию интервал может уменьшаться
+     * до четверти таймаута и увеличиваться до восьми таймаутов.
+     * 
+     * @param serviceName имя сервиса
+     * @return контроллер интервала опроса
+     */
+    private AdaptiveInterval createInterval(String serviceName) {
+        int base = Math.max(1, config.getTimeoutSeconds());
+        int min = AppConfig.getServiceIntSetting(serviceName, "POLL_MIN_INTERVAL_SECONDS", Math.max(1, base / 4));
+        int max = AppConfig.getServiceIntSetting(serviceName, "POLL_MAX_INTERVAL_SECONDS", base * 8);
+        if (min <= 0 || min > max) {
+            logger.warning("Invalid polling interval bounds for " + serviceName + 
+                          ", using fixed interval of " + base + " seconds");
+            return AdaptiveInterval.fixed(base, TimeUnit.SECONDS);
+        }
+        return new AdaptiveInterval(base, min, max, TimeUnit.SECONDS);
     }
 
     /**
@@ -87,8 +352,11 @@ public class PollScheduler {
             task.stop();
         }
         
-        // Остановка исполнителя и координатора
+        // Остановка исполнителей и координатора
         executor.shutdownNow();
+        for (Bulkhead bulkhead : bulkheads) {
+            bulkhead.shutdown();
+        }
         if (coordinatorThread != null) {
             coordinatorThread.interrupt();
         }
@@ -108,27 +376,47 @@ public class PollScheduler {
     }
 
     /**
-     * Координирует выполнение задач, обеспечивая ограничение
-     * на максимальное количество одновременно выполняемых задач.
+     * Координирует выполнение задач: забирает из очереди задачи, время запуска
+     * которых наступило, в очередь справедливого обслуживания и передает их
+     * исполнителю по мере освобождения разрешений семафора. Задача только
+     * передает запрос в отсек своего сервиса и сразу освобождает поток: ответ
+     * ожидается на исполнителе отсека. Разрешение возвращается после записи
+     * результата, поэтому одновременно выполняется не более maxThreads опросов,
+     * а зависший сервис удерживает разрешение не дольше срока запроса отсека.
+     * Пока свободных разрешений нет, координатор продолжает собирать готовые
+     * задачи и сбрасывает просроченные низкоприоритетные опросы.
      */
     private void coordinateTasks() {
-        int maxThreads = config.getMaxThreads();
-        List<Future<?>> runningTasks = new ArrayList<>();
-        
         try {
             while (isRunning && !Thread.currentThread().isInterrupted()) {
-                // Очистка завершенных задач
-                runningTasks.removeIf(Future::isDone);
-                
-                // Запуск новых задач, если есть свободные потоки
-                while (runningTasks.size() < maxThreads && !taskQueue.isEmpty()) {
-                    Runnable task = taskQueue.take();
-                    runningTasks.add(executor.submit(task));
-                    logger.fine("Started new task, now running: " + runningTasks.size());
+                if (readyQueue.isEmpty()) {
+                    // Блокируется до наступления времени запуска ближайшей задачи
+                    readyQueue.add(taskQueue.take());
+                }
+                drainDueTasks();
+                shedOverdueTasks();
+                if (readyQueue.isEmpty() || !permits.tryAcquire(DISPATCH_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                // Пока ожидали разрешения, могли подойти задачи более высокого приоритета
+                drainDueTasks();
+                PollTask task = readyQueue.poll();
+                try {
+                    executor.submit(() -> {
+                        CompletableFuture<Void> poll;
+                        try {
+                            poll = task.start(executor);
+                        } catch (RuntimeException e) {
+                            permits.release();
+                            throw e;
+                        }
+                        poll.whenComplete((ignored, error) -> permits.release());
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
                 }
-                
-                // Небольшая пауза перед следующей проверкой
-                Thread.sleep(100);
+                logger.fine("Dispatched due task, ready: " + readyQueue.size() + ", pending: " + taskQueue.size());
             }
         } catch (InterruptedException e) {
             logger.info("Coordinator thread interrupted");
@@ -144,4 +432,27 @@ public class PollScheduler {
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Переносит все задачи, время запуска которых наступило, в очередь справедливого обслуживания
+     */
+    private void drainDueTasks() {
+        PollTask due;
+        while ((due = taskQueue.poll()) != null) {
+            readyQueue.add(due);
+        }
+    }
+
+    /**
+     * Сбрасывает просроченные опросы низкоприоритетных сервисов и учитывает их в метриках
+     */
+    private void shedOverdueTasks() {
+        for (PollTask task : readyQueue.shedOverdue()) {
+            ServiceMetrics serviceMetrics = metrics.get(task.getServiceName());
+            if (serviceMetrics != null) {
+                serviceMetrics.recordShed();
+            }
+            task.skip();
+        }
+    }
 }
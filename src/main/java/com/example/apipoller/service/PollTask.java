@@ -2,6 +2,7 @@ package com.example.apipoller.service;
 
 import com.example.apipoller.api.ApiService;
 import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.resilience.CallNotPermittedException;
 import com.example.apipoller.writer.DataWriter;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
@@ -10,6 +11,10 @@ import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -17,24 +22,55 @@ import java.util.logging.Logger;
 
 /**
  * Задача для опроса API и записи результатов в файл.
+ * Задача хранит момент своего следующего запуска и реализует {@link Delayed},
+ * поэтому между опросами она лежит в очереди с задержкой и не занимает поток.
+ * <p>
+ * {@link #start(Executor)} запускает опрос, не дожидаясь ответа сервиса:
+ * результат записывается и следующий опрос планируется по завершении запроса.
  */
-public class PollTask implements Runnable {
+public class PollTask implements Runnable, Delayed {
     private static final Logger logger = Logger.getLogger(PollTask.class.getName());
     
     private final ApiService apiService;
     private final DataWriter writer;
-    private final BlockingQueue<Runnable> taskQueue;
+    private final BlockingQueue<? super PollTask> taskQueue;
     private final long timeout;
     private final TimeUnit timeUnit;
-    private boolean isStopped = false;
+    private final AdaptiveInterval interval;
+    private final Jitter jitter;
+    private volatile boolean isStopped = false;
+    private volatile long nextRunAtNanos = System.nanoTime();
 
-    public PollTask(ApiService apiService, DataWriter writer, BlockingQueue<Runnable> taskQueue, 
+    public PollTask(ApiService apiService, DataWriter writer, BlockingQueue<? super PollTask> taskQueue, 
                    long timeout, TimeUnit timeUnit) {
+        this(apiService, writer, taskQueue, timeout, timeUnit, null);
+    }
+
+    /**
+     * Конструктор с адаптивным интервалом опроса
+     * 
+     * @param interval контроллер интервала; если null, используется фиксированный таймаут
+     */
+    public PollTask(ApiService apiService, DataWriter writer, BlockingQueue<? super PollTask> taskQueue, 
+                   long timeout, TimeUnit timeUnit, AdaptiveInterval interval) {
+        this(apiService, writer, taskQueue, timeout, timeUnit, interval, Jitter.none());
+    }
+
+    /**
+     * Конструктор с адаптивным интервалом и случайным смещением интервала
+     * 
+     * @param interval контроллер интервала; если null, используется фиксированный таймаут
+     * @param jitter случайное смещение интервала между опросами
+     */
+    public PollTask(ApiService apiService, DataWriter writer, BlockingQueue<? super PollTask> taskQueue, 
+                   long timeout, TimeUnit timeUnit, AdaptiveInterval interval, Jitter jitter) {
         this.apiService = apiService;
         this.writer = writer;
         this.taskQueue = taskQueue;
         this.timeout = timeout;
         this.timeUnit = timeUnit;
+        this.interval = interval;
+        this.jitter = jitter;
     }
 
     @Override
@@ -43,21 +79,67 @@ public class PollTask implements Runnable {
             return;
         }
         
+        logger.info("Polling service: " + apiService.getServiceName());
+        List<ApiRecord> records = null;
+        Throwable error = null;
+        try {
+            // Запрос данных от API
+            records = apiService.fetchData();
+        } catch (IOException | RuntimeException e) {
+            error = e;
+        }
+        complete(records, error);
+    }
+
+    /**
+     * Запускает опрос, не дожидаясь ответа: запрос передается сервису асинхронно
+     * (обертка с отсеком ожидает ответ на исполнителе отсека), а запись результатов
+     * и планирование следующего опроса выполняются по завершении запроса
+     * 
+     * @param executor исполнитель для запроса сервиса без собственного отсека
+     * @return future, завершающийся после обработки результата опроса
+     */
+    public CompletableFuture<Void> start(Executor executor) {
+        if (isStopped) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        logger.info("Polling service: " + apiService.getServiceName());
+        return apiService.fetchDataAsync(executor).handle((records, error) -> {
+            complete(records, error);
+            return null;
+        });
+    }
+
+    /**
+     * Записывает результат опроса и планирует следующий опрос
+     * 
+     * @param records полученные записи
+     * @param error ошибка запроса или null
+     */
+    private void complete(List<ApiRecord> records, Throwable error) {
         String serviceName = apiService.getServiceName();
-        logger.info("Polling service: " + serviceName);
+        // Количество новых записей; -1 означает, что опрос завершился ошибкой
+        int newRecords = -1;
+        // Минимальная задержка следующего опроса, запрошенная слоем отказоустойчивости
+        long deferNanos = 0;
         
         try {
-            // Запрос данных от API
-            List<ApiRecord> records = apiService.fetchData();
+            rethrow(error);
             
             // Если получены новые записи, записываем их в файл
             if (records != null && !records.isEmpty()) {
                 logger.info("Got " + records.size() + " new records from " + serviceName);
                 writer.writeRecords(records);
+                newRecords = records.size();
             } else {
                 logger.info("No new records from " + serviceName);
+                newRecords = 0;
             }
             
+        } catch (CallNotPermittedException e) {
+            logger.info("Poll of " + serviceName + " deferred: " + e.getMessage());
+            deferNanos = e.getRetryAfterNanos();
         } catch (SocketTimeoutException e) {
             logger.log(Level.WARNING, "Timeout occurred while polling " + serviceName + ": " + e.getMessage(), e);
         } catch (ConnectException e) {
@@ -72,24 +154,51 @@ public class PollTask implements Runnable {
             logger.log(Level.SEVERE, "Unexpected error polling " + serviceName + ": " + e.getMessage(), e);
         } finally {
             if (!isStopped) {
-                scheduleNextExecution(serviceName);
+                scheduleNextExecution(serviceName, newRecords, deferNanos);
             }
         }
     }
     
     /**
-     * Планирует следующее выполнение задачи после таймаута
+     * Повторно выбрасывает ошибку запроса, чтобы обработать ее общими ветками
+     */
+    private static void rethrow(Throwable error) throws IOException {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error == null) {
+            return;
+        }
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        throw new IOException(error.getMessage(), error);
+    }
+
+    /**
+     * Планирует следующее выполнение задачи после таймаута.
+     * Поток не блокируется: задача сразу возвращается в очередь
+     * с новым моментом запуска и освобождает исполнителя.
      * 
      * @param serviceName имя сервиса для логирования
+     * @param newRecords количество новых записей в последнем опросе или -1 при ошибке
+     * @param deferNanos минимальная задержка, которую требует слой отказоустойчивости
      */
-    private void scheduleNextExecution(String serviceName) {
+    private void scheduleNextExecution(String serviceName, int newRecords, long deferNanos) {
         try {
-            // Имитируем задержку
-            timeUnit.sleep(timeout);
+            long delayNanos = Math.max(jitter.apply(nextDelayNanos(newRecords)), deferNanos);
+            nextRunAtNanos = System.nanoTime() + delayNanos;
             
             // Помещаем задачу обратно в очередь
             taskQueue.put(this);
-            logger.info("Scheduled next poll for " + serviceName + " after " + timeout + " " + timeUnit);
+            logger.info("Scheduled next poll for " + serviceName + " after " + 
+                       TimeUnit.NANOSECONDS.toMillis(delayNanos) + " ms");
         } catch (InterruptedException e) {
             logger.info("Poll task for " + serviceName + " was interrupted during scheduling");
             Thread.currentThread().interrupt();
@@ -104,6 +213,71 @@ public class PollTask implements Runnable {
         }
     }
 
+    /**
+     * Вычисляет задержку до следующего опроса с учетом результата текущего
+     * 
+     * @param newRecords количество новых записей или -1 при ошибке
+     * @return задержка в наносекундах
+     */
+    private long nextDelayNanos(int newRecords) {
+        if (interval == null) {
+            return timeUnit.toNanos(timeout);
+        }
+        // При ошибке интервал не меняется: частотой повторов управляет слой отказоустойчивости
+        return newRecords < 0 ? interval.currentNanos() : interval.onPoll(newRecords);
+    }
+
+    /**
+     * Пропускает текущий цикл опроса, сброшенный планировщиком при перегрузке,
+     * и возвращает задачу в очередь без изменения интервала
+     */
+    void skip() {
+        if (!isStopped) {
+            logger.warning("Shedding overdue poll for " + apiService.getServiceName());
+            scheduleNextExecution(apiService.getServiceName(), -1, 0);
+        }
+    }
+
+    /**
+     * @return время, прошедшее с наступления момента запуска задачи, в наносекундах
+     */
+    long overdueNanos() {
+        return System.nanoTime() - nextRunAtNanos;
+    }
+
+    /**
+     * @return имя опрашиваемого сервиса
+     */
+    public String getServiceName() {
+        return apiService.getServiceName();
+    }
+
+    /**
+     * Откладывает первый запуск задачи (используется для разнесения стартов)
+     * 
+     * @param delayNanos задержка первого запуска в наносекундах
+     */
+    void delayFirstRun(long delayNanos) {
+        nextRunAtNanos = System.nanoTime() + Math.max(0, delayNanos);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(nextRunAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other == this) {
+            return 0;
+        }
+        if (other instanceof PollTask) {
+            // Сравниваем разность, а не сами значения, чтобы корректно обработать переполнение nanoTime
+            return Long.signum(nextRunAtNanos - ((PollTask) other).nextRunAtNanos);
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+
     /**
      * Останавливает дальнейшее планирование задачи
      */
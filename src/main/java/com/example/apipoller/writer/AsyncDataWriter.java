@@ -0,0 +1,472 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.config.AppConfig.ConfigurationException;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Асинхронная ступень записи поверх другого писателя.
+ * Вызов {@link #writeRecords(List)} только помещает записи в ограниченный буфер
+ * в памяти; выделенный поток сбрасывает их в исходный писатель пакетами.
+ * Используются два буфера: пока один записывается на диск, другой принимает
+ * новые записи, и буферы меняются местами при каждом сбросе.
+ * <p>
+ * Поток сброса ждет накопления пакета не дольше времени задержки (linger),
+ * после чего записывает все накопленное. Сброс на устройство (fsync) выполняется
+ * по политике {@link FsyncPolicy}. Если буфер заполнен, вызывающий поток ждет
+ * освобождения места не дольше заданного времени (или не ждет вовсе в режиме
+ * отказа) и получает {@link WriterOverflowException}.
+ * <p>
+ * Пакет, запись которого завершилась ошибкой, не отбрасывается: он возвращается
+ * в начало буфера и записывается повторно с растущей паузой, сохраняя порядок
+ * записей. Пока пакет не записан, он занимает место в буфере, поэтому при
+ * длительном отказе производители получают {@link WriterOverflowException},
+ * а {@link #sync()} сообщает об ошибке. Записи теряются, только если
+ * последняя попытка при закрытии тоже не удалась.
+ * <p>
+ * Пакет, объединяющий несколько пакетов журнала упреждающей записи, передается
+ * исходному писателю с наибольшим из их номеров.
+ */
+public class AsyncDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(AsyncDataWriter.class.getName());
+    private static final long RETRY_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long RETRY_MAX_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Политика сброса данных на устройство хранения
+     */
+    public enum FsyncPolicy {
+        /** Сброс выполняет операционная система */
+        NEVER,
+        /** Сброс после каждого записанного пакета */
+        BATCH,
+        /** Сброс не чаще одного раза за интервал, если были записи */
+        INTERVAL;
+
+        /**
+         * @param name название политики: never, batch или interval
+         * @return политика сброса
+         * @throws ConfigurationException если политика не поддерживается
+         */
+        public static FsyncPolicy fromString(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new ConfigurationException("Unsupported fsync policy: " + name +
+                                                ". Policy must be 'never', 'batch' or 'interval'");
+            }
+        }
+    }
+
+    private final DataWriter delegate;
+    private final int capacity;
+    private final int batchRecords;
+    private final long lingerNanos;
+    private final long blockNanos;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private final Condition closing = lock.newCondition();
+    private List<ApiRecord> active = new ArrayList<>();
+    private List<ApiRecord> spare = new ArrayList<>();
+    private long firstBufferedNanos;
+    // Наибольший номер пакета журнала среди записей буфера и пакета, который сейчас записывается
+    private long activeSequence;
+    private long flushingSequence;
+    // Время поступления самой старой записи пакета, который сейчас записывается
+    private long flushingSinceNanos;
+    private boolean flushing = false;
+    private boolean closed = false;
+
+    private final LongAdder writtenRecords = new LongAdder();
+    private final LongAdder rejectedRecords = new LongAdder();
+    private final LongAdder failedRecords = new LongAdder();
+    private volatile IOException lastError;
+    // Ошибка записи пакета, который ожидает повтора в начале буфера
+    private volatile IOException retryError;
+    private final Thread flusher;
+
+    /**
+     * @param delegate писатель, выполняющий запись на диск
+     * @param capacity максимальное количество записей в буфере
+     * @param batchRecords количество записей, при котором пакет сбрасывается без ожидания
+     * @param lingerMillis максимальное время ожидания накопления пакета
+     * @param blockMillis время ожидания места в заполненном буфере; 0 - немедленный отказ
+     * @param fsyncPolicy политика сброса на устройство
+     * @param fsyncIntervalMillis интервал сброса для политики INTERVAL
+     */
+    public AsyncDataWriter(DataWriter delegate, int capacity, int batchRecords, long lingerMillis,
+                           long blockMillis, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this.delegate = delegate;
+        this.capacity = Math.max(1, capacity);
+        this.batchRecords = Math.max(1, Math.min(batchRecords, this.capacity));
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.blockNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockMillis));
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMillis));
+        this.flusher = new Thread(this::flushLoop, "async-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Оборачивает писатель асинхронной ступенью по настройкам ASYNC_WRITER_CAPACITY
+     * (по умолчанию 10000 записей), ASYNC_WRITER_BATCH_RECORDS (1000),
+     * ASYNC_WRITER_LINGER_MILLIS (100), ASYNC_WRITER_BLOCK_MILLIS (5000),
+     * FSYNC_POLICY (never) и FSYNC_INTERVAL_MILLIS (1000).
+     * Если ASYNC_WRITER=false, писатель возвращается без изменений.
+     *
+     * @param delegate писатель, выполняющий запись на диск
+     * @return асинхронный или исходный писатель
+     */
+    public static DataWriter fromConfig(DataWriter delegate) {
+        if (!Boolean.parseBoolean(AppConfig.getSetting("ASYNC_WRITER", "true"))) {
+            return delegate;
+        }
+        return fromConfig(delegate, AppConfig.getIntSetting("ASYNC_WRITER_BLOCK_MILLIS", 5000));
+    }
+
+    /**
+     * Оборачивает писатель асинхронной ступенью по тем же настройкам,
+     * но с явно заданным временем ожидания места в буфере
+     *
+     * @param delegate писатель, выполняющий запись на диск
+     * @param blockMillis время ожидания места в заполненном буфере; 0 - немедленный отказ
+     * @return асинхронный писатель
+     */
+    public static AsyncDataWriter fromConfig(DataWriter delegate, long blockMillis) {
+        return new AsyncDataWriter(delegate,
+                                   AppConfig.getIntSetting("ASYNC_WRITER_CAPACITY", 10000),
+                                   AppConfig.getIntSetting("ASYNC_WRITER_BATCH_RECORDS", 1000),
+                                   AppConfig.getIntSetting("ASYNC_WRITER_LINGER_MILLIS", 100),
+                                   blockMillis,
+                                   FsyncPolicy.fromString(AppConfig.getSetting("FSYNC_POLICY", "never")),
+                                   AppConfig.getIntSetting("FSYNC_INTERVAL_MILLIS", 1000));
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        writeRecords(records, 0);
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records, long sequence) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Async writer is closed");
+            }
+            long remainingNanos = blockNanos;
+            // Пакет больше емкости принимается в пустой буфер, иначе он не был бы принят никогда
+            while (!active.isEmpty() && active.size() + records.size() > capacity) {
+                if (remainingNanos <= 0) {
+                    rejectedRecords.add(records.size());
+                    throw new WriterOverflowException("Async writer buffer is full (" + active.size() + "/" +
+                                                      capacity + " records), rejected " + records.size() +
+                                                      " records", records.size());
+                }
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+                if (closed) {
+                    throw new IOException("Async writer is closed");
+                }
+            }
+            if (active.isEmpty()) {
+                firstBufferedNanos = System.nanoTime();
+            }
+            active.addAll(records);
+            activeSequence = Math.max(activeSequence, sequence);
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for async writer buffer");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Цикл потока сброса: ждет записи, выдерживает задержку накопления пакета,
+     * меняет буферы местами и записывает заполненный буфер вне блокировки
+     */
+    private void flushLoop() {
+        long lastSyncNanos = System.nanoTime();
+        long retryNanos = 0;
+        boolean unsynced = false;
+        while (true) {
+            List<ApiRecord> batch;
+            long sequence;
+            lock.lock();
+            try {
+                while (active.isEmpty() && !closed) {
+                    if (unsynced && fsyncPolicy == FsyncPolicy.INTERVAL) {
+                        long untilSync = lastSyncNanos + fsyncIntervalNanos - System.nanoTime();
+                        if (untilSync <= 0) {
+                            break;
+                        }
+                        notEmpty.awaitNanos(untilSync);
+                    } else {
+                        notEmpty.await();
+                    }
+                }
+                if (active.isEmpty() && closed) {
+                    break;
+                }
+                // Ждем накопления пакета, но не дольше задержки с момента первой записи
+                long lingerRemaining = firstBufferedNanos + lingerNanos - System.nanoTime();
+                while (!active.isEmpty() && active.size() < batchRecords && !closed && lingerRemaining > 0) {
+                    lingerRemaining = notEmpty.awaitNanos(lingerRemaining);
+                }
+                batch = active;
+                active = spare;
+                spare = batch;
+                sequence = activeSequence;
+                flushingSequence = sequence;
+                activeSequence = 0;
+                flushing = !batch.isEmpty();
+                flushingSinceNanos = firstBufferedNanos;
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                logger.warning("Async writer flusher interrupted");
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException failure = batch.isEmpty() ? null : write(batch, sequence);
+            if (!batch.isEmpty() && failure == null) {
+                unsynced = true;
+            }
+            if (unsynced && (fsyncPolicy == FsyncPolicy.BATCH || (fsyncPolicy == FsyncPolicy.INTERVAL &&
+                             System.nanoTime() - lastSyncNanos >= fsyncIntervalNanos))) {
+                sync(batch.size());
+                lastSyncNanos = System.nanoTime();
+                unsynced = false;
+            }
+
+            lock.lock();
+            try {
+                if (failure == null) {
+                    batch.clear();
+                    retryError = null;
+                    retryNanos = 0;
+                } else if (closed) {
+                    failedRecords.add(batch.size());
+                    lastError = failure;
+                    logger.severe("Async writer is closing, dropping " + batch.size() + " unwritten records");
+                    batch.clear();
+                } else {
+                    requeue(batch);
+                    retryError = failure;
+                    retryNanos = retryNanos == 0 ? RETRY_MIN_NANOS : Math.min(RETRY_MAX_NANOS, retryNanos * 2);
+                    logger.warning("Retrying " + active.size() + " buffered records in " +
+                                  TimeUnit.NANOSECONDS.toMillis(retryNanos) + " ms");
+                }
+                flushing = false;
+                drained.signalAll();
+                
+                long pauseNanos = failure == null ? 0 : retryNanos;
+                while (pauseNanos > 0 && !closed) {
+                    pauseNanos = closing.awaitNanos(pauseNanos);
+                }
+            } catch (InterruptedException e) {
+                logger.warning("Async writer flusher interrupted");
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        lock.lock();
+        try {
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Передает пакет исходному писателю
+     *
+     * @return ошибка записи или null, если пакет записан
+     */
+    private IOException write(List<ApiRecord> batch, long sequence) {
+        try {
+            delegate.writeRecords(batch, sequence);
+            writtenRecords.add(batch.size());
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Async writer failed to write " + batch.size() + " records: " +
+                      e.getMessage(), e);
+            return e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает незаписанный пакет в начало буфера перед записями, принятыми за время его записи.
+     * Вызывается под блокировкой.
+     */
+    private void requeue(List<ApiRecord> batch) {
+        batch.addAll(active);
+        active.clear();
+        spare = active;
+        active = batch;
+        firstBufferedNanos = flushingSinceNanos;
+        activeSequence = Math.max(activeSequence, flushingSequence);
+    }
+
+    private void sync(int records) {
+        try {
+            delegate.sync();
+        } catch (IOException e) {
+            lastError = e;
+            logger.log(Level.SEVERE, "Async writer failed to sync after " + records + " records: " +
+                      e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ожидает, пока все принятые записи будут переданы исходному писателю, и сбрасывает их на устройство
+     */
+    @Override
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            while ((!active.isEmpty() || flushing) && flusher.isAlive()) {
+                IOException failure = retryError;
+                if (failure != null) {
+                    throw new IOException("Async writer is retrying " + active.size() + " buffered records: " +
+                                          failure.getMessage(), failure);
+                }
+                notEmpty.signal();
+                drained.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for async writer to drain");
+        } finally {
+            lock.unlock();
+        }
+        delegate.sync();
+    }
+
+    /**
+     * Перестает принимать записи, дожидается сброса буфера и закрывает исходный писатель.
+     * Если какая-либо запись завершилась ошибкой, она сообщается после закрытия.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            closing.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            sync(0);
+        }
+        delegate.close();
+
+        IOException error = lastError;
+        if (error != null) {
+            throw new IOException("Async writer lost " + failedRecords.sum() + " records: " +
+                                  error.getMessage(), error);
+        }
+    }
+
+    /**
+     * @return количество записей, ожидающих сброса, включая ожидающие повтора
+     */
+    public int getBufferedRecords() {
+        lock.lock();
+        try {
+            return active.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return возраст самой старой записи, еще не переданной исходному писателю, в миллисекундах;
+     *         0, если буфер пуст
+     */
+    public long getLagMillis() {
+        lock.lock();
+        try {
+            long since;
+            if (flushing) {
+                since = flushingSinceNanos;
+            } else if (!active.isEmpty()) {
+                since = firstBufferedNanos;
+            } else {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getWrittenRecords() {
+        return writtenRecords.sum();
+    }
+
+    public long getRejectedRecords() {
+        return rejectedRecords.sum();
+    }
+
+    /**
+     * @return количество записей, потерянных из-за ошибки последней попытки записи при закрытии
+     */
+    public long getFailedRecords() {
+        return failedRecords.sum();
+    }
+
+    /**
+     * @return true, если пакет в начале буфера ожидает повторной записи после ошибки
+     */
+    public boolean isRetrying() {
+        return retryError != null;
+    }
+
+    /**
+     * @return краткое описание состояния буфера для вывода пользователю
+     */
+    public String describe() {
+        return "buffered=" + getBufferedRecords() +
+               ", lag=" + getLagMillis() + "ms" +
+               ", written=" + getWrittenRecords() +
+               ", rejected=" + getRejectedRecords() +
+               ", failed=" + getFailedRecords() +
+               (isRetrying() ? ", retrying" : "");
+    }
+}
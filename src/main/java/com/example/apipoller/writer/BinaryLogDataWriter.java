@@ -0,0 +1,216 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Писатель двоичного журнала записей.
+ * Записи кодируются кадрами с длиной и контрольной суммой (см. {@link BinaryRecordCodec})
+ * и дописываются в заранее выделенные сегменты, отображенные в память
+ * ({@link MappedByteBuffer}); для вывода output.binlog сегменты называются
+ * output-000001.binlog, output-000002.binlog и т.д. Размер сегмента задается
+ * настройкой BINLOG_SEGMENT_MB (по умолчанию 64). Длина кадра записывается
+ * последней, поэтому читатель никогда не увидит частично записанный кадр.
+ * При закрытии сегмент усекается до конца записанных кадров, а
+ * {@link #getWrittenBytes()} учитывает только записанные кадры, поэтому
+ * выделенное место не принимается за данные при ротации и сжатии вывода.
+ * Для чтения журнала используется {@link BinaryLogReader}.
+ */
+public class BinaryLogDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(BinaryLogDataWriter.class.getName());
+
+    private final Path outputPath;
+    private final long segmentBytes;
+    private final Object writeLock = new Object();
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int sequence = 0;
+    private long closedBytes = 0;
+
+    public BinaryLogDataWriter(Path outputPath) {
+        this(outputPath, 1024L * 1024L * Math.max(1, AppConfig.getIntSetting("BINLOG_SEGMENT_MB", 64)));
+    }
+
+    /**
+     * @param outputPath путь к выводу; сегменты создаются рядом с ним
+     * @param segmentBytes размер выделяемого сегмента в байтах
+     */
+    public BinaryLogDataWriter(Path outputPath, long segmentBytes) {
+        this.outputPath = outputPath;
+        this.segmentBytes = Math.min(Integer.MAX_VALUE, Math.max(1024, segmentBytes));
+
+        // Продолжаем запись в последний сегмент предыдущего запуска
+        try {
+            List<Path> existing = listSegments(outputPath);
+            if (!existing.isEmpty()) {
+                Path last = existing.get(existing.size() - 1);
+                sequence = sequenceOf(last);
+                openSegment(last, 0);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error opening binary log segment", e);
+        }
+    }
+
+    /**
+     * Возвращает путь к сегменту журнала с указанным номером
+     */
+    static Path segmentPath(Path outputPath, int sequence) {
+        String fileName = outputPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String stem = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : ".binlog";
+        return outputPath.resolveSibling(String.format("%s-%06d%s", stem, sequence, extension));
+    }
+
+    /**
+     * Возвращает существующие сегменты журнала в порядке записи
+     */
+    static List<Path> listSegments(Path outputPath) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        Path first = segmentPath(outputPath, 1);
+        Path directory = first.toAbsolutePath().getParent();
+        String fileName = first.getFileName().toString();
+        String glob = fileName.substring(0, fileName.lastIndexOf("000001")) + "[0-9][0-9][0-9][0-9][0-9][0-9]" +
+                      fileName.substring(fileName.lastIndexOf("000001") + 6);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Возвращает номер сегмента по имени его файла
+     */
+    private static int sequenceOf(Path segmentPath) {
+        String fileName = segmentPath.getFileName().toString();
+        int dash = fileName.lastIndexOf('-');
+        return Integer.parseInt(fileName.substring(dash + 1, dash + 7));
+    }
+
+    /**
+     * Отображает сегмент в память и находит конец записанных кадров
+     *
+     * @param path путь к сегменту
+     * @param minBytes минимальный размер сегмента
+     */
+    private void openSegment(Path path, long minBytes) throws IOException {
+        closeSegment();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), Math.max(segmentBytes, minBytes));
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        int position = 0;
+        int length;
+        while ((length = BinaryRecordCodec.frameLength(segment, position)) > 0) {
+            position += BinaryRecordCodec.FRAME_HEADER_SIZE + length;
+        }
+        segment.position(position);
+        logger.info("Opened binary log segment " + path + " at offset " + position);
+    }
+
+    /**
+     * Сбрасывает текущий сегмент на устройство и усекает его файл до конца
+     * записанных кадров: отображение продлевает файл до размера сегмента
+     */
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            int end = segment.position();
+            segment.force();
+            segment = null;
+            closedBytes += end;
+            try {
+                channel.truncate(end);
+            } catch (IOException e) {
+                // Там, где отображенный файл нельзя усечь (Windows), хвост остается нулевым
+                logger.log(Level.WARNING, "Binary log segment cannot be truncated while mapped", e);
+            }
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            try {
+                for (ApiRecord record : records) {
+                    ByteBuffer payload = BinaryRecordCodec.encode(record.toMap(), scratch);
+                    scratch = payload;
+                    int frameSize = BinaryRecordCodec.FRAME_HEADER_SIZE + payload.remaining();
+                    if (segment == null || segment.remaining() < frameSize) {
+                        openSegment(segmentPath(outputPath, ++sequence), frameSize);
+                    }
+                    appendFrame(payload);
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error writing to binary log", e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Дописывает кадр: сначала нагрузку и контрольную сумму, затем длину,
+     * которая делает кадр видимым для читателей
+     */
+    private void appendFrame(ByteBuffer payload) {
+        int position = segment.position();
+        int length = payload.remaining();
+        int checksum = BinaryRecordCodec.checksum(payload);
+        segment.put(position + BinaryRecordCodec.FRAME_HEADER_SIZE, payload, payload.position(), length);
+        segment.putInt(position + 4, checksum);
+        segment.putInt(position, length);
+        segment.position(position + BinaryRecordCodec.FRAME_HEADER_SIZE + length);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * @return объем кадров в сегментах, открытых этим писателем, без выделенного хвоста сегмента
+     */
+    @Override
+    public long getWrittenBytes() {
+        synchronized (writeLock) {
+            return closedBytes + (segment != null ? segment.position() : 0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            closeSegment();
+        }
+    }
+}
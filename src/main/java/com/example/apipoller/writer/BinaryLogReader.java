@@ -0,0 +1,115 @@
+package com.example.apipoller.writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Читатель двоичного журнала, записанного {@link BinaryLogDataWriter}.
+ * Сегменты отображаются в память только для чтения, а нагрузка кадров передается
+ * потребителю срезами отображенного буфера без копирования. Чтение сегмента
+ * прекращается на первом отсутствующем или поврежденном кадре.
+ */
+public class BinaryLogReader implements Closeable {
+
+    /**
+     * Потребитель нагрузки кадров
+     */
+    @FunctionalInterface
+    public interface FrameConsumer {
+        /**
+         * @param payload нагрузка кадра только для чтения; действительна, пока читатель не закрыт
+         */
+        void accept(ByteBuffer payload) throws IOException;
+    }
+
+    private final List<FileChannel> channels = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * Отображает все существующие сегменты журнала
+     *
+     * @param outputPath путь к выводу, переданный писателю
+     * @throws IOException если сегмент не удалось открыть
+     */
+    public BinaryLogReader(Path outputPath) throws IOException {
+        try {
+            for (Path path : BinaryLogDataWriter.listSegments(outputPath)) {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                channels.add(channel);
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Передает потребителю нагрузку всех кадров журнала по порядку
+     *
+     * @param consumer потребитель нагрузки
+     * @return количество прочитанных кадров
+     * @throws IOException если потребитель завершился ошибкой
+     */
+    public long forEachFrame(FrameConsumer consumer) throws IOException {
+        long frames = 0;
+        for (MappedByteBuffer segment : segments) {
+            int position = 0;
+            int length;
+            while ((length = BinaryRecordCodec.frameLength(segment, position)) > 0) {
+                consumer.accept(segment.slice(position + BinaryRecordCodec.FRAME_HEADER_SIZE, length)
+                                       .asReadOnlyBuffer());
+                position += BinaryRecordCodec.FRAME_HEADER_SIZE + length;
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Читает и декодирует все записи журнала
+     *
+     * @return поля записей в порядке записи
+     * @throws IOException если журнал не удалось прочитать
+     */
+    public List<Map<String, Object>> readAll() throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>();
+        forEachFrame(payload -> records.add(decode(payload)));
+        return records;
+    }
+
+    /**
+     * Декодирует нагрузку кадра в поля записи
+     *
+     * @param payload нагрузка кадра
+     * @return поля записи
+     */
+    public static Map<String, Object> decode(ByteBuffer payload) {
+        return BinaryRecordCodec.decode(payload);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        channels.clear();
+        segments.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.apipoller.writer;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Двоичное представление записи для журнала {@link BinaryLogDataWriter}.
+ * <p>
+ * Кадр: длина полезной нагрузки (int), CRC32 нагрузки (int), нагрузка.
+ * Нагрузка: количество полей (short), затем для каждого поля - длина имени (short),
+ * имя в UTF-8, тег типа (byte) и значение. Нулевая длина кадра означает конец данных.
+ */
+final class BinaryRecordCodec {
+    static final int FRAME_HEADER_SIZE = 8;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_BOOLEAN = 4;
+    private static final byte TAG_INT = 5;
+
+    private BinaryRecordCodec() {
+    }
+
+    /**
+     * Кодирует поля записи в буфер, при необходимости увеличивая его
+     *
+     * @param fields поля записи
+     * @param scratch буфер для повторного использования
+     * @return буфер с нагрузкой, подготовленный для чтения
+     */
+    static ByteBuffer encode(Map<String, Object> fields, ByteBuffer scratch) {
+        ByteBuffer buffer = scratch;
+        while (true) {
+            buffer.clear();
+            try {
+                buffer.putShort((short) fields.size());
+                for (Map.Entry<String, Object> field : fields.entrySet()) {
+                    byte[] name = field.getKey().getBytes(StandardCharsets.UTF_8);
+                    buffer.putShort((short) name.length).put(name);
+                    putValue(buffer, field.getValue());
+                }
+                buffer.flip();
+                return buffer;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private static void putValue(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            buffer.put(TAG_NULL);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            buffer.put(TAG_INT).putInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            buffer.put(TAG_LONG).putLong((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            buffer.put(TAG_DOUBLE).putDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            buffer.put(TAG_BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+        } else {
+            byte[] text = value.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.put(TAG_STRING).putInt(text.length).put(text);
+        }
+    }
+
+    /**
+     * Декодирует нагрузку кадра
+     *
+     * @param payload нагрузка; позиция буфера не изменяется
+     * @return поля записи в исходном порядке
+     */
+    static Map<String, Object> decode(ByteBuffer payload) {
+        ByteBuffer buffer = payload.duplicate();
+        int count = buffer.getShort() & 0xFFFF;
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = getString(buffer, buffer.getShort() & 0xFFFF);
+            byte tag = buffer.get();
+            switch (tag) {
+                case TAG_NULL:
+                    fields.put(name, null);
+                    break;
+                case TAG_INT:
+                    fields.put(name, buffer.getInt());
+                    break;
+                case TAG_LONG:
+                    fields.put(name, buffer.getLong());
+                    break;
+                case TAG_DOUBLE:
+                    fields.put(name, buffer.getDouble());
+                    break;
+                case TAG_BOOLEAN:
+                    fields.put(name, buffer.get() != 0);
+                    break;
+                case TAG_STRING:
+                    fields.put(name, getString(buffer, buffer.getInt()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown field tag: " + tag);
+            }
+        }
+        return fields;
+    }
+
+    private static String getString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return CRC32 содержимого буфера от позиции до предела; позиция не изменяется
+     */
+    static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Проверяет кадр, начинающийся в указанной позиции сегмента
+     *
+     * @param segment содержимое сегмента
+     * @param position позиция начала кадра
+     * @return длина нагрузки или -1, если в позиции нет целого кадра с верной контрольной суммой
+     */
+    static int frameLength(ByteBuffer segment, int position) {
+        if (position + FRAME_HEADER_SIZE > segment.limit()) {
+            return -1;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || length > segment.limit() - position - FRAME_HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer payload = segment.slice(position + FRAME_HEADER_SIZE, length);
+        return checksum(payload) == segment.getInt(position + 4) ? length : -1;
+    }
+}
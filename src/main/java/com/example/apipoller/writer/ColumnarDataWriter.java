@@ -0,0 +1,294 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Писатель колоночного формата.
+ * Записи каждого типа пишутся в отдельный файл рядом с основным
+ * (например, output-weather.columnar для output.columnar) фрагментами:
+ * строки накапливаются в памяти и записываются по столбцам, когда их набирается
+ * COLUMNAR_CHUNK_ROWS (по умолчанию 4096) или с первой из них прошло
+ * COLUMNAR_CHUNK_MILLIS (по умолчанию 60000). Кодирование столбцов описано
+ * в {@link ColumnarEncoding}.
+ * <p>
+ * Фрагмент состоит из заголовка (метка, длины каталога и данных, контрольная
+ * сумма каталога), каталога столбцов со смещениями, контрольными суммами
+ * и статистикой и данных столбцов. Оборванный при сбое фрагмент отбрасывается
+ * при следующем открытии файла. Для чтения используется {@link ColumnarReader}.
+ */
+public class ColumnarDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(ColumnarDataWriter.class.getName());
+
+    /**
+     * Файл записей одного типа и накопленные для него строки
+     */
+    private static class TypeFile {
+        final Path path;
+        final FileChannel channel;
+        final List<Map<String, Object>> rows = new ArrayList<>();
+        long firstBufferedMillis;
+
+        TypeFile(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    private final Path outputPath;
+    private final int chunkRows;
+    private final long chunkMillis;
+    private final Object writeLock = new Object();
+    private final Map<String, TypeFile> files = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public ColumnarDataWriter(Path outputPath) {
+        this(outputPath, AppConfig.getIntSetting("COLUMNAR_CHUNK_ROWS", 4096),
+             AppConfig.getIntSetting("COLUMNAR_CHUNK_MILLIS", 60000));
+    }
+
+    /**
+     * Конструктор с явно заданными границами фрагмента
+     *
+     * @param outputPath путь к основному файлу; файлы типов создаются рядом с ним
+     * @param chunkRows количество строк, после которого фрагмент записывается
+     * @param chunkMillis время накопления фрагмента в миллисекундах
+     */
+    public ColumnarDataWriter(Path outputPath, int chunkRows, long chunkMillis) {
+        this.outputPath = outputPath;
+        this.chunkRows = Math.max(1, chunkRows);
+        this.chunkMillis = Math.max(1, chunkMillis);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "columnar-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, this.chunkMillis / 4);
+        flusher.scheduleWithFixedDelay(this::flushExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Возвращает путь к файлу записей указанного типа
+     * @param type тип записей
+     * @return путь вида output-type.columnar
+     */
+    Path fileFor(String type) {
+        String fileName = outputPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String typedName = dot > 0
+            ? fileName.substring(0, dot) + "-" + type + fileName.substring(dot)
+            : fileName + "-" + type;
+        return outputPath.resolveSibling(typedName);
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            try {
+                for (ApiRecord record : records) {
+                    TypeFile file = files.get(record.getType());
+                    if (file == null) {
+                        file = open(record.getType());
+                        files.put(record.getType(), file);
+                    }
+                    if (file.rows.isEmpty()) {
+                        file.firstBufferedMillis = System.currentTimeMillis();
+                    }
+                    file.rows.add(record.toMap());
+                    if (file.rows.size() >= chunkRows) {
+                        writeChunk(file);
+                    }
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error writing to columnar file", e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Открывает файл типа для дописывания, отбрасывая оборванный последний фрагмент
+     */
+    private TypeFile open(String type) throws IOException {
+        Path path = fileFor(type);
+        long validLength = 0;
+        if (Files.exists(path)) {
+            try (ColumnarReader reader = new ColumnarReader(path)) {
+                validLength = reader.getValidLength();
+            }
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                               StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() > validLength) {
+            logger.warning("Discarding " + (channel.size() - validLength) +
+                          " bytes of incomplete chunk at the end of " + path);
+            channel.truncate(validLength);
+        }
+        return new TypeFile(path, channel);
+    }
+
+    /**
+     * Записывает накопленные строки фрагментом. При ошибке файл усекается
+     * до начала фрагмента, а строки остаются в памяти до следующей попытки.
+     */
+    private void writeChunk(TypeFile file) throws IOException {
+        List<Map<String, Object>> rows = file.rows;
+        TreeSet<String> names = new TreeSet<>();
+        for (Map<String, Object> row : rows) {
+            names.addAll(row.keySet());
+        }
+
+        ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ColumnarEncoding.writeVarLong(directory, rows.size());
+        ColumnarEncoding.writeVarLong(directory, names.size());
+        List<Object> values = new ArrayList<>(rows.size());
+        for (String name : names) {
+            values.clear();
+            for (Map<String, Object> row : rows) {
+                values.add(row.get(name));
+            }
+            ColumnarEncoding.EncodedColumn column = ColumnarEncoding.encode(values);
+            CRC32 crc = new CRC32();
+            crc.update(column.data);
+
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ColumnarEncoding.writeVarLong(directory, nameBytes.length);
+            directory.write(nameBytes, 0, nameBytes.length);
+            directory.write(column.encoding);
+            ColumnarEncoding.writeVarLong(directory, data.size());
+            ColumnarEncoding.writeVarLong(directory, column.data.length);
+            ColumnarEncoding.writeVarLong(directory, crc.getValue());
+            ColumnarEncoding.writeVarLong(directory, column.nullCount);
+            ColumnarEncoding.writeVarLong(directory, ColumnarEncoding.zigzag(column.min));
+            ColumnarEncoding.writeVarLong(directory, ColumnarEncoding.zigzag(column.max));
+            data.write(column.data, 0, column.data.length);
+        }
+
+        byte[] directoryBytes = directory.toByteArray();
+        CRC32 directoryCrc = new CRC32();
+        directoryCrc.update(directoryBytes);
+        ByteBuffer chunk = ByteBuffer.allocate(ColumnarReader.CHUNK_HEADER_SIZE + directoryBytes.length + data.size());
+        chunk.putInt(ColumnarReader.CHUNK_MAGIC)
+             .putInt(directoryBytes.length)
+             .putInt(data.size())
+             .putInt((int) directoryCrc.getValue())
+             .put(directoryBytes)
+             .put(data.toByteArray())
+             .flip();
+
+        long start = file.channel.size();
+        try {
+            while (chunk.hasRemaining()) {
+                file.channel.write(chunk);
+            }
+        } catch (IOException e) {
+            try {
+                file.channel.truncate(start);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+        rows.clear();
+    }
+
+    /**
+     * Записывает фрагменты, строки которых накапливаются дольше заданного времени
+     */
+    private void flushExpired() {
+        synchronized (writeLock) {
+            long now = System.currentTimeMillis();
+            for (TypeFile file : files.values()) {
+                if (!file.rows.isEmpty() && now - file.firstBufferedMillis >= chunkMillis) {
+                    try {
+                        writeChunk(file);
+                    } catch (IOException e) {
+                        logger.log(Level.SEVERE, "Error writing columnar chunk to " + file.path, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает все накопленные строки неполными фрагментами и сбрасывает файлы на устройство
+     */
+    @Override
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            for (TypeFile file : files.values()) {
+                if (!file.rows.isEmpty()) {
+                    writeChunk(file);
+                }
+                file.channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * @return суммарный размер файлов типов по открытым каналам; накопленные строки не учитываются
+     */
+    @Override
+    public long getWrittenBytes() throws IOException {
+        synchronized (writeLock) {
+            long size = 0;
+            for (TypeFile file : files.values()) {
+                size += file.channel.size();
+            }
+            return size;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        synchronized (writeLock) {
+            IOException failure = null;
+            for (TypeFile file : files.values()) {
+                try {
+                    if (!file.rows.isEmpty()) {
+                        writeChunk(file);
+                    }
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Error writing columnar chunk to " + file.path, e);
+                    failure = e;
+                }
+                try {
+                    file.channel.close();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Error closing columnar file " + file.path, e);
+                    failure = e;
+                }
+            }
+            files.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
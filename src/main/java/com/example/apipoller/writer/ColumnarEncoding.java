@@ -0,0 +1,283 @@
+package com.example.apipoller.writer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кодирование столбцов колоночного формата ({@link ColumnarDataWriter}).
+ * <ul>
+ *     <li>LONG - целые числа: первое значение и разности соседних значений в zigzag varint;</li>
+ *     <li>DOUBLE - числа с плавающей точкой: XOR с предыдущим значением, от которого
+ *     записываются только значащие байты;</li>
+ *     <li>BOOLEAN - битовая карта;</li>
+ *     <li>DICTIONARY - строки: словарь различных значений и номера в нем в varint;</li>
+ *     <li>NULL - все значения отсутствуют.</li>
+ * </ul>
+ * Данные столбца начинаются с флага наличия пропусков; если он установлен,
+ * далее следует битовая карта присутствующих значений.
+ */
+final class ColumnarEncoding {
+    static final byte NULL = 0;
+    static final byte LONG = 1;
+    static final byte DOUBLE = 2;
+    static final byte BOOLEAN = 3;
+    static final byte DICTIONARY = 4;
+
+    private static final int XOR_ZERO = 0x80;
+
+    private ColumnarEncoding() {
+    }
+
+    /**
+     * Закодированный столбец одного фрагмента и его статистика
+     */
+    static class EncodedColumn {
+        final byte encoding;
+        final byte[] data;
+        final int nullCount;
+        // Для LONG и DOUBLE - минимум и максимум (DOUBLE хранит биты значения), для DICTIONARY - размер словаря
+        final long min;
+        final long max;
+
+        EncodedColumn(byte encoding, byte[] data, int nullCount, long min, long max) {
+            this.encoding = encoding;
+            this.data = data;
+            this.nullCount = nullCount;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    /**
+     * Выбирает кодирование по типам присутствующих значений и кодирует столбец
+     *
+     * @param values значения столбца по строкам фрагмента, null - пропуск
+     * @return закодированный столбец
+     */
+    static EncodedColumn encode(List<Object> values) {
+        List<Object> present = new ArrayList<>(values.size());
+        boolean integral = true;
+        boolean numeric = true;
+        boolean bool = true;
+        for (Object value : values) {
+            if (value == null) {
+                continue;
+            }
+            present.add(value);
+            integral &= value instanceof Long || value instanceof Integer ||
+                        value instanceof Short || value instanceof Byte;
+            numeric &= value instanceof Number;
+            bool &= value instanceof Boolean;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int nullCount = values.size() - present.size();
+        out.write(nullCount > 0 ? 1 : 0);
+        if (nullCount > 0) {
+            byte[] bitmap = new byte[(values.size() + 7) / 8];
+            for (int i = 0; i < values.size(); i++) {
+                if (values.get(i) != null) {
+                    bitmap[i / 8] |= (byte) (1 << (i % 8));
+                }
+            }
+            out.write(bitmap, 0, bitmap.length);
+        }
+
+        if (present.isEmpty()) {
+            return new EncodedColumn(NULL, out.toByteArray(), nullCount, 0, 0);
+        }
+        if (integral) {
+            return encodeLongs(present, out, nullCount);
+        }
+        if (numeric) {
+            return encodeDoubles(present, out, nullCount);
+        }
+        if (bool) {
+            byte[] bits = new byte[(present.size() + 7) / 8];
+            for (int i = 0; i < present.size(); i++) {
+                if ((Boolean) present.get(i)) {
+                    bits[i / 8] |= (byte) (1 << (i % 8));
+                }
+            }
+            out.write(bits, 0, bits.length);
+            return new EncodedColumn(BOOLEAN, out.toByteArray(), nullCount, 0, 0);
+        }
+        return encodeDictionary(present, out, nullCount);
+    }
+
+    private static EncodedColumn encodeLongs(List<Object> present, ByteArrayOutputStream out, int nullCount) {
+        long previous = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Object value : present) {
+            long current = ((Number) value).longValue();
+            writeVarLong(out, zigzag(current - previous));
+            previous = current;
+            min = Math.min(min, current);
+            max = Math.max(max, current);
+        }
+        return new EncodedColumn(LONG, out.toByteArray(), nullCount, min, max);
+    }
+
+    private static EncodedColumn encodeDoubles(List<Object> present, ByteArrayOutputStream out, int nullCount) {
+        long previousBits = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (Object value : present) {
+            double current = ((Number) value).doubleValue();
+            long bits = Double.doubleToRawLongBits(current);
+            long xor = bits ^ previousBits;
+            if (xor == 0) {
+                out.write(XOR_ZERO);
+            } else {
+                // Записываем только байты между ведущими и замыкающими нулевыми байтами
+                int leading = Long.numberOfLeadingZeros(xor) / 8;
+                int trailing = Long.numberOfTrailingZeros(xor) / 8;
+                out.write(leading << 3 | trailing);
+                for (int shift = (7 - leading) * 8; shift >= trailing * 8; shift -= 8) {
+                    out.write((int) (xor >>> shift) & 0xFF);
+                }
+            }
+            previousBits = bits;
+            min = Math.min(min, current);
+            max = Math.max(max, current);
+        }
+        return new EncodedColumn(DOUBLE, out.toByteArray(), nullCount,
+                                 Double.doubleToLongBits(min), Double.doubleToLongBits(max));
+    }
+
+    private static EncodedColumn encodeDictionary(List<Object> present, ByteArrayOutputStream out, int nullCount) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int[] indexes = new int[present.size()];
+        for (int i = 0; i < present.size(); i++) {
+            indexes[i] = dictionary.computeIfAbsent(present.get(i).toString(), key -> dictionary.size());
+        }
+        writeVarLong(out, dictionary.size());
+        for (String entry : dictionary.keySet()) {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        for (int index : indexes) {
+            writeVarLong(out, index);
+        }
+        return new EncodedColumn(DICTIONARY, out.toByteArray(), nullCount, dictionary.size(), dictionary.size());
+    }
+
+    /**
+     * Декодирует данные столбца
+     *
+     * @param encoding кодирование столбца
+     * @param data данные столбца
+     * @param rows количество строк фрагмента
+     * @return значения по строкам, null - пропуск
+     */
+    static List<Object> decode(byte encoding, ByteBuffer data, int rows) {
+        boolean hasNulls = data.get() != 0;
+        byte[] bitmap = null;
+        if (hasNulls) {
+            bitmap = new byte[(rows + 7) / 8];
+            data.get(bitmap);
+        }
+
+        List<Object> values = new ArrayList<>(rows);
+        String[] dictionary = null;
+        if (encoding == DICTIONARY) {
+            dictionary = new String[(int) readVarLong(data)];
+            for (int i = 0; i < dictionary.length; i++) {
+                byte[] bytes = new byte[(int) readVarLong(data)];
+                data.get(bytes);
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        long previous = 0;
+        int presentIndex = 0;
+        for (int row = 0; row < rows; row++) {
+            if (encoding == NULL || (bitmap != null && (bitmap[row / 8] & (1 << (row % 8))) == 0)) {
+                values.add(null);
+                continue;
+            }
+            switch (encoding) {
+                case LONG:
+                    previous += unzigzag(readVarLong(data));
+                    values.add(previous);
+                    break;
+                case DOUBLE:
+                    previous ^= readXor(data);
+                    values.add(Double.longBitsToDouble(previous));
+                    break;
+                case BOOLEAN:
+                    values.add(null);
+                    break;
+                case DICTIONARY:
+                    values.add(dictionary[(int) readVarLong(data)]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown column encoding: " + encoding);
+            }
+            presentIndex++;
+        }
+
+        if (encoding == BOOLEAN) {
+            // Битовая карта значений следует за картой пропусков и читается после подсчета присутствующих значений
+            byte[] bits = new byte[(presentIndex + 7) / 8];
+            data.get(bits);
+            int index = 0;
+            for (int row = 0; row < rows; row++) {
+                if (bitmap == null || (bitmap[row / 8] & (1 << (row % 8))) != 0) {
+                    values.set(row, (bits[index / 8] & (1 << (index % 8))) != 0);
+                    index++;
+                }
+            }
+        }
+        return values;
+    }
+
+    private static long readXor(ByteBuffer data) {
+        int control = data.get() & 0xFF;
+        if (control == XOR_ZERO) {
+            return 0;
+        }
+        int leading = control >>> 3;
+        int trailing = control & 0x7;
+        long xor = 0;
+        for (int shift = (7 - leading) * 8; shift >= trailing * 8; shift -= 8) {
+            xor |= (long) (data.get() & 0xFF) << shift;
+        }
+        return xor;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
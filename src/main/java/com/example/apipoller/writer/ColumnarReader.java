@@ -0,0 +1,306 @@
+package com.example.apipoller.writer;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Читатель файлов колоночного формата ({@link ColumnarDataWriter}).
+ * При открытии читаются только заголовки и каталоги фрагментов; данные столбца
+ * читаются по его смещению, поэтому выборка одного столбца не затрагивает
+ * остальные. Статистика фрагментов (минимум, максимум, количество пропусков)
+ * позволяет пропускать фрагменты, заведомо не подходящие под условие.
+ * Чтение останавливается на первом неполном или поврежденном фрагменте.
+ */
+public class ColumnarReader implements Closeable {
+    static final int CHUNK_MAGIC = 0x434F4C31;
+    static final int CHUNK_HEADER_SIZE = 16;
+
+    /**
+     * Столбец одного фрагмента: кодирование, статистика и положение данных в файле
+     */
+    public static class ColumnStats {
+        private final String name;
+        private final byte encoding;
+        private final int rows;
+        private final int nullCount;
+        private final long min;
+        private final long max;
+        private final long offset;
+        private final int length;
+        private final int checksum;
+
+        ColumnStats(String name, byte encoding, int rows, int nullCount, long min, long max,
+                    long offset, int length, int checksum) {
+            this.name = name;
+            this.encoding = encoding;
+            this.rows = rows;
+            this.nullCount = nullCount;
+            this.min = min;
+            this.max = max;
+            this.offset = offset;
+            this.length = length;
+            this.checksum = checksum;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getNullCount() {
+            return nullCount;
+        }
+
+        /**
+         * @return минимальное значение (Long или Double) или null для нечисловых столбцов
+         */
+        public Object getMin() {
+            return statValue(min);
+        }
+
+        /**
+         * @return максимальное значение (Long или Double) или null для нечисловых столбцов
+         */
+        public Object getMax() {
+            return statValue(max);
+        }
+
+        /**
+         * @return количество различных строк для словарного столбца, иначе 0
+         */
+        public int getDictionarySize() {
+            return encoding == ColumnarEncoding.DICTIONARY ? (int) min : 0;
+        }
+
+        /**
+         * @return размер данных столбца в байтах
+         */
+        public int getLength() {
+            return length;
+        }
+
+        private Object statValue(long value) {
+            switch (encoding) {
+                case ColumnarEncoding.LONG:
+                    return value;
+                case ColumnarEncoding.DOUBLE:
+                    return Double.longBitsToDouble(value);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Фрагмент файла: количество строк и столбцы
+     */
+    public static class ChunkInfo {
+        private final int rows;
+        private final Map<String, ColumnStats> columns;
+
+        ChunkInfo(int rows, Map<String, ColumnStats> columns) {
+            this.rows = rows;
+            this.columns = Collections.unmodifiableMap(columns);
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public Map<String, ColumnStats> getColumns() {
+            return columns;
+        }
+
+        /**
+         * @param name имя столбца
+         * @return столбец фрагмента или null, если во фрагменте его нет
+         */
+        public ColumnStats getColumn(String name) {
+            return columns.get(name);
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<ChunkInfo> chunks = new ArrayList<>();
+    private long validLength = 0;
+    private long bytesRead = 0;
+
+    /**
+     * Открывает файл и читает каталоги всех полных фрагментов
+     *
+     * @param path путь к файлу
+     * @throws IOException если файл не удается прочитать
+     */
+    public ColumnarReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            scan();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Проходит по фрагментам, читая только заголовки и каталоги
+     */
+    private void scan() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        while (position + CHUNK_HEADER_SIZE <= size) {
+            ByteBuffer header = read(position, CHUNK_HEADER_SIZE);
+            int magic = header.getInt();
+            int directoryLength = header.getInt();
+            int dataLength = header.getInt();
+            int directoryChecksum = header.getInt();
+            long dataStart = position + CHUNK_HEADER_SIZE + directoryLength;
+            if (magic != CHUNK_MAGIC || directoryLength <= 0 || dataLength < 0 ||
+                dataStart + dataLength > size) {
+                break;
+            }
+
+            ByteBuffer directory = read(position + CHUNK_HEADER_SIZE, directoryLength);
+            CRC32 crc = new CRC32();
+            crc.update(directory.duplicate());
+            if ((int) crc.getValue() != directoryChecksum) {
+                break;
+            }
+            try {
+                chunks.add(parseDirectory(directory, dataStart, dataLength));
+            } catch (RuntimeException e) {
+                break;
+            }
+            position = dataStart + dataLength;
+        }
+        validLength = position;
+    }
+
+    private static ChunkInfo parseDirectory(ByteBuffer directory, long dataStart, int dataLength) {
+        int rows = (int) ColumnarEncoding.readVarLong(directory);
+        int columnCount = (int) ColumnarEncoding.readVarLong(directory);
+        Map<String, ColumnStats> columns = new LinkedHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            byte[] nameBytes = new byte[(int) ColumnarEncoding.readVarLong(directory)];
+            directory.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            byte encoding = directory.get();
+            long offset = ColumnarEncoding.readVarLong(directory);
+            int length = (int) ColumnarEncoding.readVarLong(directory);
+            int checksum = (int) ColumnarEncoding.readVarLong(directory);
+            int nullCount = (int) ColumnarEncoding.readVarLong(directory);
+            long min = ColumnarEncoding.unzigzag(ColumnarEncoding.readVarLong(directory));
+            long max = ColumnarEncoding.unzigzag(ColumnarEncoding.readVarLong(directory));
+            if (offset + length > dataLength) {
+                throw new IllegalArgumentException("Column " + name + " exceeds chunk data");
+            }
+            columns.put(name, new ColumnStats(name, encoding, rows, nullCount, min, max,
+                                              dataStart + offset, length, checksum));
+        }
+        return new ChunkInfo(rows, columns);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of columnar file " + path);
+            }
+        }
+        bytesRead += length;
+        return buffer.flip();
+    }
+
+    /**
+     * @return фрагменты файла в порядке записи
+     */
+    public List<ChunkInfo> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * @return длина файла, занятая полными фрагментами; все после нее - оборванная запись
+     */
+    public long getValidLength() {
+        return validLength;
+    }
+
+    /**
+     * @return количество байт, прочитанных из файла с момента открытия
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Читает все значения столбца. Для фрагментов без этого столбца возвращаются
+     * пропуски, поэтому значения остаются выровненными по строкам.
+     *
+     * @param name имя столбца
+     * @return значения по строкам файла (Long, Double, Boolean или String), null - пропуск
+     * @throws IOException если данные столбца повреждены
+     */
+    public List<Object> readColumn(String name) throws IOException {
+        return readColumn(name, null);
+    }
+
+    /**
+     * Читает значения столбца только из фрагментов, статистика которых подходит под фильтр.
+     * Фрагменты без этого столбца пропускаются.
+     *
+     * @param name имя столбца
+     * @param chunkFilter условие по статистике столбца во фрагменте; null - читать все фрагменты
+     * @return значения подходящих фрагментов
+     * @throws IOException если данные столбца повреждены
+     */
+    public List<Object> readColumn(String name, Predicate<ColumnStats> chunkFilter) throws IOException {
+        List<Object> values = new ArrayList<>();
+        boolean filtered = chunkFilter != null;
+        for (ChunkInfo chunk : chunks) {
+            ColumnStats stats = chunk.getColumn(name);
+            if (stats == null) {
+                if (!filtered) {
+                    values.addAll(Collections.nCopies(chunk.getRows(), null));
+                }
+                continue;
+            }
+            if (filtered && !chunkFilter.test(stats)) {
+                continue;
+            }
+            values.addAll(readChunkColumn(stats));
+        }
+        return values;
+    }
+
+    private List<Object> readChunkColumn(ColumnStats stats) throws IOException {
+        ByteBuffer data = read(stats.offset, stats.length);
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if ((int) crc.getValue() != stats.checksum) {
+            throw new IOException("Corrupted column " + stats.name + " at offset " + stats.offset + " in " + path);
+        }
+        return ColumnarEncoding.decode(stats.encoding, data, stats.rows);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,38 +1,105 @@
 package com.example.apipoller.writer;
 
+import com.example.apipoller.config.AppConfig;
 import com.example.apipoller.model.ApiRecord;
 import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
 
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Писатель данных в формате CSV
+ * Писатель данных в формате CSV.
+ * Записи каждого типа пишутся в отдельный файл рядом с основным
+ * (например, output-news.csv для output.csv) с единственной строкой заголовка
+ * и постоянным порядком столбцов. Файлы остаются открытыми все время работы
+ * писателя, а буфер сбрасывается на диск по количеству записей
+ * (CSV_FLUSH_RECORDS, по умолчанию 500) и по времени
+ * (CSV_FLUSH_INTERVAL_MILLIS, по умолчанию 1000). При запуске заголовок
+ * существующего файла читается из его первой строки, и запись продолжается
+ * в тех же столбцах.
  */
 public class CsvDataWriter implements DataWriter {
     private static final Logger logger = Logger.getLogger(CsvDataWriter.class.getName());
-    
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Открытый файл записей одного типа
+     */
+    private static class TypeFile {
+        final Path path;
+        final List<String> columns;
+        final FileChannel channel;
+        final CSVPrinter printer;
+        int unflushedRecords;
+
+        TypeFile(Path path, List<String> columns, FileChannel channel, CSVPrinter printer) {
+            this.path = path;
+            this.columns = columns;
+            this.channel = channel;
+            this.printer = printer;
+        }
+    }
+
     private final Path outputPath;
     private final Object writeLock = new Object();
-    private final Set<String> writtenHeaders = new HashSet<>();
+    private final Map<String, TypeFile> files = new HashMap<>();
+    private final int flushRecords;
+    private final ScheduledExecutorService flusher;
 
     public CsvDataWriter(Path outputPath) {
+        this(outputPath, AppConfig.getIntSetting("CSV_FLUSH_RECORDS", 500),
+             AppConfig.getIntSetting("CSV_FLUSH_INTERVAL_MILLIS", 1000));
+    }
+
+    /**
+     * Конструктор с явно заданными порогами сброса буфера
+     *
+     * @param outputPath путь к основному файлу; файлы типов создаются рядом с ним
+     * @param flushRecords количество записей, после которого буфер сбрасывается
+     * @param flushIntervalMillis период сброса буфера в миллисекундах
+     */
+    public CsvDataWriter(Path outputPath, int flushRecords, long flushIntervalMillis) {
         this.outputPath = outputPath;
-        
-        // Создаем файл, если он не существует
-        try {
-            if (!Files.exists(outputPath)) {
-                Files.createFile(outputPath);
-            }
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error initializing CSV file", e);
-        }
+        this.flushRecords = Math.max(1, flushRecords);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "csv-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::flushAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Возвращает путь к файлу записей указанного типа
+     * @param type тип записей
+     * @return путь вида output-type.csv
+     */
+    Path fileFor(String type) {
+        String fileName = outputPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String typedName = dot > 0
+            ? fileName.substring(0, dot) + "-" + type + fileName.substring(dot)
+            : fileName + "-" + type;
+        return outputPath.resolveSibling(typedName);
     }
 
     @Override
@@ -42,29 +109,29 @@ public class CsvDataWriter implements DataWriter {
         }
 
         synchronized (writeLock) {
-            try (FileWriter fileWriter = new FileWriter(outputPath.toFile(), true);
-                 CSVPrinter csvPrinter = new CSVPrinter(fileWriter, CSVFormat.DEFAULT)) {
-                
+            try {
                 for (ApiRecord record : records) {
                     Map<String, Object> map = record.toMap();
-                    List<String> headers = new ArrayList<>(map.keySet());
-                    
-                    // Если это новый набор заголовков, запишем их
-                    String headersKey = String.join(",", headers);
-                    if (!writtenHeaders.contains(headersKey)) {
-                        csvPrinter.printRecord(headers);
-                        writtenHeaders.add(headersKey);
+                    String type = record.getType() != null ? record.getType() : "record";
+                    TypeFile file = files.get(type);
+                    if (file == null) {
+                        file = open(type, map.keySet());
+                        files.put(type, file);
                     }
-                    
-                    // Запись значений
-                    List<Object> values = new ArrayList<>();
-                    for (String header : headers) {
-                        values.add(map.get(header));
+
+                    // Значения записываются в порядке столбцов файла
+                    List<Object> values = new ArrayList<>(file.columns.size());
+                    for (String column : file.columns) {
+                        values.add(map.get(column));
+                    }
+                    file.printer.printRecord(values);
+                    file.unflushedRecords++;
+                    if (file.unflushedRecords >= flushRecords) {
+                        flush(file);
                     }
-                    csvPrinter.printRecord(values);
                 }
-                
-                logger.info("Successfully wrote " + records.size() + " records to CSV file: " + outputPath);
+
+                logger.info("Successfully wrote " + records.size() + " records to CSV files: " + outputPath);
             } catch (IOException e) {
                 logger.log(Level.SEVERE, "Error writing to CSV file", e);
                 throw e;
@@ -72,8 +139,138 @@ public class CsvDataWriter implements DataWriter {
         }
     }
 
+    /**
+     * Открывает файл записей типа на дозапись. Если файл уже содержит данные,
+     * столбцы восстанавливаются из его заголовка, иначе заголовок записывается
+     * в отсортированном порядке полей первой записи.
+     *
+     * @param type тип записей
+     * @param fields поля первой записи этого типа
+     * @return открытый файл
+     * @throws IOException если файл не удалось открыть или прочитать
+     */
+    private TypeFile open(String type, Set<String> fields) throws IOException {
+        Path path = fileFor(type);
+        List<String> columns = readHeader(path);
+        boolean newFile = columns == null;
+        if (newFile) {
+            columns = new ArrayList<>(new TreeSet<>(fields));
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                               StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        BufferedWriter out = new BufferedWriter(
+            new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (!newFile && !endsWithNewline(path)) {
+            // Предыдущий запуск оборвал последнюю строку; начинаем с новой
+            out.newLine();
+        }
+        CSVPrinter printer = new CSVPrinter(out, CSVFormat.DEFAULT);
+        if (newFile) {
+            printer.printRecord(columns);
+        } else if (!columns.containsAll(fields)) {
+            logger.warning("CSV file " + path + " has no columns for some " + type +
+                          " fields; they will not be written");
+        }
+        logger.info("Opened CSV file for " + type + " records: " + path);
+        return new TypeFile(path, columns, channel, printer);
+    }
+
+    /**
+     * Читает заголовок существующего файла
+     * @param path путь к файлу
+     * @return список столбцов или null, если файла нет или он пуст
+     */
+    private static List<String> readHeader(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             CSVParser parser = CSVFormat.DEFAULT.parse(reader)) {
+            Iterator<CSVRecord> iterator = parser.iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            List<String> columns = new ArrayList<>();
+            iterator.next().forEach(columns::add);
+            return columns;
+        }
+    }
+
+    private static boolean endsWithNewline(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            if (file.length() == 0) {
+                return true;
+            }
+            file.seek(file.length() - 1);
+            return file.read() == '\n';
+        }
+    }
+
+    private void flush(TypeFile file) throws IOException {
+        file.printer.flush();
+        file.unflushedRecords = 0;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            for (TypeFile file : files.values()) {
+                flush(file);
+                file.channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Периодически сбрасывает буферы всех файлов
+     */
+    private void flushAll() {
+        synchronized (writeLock) {
+            for (TypeFile file : files.values()) {
+                if (file.unflushedRecords == 0) {
+                    continue;
+                }
+                try {
+                    flush(file);
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Error flushing CSV file " + file.path, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return суммарный размер файлов типов по открытым каналам; строки в буфере печати не учитываются
+     */
+    @Override
+    public long getWrittenBytes() throws IOException {
+        synchronized (writeLock) {
+            long size = 0;
+            for (TypeFile file : files.values()) {
+                size += file.channel.size();
+            }
+            return size;
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        // Для CSV-писателя не требуется специальное закрытие ресурсов
+        flusher.shutdown();
+        synchronized (writeLock) {
+            IOException failure = null;
+            for (TypeFile file : files.values()) {
+                try {
+                    file.printer.close(true);
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Error closing CSV file " + file.path, e);
+                    failure = e;
+                }
+            }
+            files.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
     }
 }
@@ -16,6 +16,37 @@ public interface DataWriter {
      */
     void writeRecords(List<ApiRecord> records) throws IOException;
     
+    /**
+     * Записывает пакет журнала упреждающей записи с его порядковым номером.
+     * Номер позволяет не записывать повторно пакеты, уже переданные выводу
+     * до сбоя (см. {@link DedupDataWriter}). По умолчанию номер не используется.
+     * @param records список записей для записи
+     * @param sequence номер пакета журнала; 0 - пакет без номера
+     * @throws IOException если произошла ошибка при записи
+     */
+    default void writeRecords(List<ApiRecord> records, long sequence) throws IOException {
+        writeRecords(records);
+    }
+    
+    /**
+     * Сбрасывает записанные данные на устройство хранения (fsync).
+     * По умолчанию ничего не делает.
+     * @throws IOException если произошла ошибка при сбросе
+     */
+    default void sync() throws IOException {
+    }
+    
+    /**
+     * Возвращает объем данных в байтах, записанных писателем в его файлы.
+     * Заранее выделенное, но не заполненное место не учитывается.
+     * По умолчанию объем неизвестен.
+     * @return объем записанных данных или -1, если он неизвестен
+     * @throws IOException если произошла ошибка при определении объема
+     */
+    default long getWrittenBytes() throws IOException {
+        return -1;
+    }
+    
     /**
      * Закрывает ресурсы, связанные с писателем
      * @throws IOException если произошла ошибка при закрытии
@@ -1,24 +1,93 @@
 package com.example.apipoller.writer;
 
+import com.example.apipoller.config.AppConfig;
+
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
 
 /**
  * Фабрика для создания писателей данных в разных форматах
  */
 public class DataWriterFactory {
+    private static final Logger logger = Logger.getLogger(DataWriterFactory.class.getName());
+
     /**
-     * Создает писатель данных для указанного формата и файла
-     * @param format формат данных ("json" или "csv")
+     * Создает писатель данных для указанного формата и файла.
+     * При PARTITIONED_OUTPUT=true вывод разбивается на разделы по типу и дате
+     * (см. {@link PartitionedDataWriter}) с не более чем PARTITION_MAX_OPEN
+     * (по умолчанию 32) открытыми разделами и PARTITION_WRITE_THREADS (4) потоками.
+     * Иначе, если заданы настройки ROTATE_MAX_MB или ROTATE_INTERVAL_MINUTES,
+     * вывод разбивается на сегменты (см. {@link RollingDataWriter}).
+     * Записи, уже записанные в этот вывод в прошлых запусках, пропускаются
+     * ({@link DedupDataWriter}), если это не отключено настройкой DEDUP_INDEX=false.
+     * Журнал упреждающей записи ставится перед всей цепочкой вывода отдельно,
+     * см. {@link #withWriteAheadLog(Path, DataWriter)}.
+     * @param format формат данных ("json", "csv", "ndjson", "binlog" или "columnar")
      * @param outputPath путь к выходному файлу
      * @return подходящая реализация DataWriter
      * @throws IllegalArgumentException если формат не поддерживается
      */
     public static DataWriter createWriter(String format, Path outputPath) {
+        Function<Path, DataWriter> constructor = constructorFor(format);
+        long maxBytes = 1024L * 1024L * Math.max(0, AppConfig.getIntSetting("ROTATE_MAX_MB", 0));
+        long intervalMillis = TimeUnit.MINUTES.toMillis(
+            Math.max(0, AppConfig.getIntSetting("ROTATE_INTERVAL_MINUTES", 0)));
+        DataWriter writer;
+        if (Boolean.parseBoolean(AppConfig.getSetting("PARTITIONED_OUTPUT", "false"))) {
+            if (maxBytes > 0 || intervalMillis > 0) {
+                logger.warning("Output rotation is ignored for partitioned output");
+            }
+            writer = new PartitionedDataWriter(outputPath, constructor,
+                                               AppConfig.getIntSetting("PARTITION_MAX_OPEN", 32),
+                                               AppConfig.getIntSetting("PARTITION_WRITE_THREADS", 4));
+        } else if (maxBytes > 0 || intervalMillis > 0) {
+            writer = new RollingDataWriter(outputPath, constructor, maxBytes, intervalMillis);
+        } else {
+            writer = constructor.apply(outputPath);
+        }
+        if (Boolean.parseBoolean(AppConfig.getSetting("DEDUP_INDEX", "true"))) {
+            writer = new DedupDataWriter(outputPath, writer);
+        }
+        return writer;
+    }
+
+    /**
+     * Ставит перед цепочкой вывода журнал упреждающей записи ({@link WriteAheadLogDataWriter}),
+     * если он не отключен настройкой WAL=false. Журнал должен быть первой ступенью,
+     * в том числе перед {@link AsyncDataWriter}: тогда пакет дописывается в журнал
+     * и сбрасывается на устройство в вызывающем потоке до того, как вызов записи
+     * вернет управление, и записи из буфера в памяти не теряются при сбое.
+     * @param outputPath путь к выводу; журнал создается рядом с ним
+     * @param writer цепочка вывода
+     * @return писатель с журналом или исходный писатель
+     */
+    public static DataWriter withWriteAheadLog(Path outputPath, DataWriter writer) {
+        if (Boolean.parseBoolean(AppConfig.getSetting("WAL", "true"))) {
+            return new WriteAheadLogDataWriter(outputPath, writer);
+        }
+        return writer;
+    }
+
+    /**
+     * Возвращает конструктор писателя для формата
+     * @param format формат данных
+     * @return функция, создающая писатель для заданного файла
+     * @throws IllegalArgumentException если формат не поддерживается
+     */
+    private static Function<Path, DataWriter> constructorFor(String format) {
         switch (format.toLowerCase()) {
             case "json":
-                return new JsonDataWriter(outputPath);
+                return JsonDataWriter::new;
             case "csv":
-                return new CsvDataWriter(outputPath);
+                return CsvDataWriter::new;
+            case "ndjson":
+                return NdjsonDataWriter::new;
+            case "binlog":
+                return BinaryLogDataWriter::new;
+            case "columnar":
+                return ColumnarDataWriter::new;
             default:
                 throw new IllegalArgumentException("Unsupported format: " + format);
         }
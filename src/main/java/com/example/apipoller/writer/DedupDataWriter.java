@@ -0,0 +1,263 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.dedup.FingerprintIndex;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Писатель, пропускающий записи, уже записанные в этот вывод, в том числе в прошлых
+ * запусках. Отпечатки идентификаторов и содержимого записанных записей хранятся
+ * в индексе {@link FingerprintIndex} рядом с выводом (output.json.dedup для output.json),
+ * поэтому после перезапуска те же новости и снимки APOD не дублируются,
+ * а существующий вывод не перечитывается.
+ * <p>
+ * Запись с известным идентификатором, содержимое которой изменилось (например,
+ * исправленный заголовок новости), записывается снова как обновление.
+ * <p>
+ * Отпечатки попадают в индекс только после сброса исходного писателя на устройство
+ * (при {@link #sync()} или после накопления PENDING_LIMIT записей), иначе после сбоя
+ * индекс мог бы содержать записи, не дошедшие до вывода, и повтор журнала
+ * упреждающей записи отбросил бы их. До этого отпечатки хранятся в памяти.
+ * <p>
+ * Чтобы повтор журнала после сбоя не дублировал вывод, в индексе сохраняется номер
+ * последнего пакета журнала, переданного выводу, и номер, на котором выполнен
+ * последний сброс. Пакеты между ними при повторе не записываются: восстанавливаются
+ * только их отпечатки. Номер переданного пакета не сбрасывается на устройство,
+ * поэтому ему доверяют только в той же загрузке системы, что и при записи
+ * (после завершения процесса данные вывода остаются в кеше системы); после
+ * перезагрузки такие пакеты записываются снова. При корректном закрытии номера
+ * обнуляются вместе с журналом, который начинает нумерацию заново.
+ */
+public class DedupDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(DedupDataWriter.class.getName());
+    private static final long BOOT_MARKER = readBootMarker();
+    // Количество записанных, но не сохраненных в индексе отпечатков, после которого выполняется сброс
+    static final int PENDING_LIMIT = 4096;
+
+    private final DataWriter delegate;
+    private final Path indexPath;
+    private final Object writeLock = new Object();
+    private FingerprintIndex index;
+    private boolean indexUnavailable;
+    // Отпечаток идентификатора - отпечаток содержимого
+    private final Map<Long, Long> pending = new HashMap<>();
+    // Пакеты журнала с номерами в (replayFrom, replayUntil] переданы выводу до сбоя
+    private long replayFrom;
+    private long replayUntil;
+    private long skippedRecords;
+    private long updatedRecords;
+
+    /**
+     * @param outputPath путь к выводу; индекс создается рядом с ним
+     * @param delegate писатель, которому передаются новые записи
+     */
+    public DedupDataWriter(Path outputPath, DataWriter delegate) {
+        this.delegate = delegate;
+        this.indexPath = outputPath.resolveSibling(outputPath.getFileName() + ".dedup");
+    }
+
+    /**
+     * @return писатель, которому передаются новые записи
+     */
+    DataWriter getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Открывает индекс при первой записи, чтобы не оставлять пустых файлов.
+     * Если индекс открыть не удалось, повторы пропускаются только в пределах запуска.
+     *
+     * @return индекс или null, если он недоступен
+     */
+    private FingerprintIndex openIndex() {
+        if (index == null && !indexUnavailable) {
+            try {
+                index = new FingerprintIndex(indexPath);
+                long applied = index.getAppliedSequence();
+                long committed = index.getCommittedSequence();
+                if (applied > committed && BOOT_MARKER != 0 && index.getBootMarker() == BOOT_MARKER) {
+                    replayFrom = committed;
+                    replayUntil = applied;
+                    logger.info("Write-ahead log batches #" + (committed + 1) + ".." + applied +
+                               " already reached output " + indexPath + " and will not be written again");
+                } else if (applied != committed) {
+                    index.setAppliedSequence(committed);
+                }
+                index.setBootMarker(BOOT_MARKER);
+            } catch (IOException e) {
+                indexUnavailable = true;
+                logger.log(Level.SEVERE, "Error opening dedup index " + indexPath +
+                          ", duplicates from previous runs will not be skipped", e);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Определяет метку текущей загрузки системы по boot_id ядра Linux.
+     * На других системах метки нет, и номера переданных пакетов не используются.
+     */
+    private static long readBootMarker() {
+        Path bootId = Path.of("/proc/sys/kernel/random/boot_id");
+        try {
+            if (Files.isReadable(bootId)) {
+                return FingerprintIndex.fingerprint(Files.readString(bootId, StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Boot id is not available", e);
+        }
+        return 0;
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        writeRecords(records, 0);
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records, long sequence) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            FingerprintIndex written = openIndex();
+            if (sequence > 0 && (sequence <= replayFrom || sequence > replayUntil)) {
+                // Повтор завершен или журнал начал нумерацию заново
+                replayUntil = 0;
+            }
+            if (sequence > replayFrom && sequence <= replayUntil) {
+                // Пакет уже в выводе: восстанавливаем только отпечатки, потерянные при сбое
+                for (ApiRecord record : records) {
+                    pending.put(FingerprintIndex.fingerprint(String.valueOf(record.getId())),
+                                FingerprintIndex.contentFingerprint(record.toMap()));
+                }
+                skippedRecords += records.size();
+                commitIfFull();
+                return;
+            }
+            List<ApiRecord> fresh = new ArrayList<>(records.size());
+            Map<Long, Long> batch = new HashMap<>();
+            for (ApiRecord record : records) {
+                long fingerprint = FingerprintIndex.fingerprint(String.valueOf(record.getId()));
+                long content = FingerprintIndex.contentFingerprint(record.toMap());
+                Long known = batch.get(fingerprint);
+                if (known == null) {
+                    known = pending.get(fingerprint);
+                }
+                if (known == null && written != null && written.contains(fingerprint)) {
+                    known = written.getContentFingerprint(fingerprint);
+                }
+                if (known != null && known == content) {
+                    skippedRecords++;
+                    continue;
+                }
+                if (known != null) {
+                    updatedRecords++;
+                }
+                batch.put(fingerprint, content);
+                fresh.add(record);
+            }
+            if (fresh.isEmpty()) {
+                return;
+            }
+
+            delegate.writeRecords(fresh);
+            if (written != null && sequence > written.getAppliedSequence()) {
+                written.setAppliedSequence(sequence);
+            }
+            pending.putAll(batch);
+            commitIfFull();
+        }
+    }
+
+    private void commitIfFull() throws IOException {
+        if (pending.size() >= PENDING_LIMIT) {
+            commit();
+        }
+    }
+
+    /**
+     * Сбрасывает исходный писатель на устройство и переносит отпечатки записанных записей
+     * в индекс вместе с номером последнего переданного выводу пакета журнала
+     */
+    private void commit() throws IOException {
+        delegate.sync();
+        if (index != null) {
+            for (Map.Entry<Long, Long> entry : pending.entrySet()) {
+                index.put(entry.getKey(), entry.getValue());
+            }
+            index.setCommittedSequence(index.getAppliedSequence());
+            index.force();
+        }
+        pending.clear();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            commit();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            try {
+                commit();
+                if (index != null) {
+                    index.setAppliedSequence(0);
+                    index.setCommittedSequence(0);
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error saving dedup index " + indexPath, e);
+                throw e;
+            } finally {
+                try {
+                    delegate.close();
+                } finally {
+                    if (index != null) {
+                        index.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return количество пропущенных повторных записей
+     */
+    public long getSkippedRecords() {
+        synchronized (writeLock) {
+            return skippedRecords;
+        }
+    }
+
+    /**
+     * @return количество записей, записанных повторно из-за изменившегося содержимого
+     */
+    public long getUpdatedRecords() {
+        synchronized (writeLock) {
+            return updatedRecords;
+        }
+    }
+
+    /**
+     * @return количество отпечатков в индексе
+     */
+    public int getIndexedRecords() {
+        synchronized (writeLock) {
+            return index != null ? index.size() : 0;
+        }
+    }
+}
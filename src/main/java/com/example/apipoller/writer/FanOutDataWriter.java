@@ -0,0 +1,132 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Писатель, передающий каждый пакет записей нескольким выводам (например, NDJSON
+ * для потоковой обработки и CSV для аналитиков). У каждого вывода своя асинхронная
+ * ступень ({@link AsyncDataWriter}) с ограниченным буфером и отдельным потоком,
+ * поэтому медленный или отказавший вывод не задерживает остальные и опрос.
+ * <p>
+ * Если буфер вывода заполнен, пакет для этого вывода отбрасывается и учитывается
+ * в его счетчике отказов; ошибка сообщается вызывающему, только если пакет
+ * не принял ни один вывод. Отставание каждого вывода доступно через {@link #getSinks()}.
+ */
+public class FanOutDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(FanOutDataWriter.class.getName());
+
+    private final Map<String, AsyncDataWriter> sinks;
+
+    /**
+     * @param sinks выводы по именам в порядке записи
+     */
+    public FanOutDataWriter(Map<String, AsyncDataWriter> sinks) {
+        if (sinks.isEmpty()) {
+            throw new IllegalArgumentException("At least one sink is required");
+        }
+        this.sinks = Collections.unmodifiableMap(new LinkedHashMap<>(sinks));
+    }
+
+    /**
+     * Оборачивает каждый вывод асинхронной ступенью по настройкам {@link AsyncDataWriter}.
+     * Время ожидания места в буфере задается настройкой FANOUT_BLOCK_MILLIS
+     * (по умолчанию 0 - заполненный вывод сразу отказывается от пакета).
+     *
+     * @param writers писатели выводов по именам
+     * @return писатель, передающий записи всем выводам
+     */
+    public static FanOutDataWriter fromConfig(Map<String, DataWriter> writers) {
+        long blockMillis = Math.max(0, AppConfig.getIntSetting("FANOUT_BLOCK_MILLIS", 0));
+        Map<String, AsyncDataWriter> sinks = new LinkedHashMap<>();
+        for (Map.Entry<String, DataWriter> writer : writers.entrySet()) {
+            sinks.put(writer.getKey(), AsyncDataWriter.fromConfig(writer.getValue(), blockMillis));
+        }
+        return new FanOutDataWriter(sinks);
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        writeRecords(records, 0);
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records, long sequence) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        IOException failure = null;
+        int accepted = 0;
+        for (Map.Entry<String, AsyncDataWriter> sink : sinks.entrySet()) {
+            try {
+                sink.getValue().writeRecords(records, sequence);
+                accepted++;
+            } catch (IOException e) {
+                logger.warning("Sink " + sink.getKey() + " rejected " + records.size() + " records: " +
+                              e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (accepted == 0) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Дожидается записи принятых пакетов во все выводы и сбрасывает их на устройство
+     */
+    @Override
+    public void sync() throws IOException {
+        IOException failure = null;
+        for (Map.Entry<String, AsyncDataWriter> sink : sinks.entrySet()) {
+            try {
+                sink.getValue().sync();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error syncing sink " + sink.getKey(), e);
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Закрывает все выводы; ошибка одного вывода не мешает закрытию остальных
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Map.Entry<String, AsyncDataWriter> sink : sinks.entrySet()) {
+            try {
+                sink.getValue().close();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error closing sink " + sink.getKey(), e);
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return асинхронные ступени выводов по именам; их счетчики показывают отставание и отказы
+     */
+    public Map<String, AsyncDataWriter> getSinks() {
+        return sinks;
+    }
+}
@@ -4,42 +4,175 @@ import com.example.apipoller.model.ApiRecord;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Писатель данных в формате JSON
+ * Писатель данных в формате JSON.
+ * Файл всегда содержит корректный JSON-массив. Новые записи дописываются
+ * поверх закрывающей скобки {@code ]}, после чего скобка записывается заново,
+ * поэтому ранее записанные данные не перечитываются и стоимость записи
+ * зависит только от размера пакета. Если предыдущий запуск оборвал запись
+ * пакета, при открытии файла незавершенный хвост отрезается.
  */
 public class JsonDataWriter implements DataWriter {
     private static final Logger logger = Logger.getLogger(JsonDataWriter.class.getName());
-    
+    private static final int TAIL_CHUNK_SIZE = 256;
+
     private final Path outputPath;
     private final ObjectMapper mapper;
     private final Object writeLock = new Object();
+    private FileChannel channel;
+    // Позиция закрывающей скобки массива
+    private long closingBracketPosition = -1;
+    private boolean hasElements;
 
     public JsonDataWriter(Path outputPath) {
         this.outputPath = outputPath;
         this.mapper = new ObjectMapper();
         mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        
-        // Создаем пустой JSON-массив, если файл не существует
+
+        // Открываем файл и создаем пустой JSON-массив, если файл не существует или пуст
         try {
-            if (!Files.exists(outputPath)) {
-                Files.write(outputPath, "[]".getBytes(), 
-                           StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            }
+            openChannel();
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Error initializing JSON file", e);
         }
     }
 
+    /**
+     * Открывает файл и находит закрывающую скобку массива, читая только конец файла
+     *
+     * @throws IOException если файл недоступен или не заканчивается JSON-массивом
+     */
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.wrap("[]".getBytes(StandardCharsets.UTF_8)), 0);
+        }
+
+        closingBracketPosition = previousNonWhitespace(channel.size());
+        if (closingBracketPosition < 0 || byteAt(closingBracketPosition) != ']') {
+            if (byteAt(nextNonWhitespace(0)) != '[') {
+                channel.close();
+                channel = null;
+                throw new IOException("JSON file does not end with an array: " + outputPath);
+            }
+            repairTail();
+        }
+        long beforeBracket = previousNonWhitespace(closingBracketPosition);
+        hasElements = beforeBracket >= 0 && byteAt(beforeBracket) != '[';
+    }
+
+    /**
+     * Ищет последний непробельный байт перед указанной позицией, читая файл блоками с конца
+     *
+     * @param end позиция, перед которой ведется поиск
+     * @return позиция байта или -1, если перед позицией только пробельные символы
+     */
+    private long previousNonWhitespace(long end) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(TAIL_CHUNK_SIZE);
+        long position = end;
+        while (position > 0) {
+            int length = (int) Math.min(TAIL_CHUNK_SIZE, position);
+            position -= length;
+            chunk.clear().limit(length);
+            while (chunk.hasRemaining() && channel.read(chunk, position + chunk.position()) >= 0) {
+                // Дочитываем блок полностью
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (!Character.isWhitespace(chunk.get(i))) {
+                    return position + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Восстанавливает массив, оборванный сбоем во время записи пакета: отрезает
+     * незавершенный элемент после последнего полного объекта и закрывает массив.
+     * Полные объекты записи заканчиваются строкой из одной скобки {@code }},
+     * поэтому поиск ведется по ней. Потерянные записи восстанавливаются
+     * повтором журнала упреждающей записи ({@link WriteAheadLogDataWriter}).
+     */
+    private void repairTail() throws IOException {
+        long size = channel.size();
+        long lastElementEnd = lastElementEnd(size);
+        long position;
+        ByteBuffer tail;
+        if (lastElementEnd >= 0) {
+            position = lastElementEnd + 1;
+            tail = ByteBuffer.wrap("\n]".getBytes(StandardCharsets.UTF_8));
+        } else {
+            position = nextNonWhitespace(0) + 1;
+            tail = ByteBuffer.wrap("]".getBytes(StandardCharsets.UTF_8));
+        }
+        logger.warning("Repairing truncated JSON array in " + outputPath + ": discarding " +
+                      (size - position) + " bytes of incomplete tail");
+        channel.truncate(position);
+        while (tail.hasRemaining()) {
+            position += channel.write(tail, position);
+        }
+        channel.force(false);
+        closingBracketPosition = position - 1;
+    }
+
+    /**
+     * Ищет последнюю скобку {@code }}, стоящую в начале строки, читая файл блоками с конца
+     *
+     * @param end позиция, перед которой ведется поиск
+     * @return позиция скобки или -1, если полных объектов нет
+     */
+    private long lastElementEnd(long end) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(TAIL_CHUNK_SIZE);
+        long position = end;
+        byte next = 0;
+        while (position > 0) {
+            int length = (int) Math.min(TAIL_CHUNK_SIZE, position);
+            position -= length;
+            chunk.clear().limit(length);
+            while (chunk.hasRemaining() && channel.read(chunk, position + chunk.position()) >= 0) {
+                // Дочитываем блок полностью
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                byte current = chunk.get(i);
+                if (current == '\n' && next == '}') {
+                    return position + i + 1;
+                }
+                next = current;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return позиция первого непробельного байта начиная с указанной или размер файла
+     */
+    private long nextNonWhitespace(long start) throws IOException {
+        long size = channel.size();
+        long position = start;
+        while (position < size && Character.isWhitespace(byteAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private byte byteAt(long position) throws IOException {
+        ByteBuffer single = ByteBuffer.allocate(1);
+        channel.read(single, position);
+        return single.get(0);
+    }
+
     @Override
     public void writeRecords(List<ApiRecord> records) throws IOException {
         if (records == null || records.isEmpty()) {
@@ -48,22 +181,30 @@ public class JsonDataWriter implements DataWriter {
 
         synchronized (writeLock) {
             try {
-                // Читаем существующие записи
-                List<Map<String, Object>> existingRecords = new ArrayList<>();
-                if (Files.exists(outputPath) && Files.size(outputPath) > 2) {
-                    existingRecords = mapper.readValue(outputPath.toFile(), 
-                                                     mapper.getTypeFactory().constructCollectionType(
-                                                         List.class, Map.class));
+                if (channel == null || !channel.isOpen()) {
+                    openChannel();
                 }
-                
-                // Добавляем новые записи
+
+                // Сериализуем только новые записи
+                ByteArrayOutputStream batch = new ByteArrayOutputStream();
+                boolean separatorNeeded = hasElements;
                 for (ApiRecord record : records) {
-                    existingRecords.add(record.toMap());
+                    batch.write((separatorNeeded ? ",\n" : "\n").getBytes(StandardCharsets.UTF_8));
+                    batch.write(mapper.writeValueAsBytes(record.toMap()));
+                    separatorNeeded = true;
+                }
+                batch.write("\n]".getBytes(StandardCharsets.UTF_8));
+
+                // Записываем пакет поверх закрывающей скобки и отрезаем остаток старого хвоста
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                long position = closingBracketPosition;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
                 }
-                
-                // Записываем обновленный список записей
-                mapper.writeValue(outputPath.toFile(), existingRecords);
-                
+                channel.truncate(position);
+                closingBracketPosition = position - 1;
+                hasElements = true;
+
                 logger.info("Successfully wrote " + records.size() + " records to JSON file: " + outputPath);
             } catch (IOException e) {
                 logger.log(Level.SEVERE, "Error writing to JSON file", e);
@@ -72,8 +213,31 @@ public class JsonDataWriter implements DataWriter {
         }
     }
 
+    @Override
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            if (channel != null && channel.isOpen()) {
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * @return размер файла JSON по открытому каналу
+     */
+    @Override
+    public long getWrittenBytes() throws IOException {
+        synchronized (writeLock) {
+            return channel != null && channel.isOpen() ? channel.size() : 0;
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        // Для JSON-писателя не требуется специальное закрытие ресурсов
+        synchronized (writeLock) {
+            if (channel != null) {
+                channel.close();
+            }
+        }
     }
 }
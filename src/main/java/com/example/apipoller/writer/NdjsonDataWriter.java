@@ -0,0 +1,187 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Писатель данных в формате NDJSON (JSON Lines): одна компактная запись на строку.
+ * Файл открыт все время работы писателя и только дописывается.
+ * <p>
+ * Одновременные вызовы {@link #writeRecords(List)} объединяются (групповая фиксация):
+ * записи сериализуются в вызывающих потоках, после чего первый поток, заставший
+ * запись свободной, становится ведущим и одним вызовом записывает пакеты всех
+ * ожидающих потоков. Остальные потоки ждут фиксации своих пакетов и получают
+ * ошибку записи, если она произошла.
+ */
+public class NdjsonDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(NdjsonDataWriter.class.getName());
+
+    /**
+     * Сериализованный пакет записей одного вызова
+     */
+    private static class Batch {
+        final ByteBuffer data;
+        final int records;
+        boolean committed;
+        IOException error;
+
+        Batch(byte[] data, int records) {
+            this.data = ByteBuffer.wrap(data);
+            this.records = records;
+        }
+    }
+
+    private final Path outputPath;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition groupCommitted = lock.newCondition();
+    private List<Batch> pending = new ArrayList<>();
+    private boolean leaderActive = false;
+    private volatile FileChannel channel;
+
+    public NdjsonDataWriter(Path outputPath) {
+        this.outputPath = outputPath;
+
+        // Открываем файл на дозапись; он будет создан, если не существует
+        try {
+            channel = openChannel();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error initializing NDJSON file", e);
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        // Сериализация выполняется вне блокировки, параллельно в вызывающих потоках
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (ApiRecord record : records) {
+            lines.write(mapper.writeValueAsBytes(record.toMap()));
+            lines.write('\n');
+        }
+        Batch batch = new Batch(lines.toByteArray(), records.size());
+
+        lock.lock();
+        try {
+            pending.add(batch);
+            while (!batch.committed) {
+                if (leaderActive) {
+                    // Пакет будет записан текущим или следующим ведущим
+                    groupCommitted.awaitUninterruptibly();
+                } else {
+                    commitPendingGroup();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (batch.error != null) {
+            throw new IOException("Error writing to NDJSON file: " + batch.error.getMessage(), batch.error);
+        }
+    }
+
+    /**
+     * Записывает все ожидающие пакеты одним вызовом. Вызывается под блокировкой;
+     * на время записи блокировка освобождается, чтобы новые пакеты могли
+     * накапливаться для следующей группы.
+     */
+    private void commitPendingGroup() {
+        leaderActive = true;
+        List<Batch> group = pending;
+        pending = new ArrayList<>();
+        lock.unlock();
+
+        IOException error = null;
+        try {
+            writeGroup(group);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error writing to NDJSON file", e);
+            error = e;
+        } finally {
+            lock.lock();
+            leaderActive = false;
+            for (Batch committed : group) {
+                committed.error = error;
+                committed.committed = true;
+            }
+            groupCommitted.signalAll();
+        }
+    }
+
+    private void writeGroup(List<Batch> group) throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = openChannel();
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[group.size()];
+        long remaining = 0;
+        int records = 0;
+        for (int i = 0; i < group.size(); i++) {
+            buffers[i] = group.get(i).data;
+            remaining += buffers[i].remaining();
+            records += group.get(i).records;
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+
+        logger.info("Successfully wrote " + records + " records in " + group.size() +
+                   " batches to NDJSON file: " + outputPath);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        // Канал открыт в режиме дозаписи, поэтому сброс безопасен параллельно с записью группы
+        FileChannel current = channel;
+        if (current != null && current.isOpen()) {
+            current.force(false);
+        }
+    }
+
+    /**
+     * @return размер файла NDJSON по открытому каналу
+     */
+    @Override
+    public long getWrittenBytes() throws IOException {
+        FileChannel current = channel;
+        return current != null && current.isOpen() ? current.size() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            // Дожидаемся завершения текущей группы
+            while (leaderActive) {
+                groupCommitted.awaitUninterruptibly();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
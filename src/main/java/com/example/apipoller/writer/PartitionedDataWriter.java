@@ -0,0 +1,321 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Писатель, разбивающий вывод на разделы в стиле Hive по типу записи и дате события.
+ * Для вывода output.json записи пишутся в файлы
+ * output/type=news/date=2025-04-27/part-00000.json писателем исходного формата;
+ * дата берется из {@link ApiRecord#getEventDate()}, записи без даты попадают
+ * в раздел date=unknown. При каждом запуске раздел получает новый номер части,
+ * поэтому файлы, записанные ранее, не изменяются.
+ * <p>
+ * У каждого раздела свой писатель и своя блокировка, поэтому записи в разные
+ * разделы выполняются параллельно: пакет, затрагивающий несколько разделов,
+ * записывается пулом потоков. Открытыми остаются не более заданного количества
+ * разделов; давно не использованный раздел закрывается (LRU) и при следующей
+ * записи открывается снова с дописыванием в ту же часть.
+ * <p>
+ * {@link #sync()} сбрасывает на устройство только открытые разделы, поэтому
+ * раздел сбрасывается и при закрытии; ошибка сброса вытесненного раздела
+ * возвращается следующим вызовом {@link #sync()}.
+ */
+public class PartitionedDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(PartitionedDataWriter.class.getName());
+    static final String UNKNOWN_DATE = "unknown";
+
+    /**
+     * Раздел вывода; доступ к писателю синхронизирован по самому разделу
+     */
+    private class Partition {
+        final Path file;
+        DataWriter writer;
+        boolean evicted;
+
+        Partition(Path file) {
+            this.file = file;
+        }
+
+        void write(List<ApiRecord> records) throws IOException {
+            if (writer == null) {
+                Files.createDirectories(file.getParent());
+                writer = partitionWriterFactory.apply(file);
+            }
+            writer.writeRecords(records);
+        }
+
+        void close() throws IOException {
+            evicted = true;
+            if (writer != null) {
+                try {
+                    writer.sync();
+                } finally {
+                    writer.close();
+                    writer = null;
+                }
+            }
+        }
+    }
+
+    private final Path root;
+    private final String extension;
+    private final Function<Path, DataWriter> partitionWriterFactory;
+    private final int maxOpenPartitions;
+    private final ExecutorService pool;
+    // Открытые разделы в порядке последнего использования; доступ синхронизирован по самой карте
+    private final LinkedHashMap<String, Partition> partitions = new LinkedHashMap<>(16, 0.75f, true);
+    // Файл части каждого раздела в текущем запуске; доступ синхронизирован по карте разделов
+    private final Map<String, Path> partFiles = new LinkedHashMap<>();
+    // Ошибка закрытия вытесненного раздела, еще не возвращенная из sync(); доступ синхронизирован по карте разделов
+    private IOException evictionFailure;
+
+    /**
+     * @param outputPath путь к выводу; каталог разделов создается рядом с ним под именем без расширения
+     * @param partitionWriterFactory создает писатель исходного формата для файла части
+     * @param maxOpenPartitions максимальное количество одновременно открытых разделов
+     *                          (не меньше количества потоков записи плюс один)
+     * @param writeThreads количество потоков для параллельной записи разделов одного пакета
+     */
+    public PartitionedDataWriter(Path outputPath, Function<Path, DataWriter> partitionWriterFactory,
+                                 int maxOpenPartitions, int writeThreads) {
+        Path absolute = outputPath.toAbsolutePath();
+        String fileName = absolute.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        this.root = absolute.resolveSibling(dot > 0 ? fileName.substring(0, dot) : fileName + "-partitions");
+        this.extension = dot > 0 ? fileName.substring(dot) : "";
+        this.partitionWriterFactory = partitionWriterFactory;
+        // Разделов должно хватать всем потокам записи, иначе они вытесняли бы друг друга
+        this.maxOpenPartitions = Math.max(Math.max(1, writeThreads) + 1, maxOpenPartitions);
+        this.pool = Executors.newFixedThreadPool(Math.max(1, writeThreads), r -> {
+            Thread thread = new Thread(r, "partition-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return каталог, в котором создаются разделы
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Возвращает каталог раздела для записи
+     * @param record запись
+     * @return путь вида output/type=news/date=2025-04-27
+     */
+    Path partitionDirectory(ApiRecord record) {
+        LocalDate date = record.getEventDate();
+        return root.resolve("type=" + record.getType())
+                   .resolve("date=" + (date != null ? date.toString() : UNKNOWN_DATE));
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        Map<Path, List<ApiRecord>> groups = new LinkedHashMap<>();
+        for (ApiRecord record : records) {
+            groups.computeIfAbsent(partitionDirectory(record), key -> new ArrayList<>()).add(record);
+        }
+        if (groups.size() == 1) {
+            Map.Entry<Path, List<ApiRecord>> group = groups.entrySet().iterator().next();
+            writePartition(group.getKey(), group.getValue());
+            return;
+        }
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (Map.Entry<Path, List<ApiRecord>> group : groups.entrySet()) {
+            writes.add(CompletableFuture.runAsync(() -> {
+                try {
+                    writePartition(group.getKey(), group.getValue());
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, pool));
+        }
+
+        IOException failure = null;
+        for (CompletableFuture<Void> write : writes) {
+            try {
+                write.join();
+            } catch (CompletionException e) {
+                IOException cause = e.getCause() instanceof IOException
+                    ? (IOException) e.getCause() : new IOException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Записывает записи в раздел. Если раздел был закрыт вытеснением,
+     * пока поток ждал его блокировки, раздел открывается заново.
+     */
+    private void writePartition(Path directory, List<ApiRecord> records) throws IOException {
+        while (true) {
+            Partition partition = acquire(directory);
+            synchronized (partition) {
+                if (partition.evicted) {
+                    continue;
+                }
+                try {
+                    partition.write(records);
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Error writing to partition " + partition.file, e);
+                    throw e;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Возвращает открытый раздел, открывая его при необходимости
+     * и вытесняя давно не использованные разделы сверх предела
+     */
+    private Partition acquire(Path directory) throws IOException {
+        String key = directory.toString();
+        List<Partition> evicted = new ArrayList<>();
+        Partition partition;
+        synchronized (partitions) {
+            partition = partitions.get(key);
+            if (partition == null) {
+                Path file = partFiles.get(key);
+                if (file == null) {
+                    file = directory.resolve(String.format("part-%05d%s", nextPartNumber(directory), extension));
+                    partFiles.put(key, file);
+                }
+                partition = new Partition(file);
+                partitions.put(key, partition);
+                Iterator<Partition> eldest = partitions.values().iterator();
+                while (partitions.size() > maxOpenPartitions) {
+                    evicted.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+        }
+
+        for (Partition victim : evicted) {
+            synchronized (victim) {
+                try {
+                    victim.close();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Error closing evicted partition " + victim.file, e);
+                    synchronized (partitions) {
+                        if (evictionFailure == null) {
+                            evictionFailure = e;
+                        } else {
+                            evictionFailure.addSuppressed(e);
+                        }
+                    }
+                }
+            }
+        }
+        return partition;
+    }
+
+    /**
+     * @return номер части, следующий за наибольшим существующим в каталоге раздела для формата вывода
+     */
+    private int nextPartNumber(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        int next = 0;
+        String glob = "part-[0-9][0-9][0-9][0-9][0-9]*" + extension;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                int number = Integer.parseInt(path.getFileName().toString().substring(5, 10));
+                next = Math.max(next, number + 1);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @return количество открытых разделов
+     */
+    public int getOpenPartitions() {
+        synchronized (partitions) {
+            return partitions.size();
+        }
+    }
+
+    /**
+     * Сбрасывает открытые разделы на устройство. Вытесненные разделы сбрасываются
+     * при закрытии; если это не удалось, ошибка возвращается здесь, чтобы
+     * контрольная точка журнала упреждающей записи не считала их записи сохраненными.
+     */
+    @Override
+    public void sync() throws IOException {
+        List<Partition> open;
+        IOException failure;
+        synchronized (partitions) {
+            open = new ArrayList<>(partitions.values());
+            failure = evictionFailure;
+            evictionFailure = null;
+        }
+        for (Partition partition : open) {
+            synchronized (partition) {
+                if (partition.writer != null) {
+                    partition.writer.sync();
+                }
+            }
+        }
+        if (failure != null) {
+            throw new IOException("Error syncing evicted partitions: " + failure.getMessage(), failure);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdown();
+        List<Partition> open;
+        synchronized (partitions) {
+            open = new ArrayList<>(partitions.values());
+            partitions.clear();
+        }
+        IOException failure = null;
+        for (Partition partition : open) {
+            synchronized (partition) {
+                try {
+                    partition.close();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Error closing partition " + partition.file, e);
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
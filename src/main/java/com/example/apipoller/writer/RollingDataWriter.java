@@ -0,0 +1,354 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Писатель, разбивающий вывод на сегменты.
+ * Записи пишутся в текущий сегмент (например, output.000001.json для output.json)
+ * писателем исходного формата. Сегмент закрывается, когда размер его файлов
+ * превышает заданный предел или с момента его открытия прошел заданный интервал.
+ * Закрытые сегменты сжимаются GZIP в фоновом потоке.
+ * <p>
+ * Рядом с выводом ведется манифест (например, output.json.manifest): JSON-список
+ * сегментов с их файлами, диапазонами порядковых номеров записей, временем
+ * открытия и закрытия и признаком сжатия. Манифест заменяется атомарно,
+ * а при перезапуске нумерация сегментов и записей продолжается по нему.
+ */
+public class RollingDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(RollingDataWriter.class.getName());
+
+    /**
+     * Описание сегмента в манифесте
+     */
+    public static class Segment {
+        public int sequence;
+        public String name;
+        public List<String> files = new ArrayList<>();
+        public long firstRecord;
+        public long lastRecord;
+        public String openedAt;
+        public String closedAt;
+        public boolean compressed;
+    }
+
+    private final Path directory;
+    private final String baseName;
+    private final String extension;
+    private final Path manifestPath;
+    private final Function<Path, DataWriter> segmentWriterFactory;
+    private final long maxBytes;
+    private final long intervalMillis;
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "segment-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object writeLock = new Object();
+    // Доступ к списку сегментов синхронизирован по самому списку
+    private final List<Segment> segments = new ArrayList<>();
+
+    private Segment current;
+    private DataWriter currentWriter;
+    private long openedAtMillis;
+    private int nextSequence = 1;
+    private long nextRecord = 0;
+
+    /**
+     * @param outputPath путь к выводу; сегменты создаются рядом с ним
+     * @param segmentWriterFactory создает писатель исходного формата для файла сегмента
+     * @param maxBytes предельный размер сегмента в байтах; 0 - без ограничения
+     * @param intervalMillis предельное время жизни сегмента в миллисекундах; 0 - без ограничения
+     */
+    public RollingDataWriter(Path outputPath, Function<Path, DataWriter> segmentWriterFactory,
+                             long maxBytes, long intervalMillis) {
+        Path absolute = outputPath.toAbsolutePath();
+        this.directory = absolute.getParent();
+        String fileName = absolute.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        this.baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        this.extension = dot > 0 ? fileName.substring(dot) : "";
+        this.manifestPath = directory.resolve(fileName + ".manifest");
+        this.segmentWriterFactory = segmentWriterFactory;
+        this.maxBytes = maxBytes;
+        this.intervalMillis = intervalMillis;
+
+        try {
+            loadManifest();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error reading segment manifest " + manifestPath, e);
+        }
+    }
+
+    /**
+     * Восстанавливает нумерацию по манифесту; сегменты, оставшиеся открытыми
+     * или несжатыми после предыдущего запуска, закрываются и сжимаются
+     */
+    private void loadManifest() throws IOException {
+        if (!Files.exists(manifestPath)) {
+            return;
+        }
+        List<Segment> loaded = mapper.readValue(manifestPath.toFile(),
+            mapper.getTypeFactory().constructCollectionType(List.class, Segment.class));
+        synchronized (segments) {
+            segments.addAll(loaded);
+            for (Segment segment : segments) {
+                nextSequence = Math.max(nextSequence, segment.sequence + 1);
+                nextRecord = Math.max(nextRecord, segment.lastRecord + 1);
+                if (segment.closedAt == null) {
+                    segment.closedAt = Instant.now().toString();
+                    segment.files = listFiles(segment.name);
+                }
+            }
+        }
+        for (Segment segment : loaded) {
+            if (!segment.compressed) {
+                compressor.execute(() -> compress(segment));
+            }
+        }
+        logger.info("Resuming output segments at #" + nextSequence + " from manifest " + manifestPath);
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            if (current != null && isExpired()) {
+                rotate();
+            }
+            if (current == null) {
+                openSegment();
+            }
+
+            currentWriter.writeRecords(records);
+            nextRecord += records.size();
+            synchronized (segments) {
+                current.lastRecord = nextRecord - 1;
+            }
+
+            if (isExpired() || isFull()) {
+                rotate();
+            }
+        }
+    }
+
+    private boolean isExpired() {
+        return intervalMillis > 0 && System.currentTimeMillis() - openedAtMillis >= intervalMillis;
+    }
+
+    /**
+     * Проверяет предел размера сегмента. Проверка выполняется после каждого пакета,
+     * поэтому каталог не просматривается: объем берется у писателя сегмента
+     * (размер файлов может включать заранее выделенное место), а если писатель
+     * его не сообщает - по размеру основного файла сегмента
+     */
+    private boolean isFull() throws IOException {
+        if (maxBytes <= 0) {
+            return false;
+        }
+        long size = currentWriter.getWrittenBytes();
+        if (size < 0) {
+            Path file = directory.resolve(current.name + extension);
+            size = Files.exists(file) ? Files.size(file) : 0;
+        }
+        return size >= maxBytes;
+    }
+
+    private void openSegment() throws IOException {
+        Segment segment = new Segment();
+        segment.sequence = nextSequence++;
+        segment.name = String.format("%s.%06d", baseName, segment.sequence);
+        segment.firstRecord = nextRecord;
+        segment.lastRecord = nextRecord - 1;
+        segment.openedAt = Instant.now().toString();
+
+        currentWriter = segmentWriterFactory.apply(directory.resolve(segment.name + extension));
+        current = segment;
+        openedAtMillis = System.currentTimeMillis();
+        synchronized (segments) {
+            segments.add(segment);
+        }
+        writeManifest();
+        logger.info("Opened output segment " + segment.name);
+    }
+
+    /**
+     * Сбрасывает текущий сегмент на устройство, закрывает его и передает на сжатие.
+     * {@link #sync()} сбрасывает только текущий сегмент, поэтому закрываемый сегмент
+     * сбрасывается здесь, иначе после контрольной точки журнала упреждающей записи
+     * его последние записи могли бы пропасть при сбое питания.
+     */
+    private void rotate() throws IOException {
+        Segment closing = current;
+        current = null;
+        try {
+            try {
+                currentWriter.sync();
+            } finally {
+                currentWriter.close();
+            }
+        } finally {
+            currentWriter = null;
+            synchronized (segments) {
+                closing.closedAt = Instant.now().toString();
+                closing.files = listFiles(closing.name);
+            }
+            writeManifest();
+            logger.info("Closed output segment " + closing.name + " with records " +
+                       closing.firstRecord + ".." + closing.lastRecord);
+            compressor.execute(() -> compress(closing));
+        }
+    }
+
+    /**
+     * Сжимает файлы закрытого сегмента. Сжатый файл создается под временным именем,
+     * сбрасывается на устройство и переименовывается; исходный файл удаляется только
+     * после сброса каталога с переименованием, поэтому при сбое всегда остается
+     * хотя бы одна полная копия данных.
+     */
+    private void compress(Segment segment) {
+        try {
+            List<String> compressed = new ArrayList<>();
+            for (String file : listFiles(segment.name)) {
+                Path source = directory.resolve(file);
+                if (file.endsWith(".gz")) {
+                    compressed.add(file);
+                    continue;
+                }
+                Path target = directory.resolve(file + ".gz");
+                Path temporary = directory.resolve(file + ".gz.tmp");
+                try (InputStream in = Files.newInputStream(source);
+                     FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                     GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024)) {
+                    in.transferTo(out);
+                    out.finish();
+                    channel.force(true);
+                }
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                forceDirectory(directory);
+                Files.delete(source);
+                compressed.add(target.getFileName().toString());
+            }
+            synchronized (segments) {
+                segment.files = compressed;
+                segment.compressed = true;
+            }
+            writeManifest();
+            logger.info("Compressed output segment " + segment.name);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error compressing output segment " + segment.name, e);
+        }
+    }
+
+    /**
+     * Сбрасывает каталог на устройство, чтобы переименование пережило сбой питания.
+     * Там, где каталог нельзя открыть как файл (Windows), сброс пропускается.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Directory " + directory + " cannot be synced on this platform", e);
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Возвращает файлы сегмента: все файлы каталога, имя которых начинается с имени сегмента
+     * и заканчивается расширением вывода (возможно, с суффиксом .gz). Проверка расширения
+     * отделяет сегменты писателей разных форматов с общим именем вывода.
+     */
+    private List<String> listFiles(String segmentName) throws IOException {
+        List<String> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, segmentName + "*")) {
+            for (Path path : stream) {
+                String file = path.getFileName().toString();
+                String uncompressed = file.endsWith(".gz") ? file.substring(0, file.length() - 3) : file;
+                if (!file.endsWith(".tmp") && uncompressed.endsWith(extension)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * Атомарно заменяет манифест
+     */
+    private void writeManifest() throws IOException {
+        synchronized (segments) {
+            Path temporary = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+            mapper.writeValue(temporary.toFile(), segments);
+            Files.move(temporary, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * @return копия списка сегментов из манифеста
+     */
+    public List<Segment> getSegments() {
+        synchronized (segments) {
+            return new ArrayList<>(segments);
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            if (currentWriter != null) {
+                currentWriter.sync();
+            }
+        }
+    }
+
+    /**
+     * Закрывает текущий сегмент и дожидается сжатия закрытых сегментов
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (current != null) {
+                rotate();
+            }
+        }
+        compressor.shutdown();
+        try {
+            if (!compressor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warning("Segment compression did not finish in time; it will resume on next start");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.model.ApiRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Журнал упреждающей записи (WAL) перед другим писателем.
+ * Каждый пакет записей получает порядковый номер, дописывается в журнал
+ * (например, output.json.wal для output.json) кадром с длиной и контрольной суммой
+ * (см. {@link BinaryRecordCodec}) и сбрасывается на устройство, и только после
+ * этого передается исходному писателю. Поэтому исходный писатель может не
+ * сбрасывать данные на устройство после каждого пакета.
+ * <p>
+ * Когда журнал превышает WAL_CHECKPOINT_KB (по умолчанию 1024), а также при
+ * {@link #sync()}, выполняется контрольная точка: исходный писатель сбрасывается
+ * на устройство, номер последнего примененного пакета атомарно записывается
+ * в файл контрольной точки (output.json.wal.checkpoint) через переименование,
+ * и журнал очищается. При запуске пакеты журнала с номерами после контрольной
+ * точки повторно передаются исходному писателю, поэтому после сбоя записи
+ * доставляются хотя бы один раз. Пакеты передаются исходному писателю вместе
+ * с номерами, поэтому {@link DedupDataWriter} не записывает повторно пакеты,
+ * которые успел передать выводу до сбоя. При повторе после каждого пакета
+ * исходный писатель сбрасывается, чтобы асинхронная ступень не объединяла пакеты
+ * и каждый доходил до вывода со своим номером. При корректном закрытии журнал удаляется.
+ * <p>
+ * Если исходный писатель не смог применить пакет, пакет остается в журнале,
+ * а каждый следующий вызов (запись, {@link #sync()}, закрытие) сначала повторяет
+ * по порядку все непримененные пакеты журнала, включая новый. Пока повтор
+ * не удается, вызовы завершаются ошибкой, а контрольные точки не выполняются;
+ * после успешного повтора журнал снова очищается контрольной точкой.
+ * <p>
+ * Журнал ставится первой ступенью вывода, перед {@link AsyncDataWriter}
+ * (см. {@link DataWriterFactory#withWriteAheadLog(Path, DataWriter)}): пакет
+ * опроса дописывается в журнал и сбрасывается на устройство в вызывающем потоке,
+ * а записи, ожидающие в буфере асинхронной ступени, восстанавливаются из журнала
+ * после сбоя. Контрольная точка дожидается записи этого буфера через {@link #sync()}
+ * исходного писателя.
+ */
+public class WriteAheadLogDataWriter implements DataWriter {
+    private static final Logger logger = Logger.getLogger(WriteAheadLogDataWriter.class.getName());
+
+    /**
+     * Запись, восстановленная из журнала
+     */
+    private static class LoggedRecord implements ApiRecord {
+        private final String id;
+        private final String type;
+        private final LocalDate eventDate;
+        private final Map<String, Object> fields;
+
+        LoggedRecord(String id, String type, LocalDate eventDate, Map<String, Object> fields) {
+            this.id = id;
+            this.type = type;
+            this.eventDate = eventDate;
+            this.fields = fields;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public LocalDate getEventDate() {
+            return eventDate;
+        }
+
+        @Override
+        public Map<String, Object> toMap() {
+            return fields;
+        }
+    }
+
+    private final DataWriter delegate;
+    private final Path walPath;
+    private final Path checkpointPath;
+    private final long checkpointBytes;
+    private final Object writeLock = new Object();
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private FileChannel channel;
+    private long nextSequence = 1;
+    private long lastApplied = 0;
+    // Номер первого пакета, который не удалось применить; следующие пакеты применяются только после него
+    private long firstFailed = Long.MAX_VALUE;
+
+    public WriteAheadLogDataWriter(Path outputPath, DataWriter delegate) {
+        this(outputPath, delegate, 1024L * Math.max(1, AppConfig.getIntSetting("WAL_CHECKPOINT_KB", 1024)));
+    }
+
+    /**
+     * @param outputPath путь к выводу; журнал создается рядом с ним
+     * @param delegate писатель, к которому применяются записи
+     * @param checkpointBytes размер журнала, после которого выполняется контрольная точка
+     */
+    public WriteAheadLogDataWriter(Path outputPath, DataWriter delegate, long checkpointBytes) {
+        this.delegate = delegate;
+        this.checkpointBytes = Math.max(1, checkpointBytes);
+        // Имя журнала включает расширение вывода, чтобы писатели разных форматов не делили журнал
+        String fileName = outputPath.getFileName().toString();
+        this.walPath = outputPath.resolveSibling(fileName + ".wal");
+        this.checkpointPath = outputPath.resolveSibling(fileName + ".wal.checkpoint");
+
+        try {
+            recover();
+        } catch (IOException | NumberFormatException e) {
+            logger.log(Level.SEVERE, "Error recovering write-ahead log " + walPath, e);
+        }
+    }
+
+    /**
+     * @return писатель, к которому применяются записи
+     */
+    public DataWriter getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return путь к файлу журнала
+     */
+    Path getWalPath() {
+        return walPath;
+    }
+
+    /**
+     * Повторно применяет пакеты журнала, записанные после последней контрольной точки
+     */
+    private void recover() throws IOException {
+        if (Files.exists(checkpointPath)) {
+            lastApplied = Long.parseLong(Files.readString(checkpointPath, StandardCharsets.UTF_8).trim());
+            nextSequence = lastApplied + 1;
+        }
+        if (!Files.exists(walPath)) {
+            return;
+        }
+
+        long position = 0;
+        boolean unapplied = false;
+        for (ByteBuffer payload : readFrames(ByteBuffer.wrap(Files.readAllBytes(walPath)))) {
+            position += BinaryRecordCodec.FRAME_HEADER_SIZE + payload.remaining();
+            long sequence = payload.getLong(0);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            unapplied |= sequence > lastApplied;
+        }
+
+        openChannel();
+        if (channel.size() > position) {
+            logger.warning("Discarding " + (channel.size() - position) +
+                          " bytes of incomplete entry at the end of " + walPath);
+            channel.truncate(position);
+        }
+        if (unapplied) {
+            try {
+                int replayed = applyPending(true);
+                logger.info("Replayed " + replayed + " records from write-ahead log " + walPath);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error replaying write-ahead log " + walPath, e);
+                return;
+            }
+        }
+        checkpoint();
+    }
+
+    /**
+     * @return содержимое целых кадров журнала по порядку; оборванный кадр в конце не включается
+     */
+    private static List<ByteBuffer> readFrames(ByteBuffer log) {
+        List<ByteBuffer> payloads = new ArrayList<>();
+        int position = 0;
+        int length;
+        while ((length = BinaryRecordCodec.frameLength(log, position)) > 0) {
+            payloads.add(log.slice(position + BinaryRecordCodec.FRAME_HEADER_SIZE, length));
+            position += BinaryRecordCodec.FRAME_HEADER_SIZE + length;
+        }
+        return payloads;
+    }
+
+    /**
+     * Применяет по порядку пакеты журнала, следующие за последним примененным
+     *
+     * @param syncEach сбрасывать исходный писатель после каждого пакета
+     * @return количество примененных записей
+     * @throws IOException если пакет не удалось применить; он и следующие пакеты остаются в журнале
+     */
+    private int applyPending(boolean syncEach) throws IOException {
+        int applied = 0;
+        for (ByteBuffer payload : readFrames(ByteBuffer.wrap(Files.readAllBytes(walPath)))) {
+            long sequence = payload.getLong(0);
+            if (sequence <= lastApplied) {
+                continue;
+            }
+            List<ApiRecord> records = decodeBatch(payload);
+            try {
+                delegate.writeRecords(records, sequence);
+                if (syncEach) {
+                    delegate.sync();
+                }
+            } catch (IOException e) {
+                firstFailed = sequence;
+                throw new IOException("Error applying write-ahead log batch #" + sequence +
+                                      ", keeping it in " + walPath + " for retry", e);
+            }
+            lastApplied = sequence;
+            applied += records.size();
+        }
+        firstFailed = Long.MAX_VALUE;
+        return applied;
+    }
+
+    private void openChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(walPath, StandardOpenOption.CREATE,
+                                       StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> records) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            long sequence = nextSequence++;
+            long start = -1;
+            try {
+                // Журнал открывается при первой записи, чтобы не оставлять пустых файлов
+                openChannel();
+                start = channel.size();
+                ByteBuffer frame = encodeBatch(sequence, records);
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error appending to write-ahead log " + walPath, e);
+                // Убираем оборванный кадр, иначе следующие кадры не будут прочитаны при повторе
+                if (start >= 0) {
+                    try {
+                        channel.truncate(start);
+                    } catch (IOException truncateError) {
+                        e.addSuppressed(truncateError);
+                    }
+                }
+                throw e;
+            }
+
+            if (firstFailed != Long.MAX_VALUE) {
+                // Новый пакет уже в журнале и применяется вслед за ранее не примененными
+                int applied = applyPending(false);
+                logger.info("Applied " + applied + " records from write-ahead log " + walPath +
+                           " after an earlier failure");
+            } else {
+                try {
+                    delegate.writeRecords(records, sequence);
+                    lastApplied = sequence;
+                } catch (IOException e) {
+                    firstFailed = sequence;
+                    throw e;
+                }
+            }
+
+            if (channel.size() >= checkpointBytes) {
+                checkpoint();
+            }
+        }
+    }
+
+    /**
+     * Кодирует пакет кадром журнала: номер пакета, количество записей,
+     * затем для каждой записи идентификатор, тип, дата события и поля
+     */
+    private ByteBuffer encodeBatch(long sequence, List<ApiRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(sequence);
+        out.writeInt(records.size());
+        for (ApiRecord record : records) {
+            out.writeUTF(String.valueOf(record.getId()));
+            out.writeUTF(String.valueOf(record.getType()));
+            LocalDate eventDate = record.getEventDate();
+            out.writeUTF(eventDate != null ? eventDate.toString() : "");
+            ByteBuffer fields = BinaryRecordCodec.encode(record.toMap(), scratch);
+            scratch = fields;
+            out.writeInt(fields.remaining());
+            out.write(fields.array(), fields.arrayOffset() + fields.position(), fields.remaining());
+        }
+        out.flush();
+
+        ByteBuffer payload = ByteBuffer.wrap(bytes.toByteArray());
+        ByteBuffer frame = ByteBuffer.allocate(BinaryRecordCodec.FRAME_HEADER_SIZE + payload.remaining());
+        frame.putInt(payload.remaining())
+             .putInt(BinaryRecordCodec.checksum(payload))
+             .put(payload)
+             .flip();
+        return frame;
+    }
+
+    private static List<ApiRecord> decodeBatch(ByteBuffer payload) throws IOException {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.readLong();
+        int count = in.readInt();
+        List<ApiRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = in.readUTF();
+            String type = in.readUTF();
+            String eventDate = in.readUTF();
+            byte[] fields = new byte[in.readInt()];
+            in.readFully(fields);
+            records.add(new LoggedRecord(id, type, eventDate.isEmpty() ? null : LocalDate.parse(eventDate),
+                                         BinaryRecordCodec.decode(ByteBuffer.wrap(fields))));
+        }
+        return records;
+    }
+
+    /**
+     * Сбрасывает исходный писатель на устройство, атомарно сохраняет номер последнего
+     * примененного пакета и очищает журнал, если все его пакеты применены
+     */
+    private void checkpoint() throws IOException {
+        delegate.sync();
+        Path temporary = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        Files.writeString(temporary, Long.toString(lastApplied), StandardCharsets.UTF_8);
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            file.force(true);
+        }
+        Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (firstFailed == Long.MAX_VALUE && channel != null && channel.isOpen()) {
+            channel.truncate(0);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Повторяет непримененные пакеты, если они есть, и выполняет контрольную точку
+     */
+    @Override
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            if (firstFailed != Long.MAX_VALUE) {
+                applyPending(false);
+            }
+            checkpoint();
+        }
+    }
+
+    /**
+     * Повторяет непримененные пакеты и закрывает исходный писатель. Если все пакеты
+     * применены, журнал и контрольная точка удаляются; иначе они сохраняются
+     * для повтора при следующем запуске.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (firstFailed != Long.MAX_VALUE) {
+                try {
+                    applyPending(false);
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Error applying write-ahead log " + walPath + " before close", e);
+                }
+            }
+            try {
+                delegate.sync();
+                delegate.close();
+            } finally {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            if (firstFailed == Long.MAX_VALUE) {
+                Files.deleteIfExists(walPath);
+                Files.deleteIfExists(checkpointPath);
+            } else {
+                logger.warning("Keeping write-ahead log " + walPath + " for replay from batch #" + firstFailed);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.apipoller.writer;
+
+import java.io.IOException;
+
+/**
+ * Исключение, сообщающее, что буфер асинхронного писателя заполнен
+ * и записи не были приняты
+ */
+public class WriterOverflowException extends IOException {
+    private final int rejectedRecords;
+
+    public WriterOverflowException(String message, int rejectedRecords) {
+        super(message);
+        this.rejectedRecords = rejectedRecords;
+    }
+
+    /**
+     * @return количество непринятых записей
+     */
+    public int getRejectedRecords() {
+        return rejectedRecords;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.apipoller.api;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ApiHttpClientsTest {
+
+    @Test
+    public void testHungRequestIsAbortedAtDeadline() throws Exception {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        HttpGet request = new HttpGet("https://example.com/slow");
+        
+        // Имитируем зависший ответ, который завершается только при отмене запроса
+        doAnswer(invocation -> {
+            HttpGet hung = invocation.getArgument(0);
+            while (!hung.isCancelled()) {
+                Thread.sleep(10);
+            }
+            throw new InterruptedIOException("Request aborted");
+        }).when(httpClient).execute(any(ClassicHttpRequest.class), (HttpClientResponseHandler<?>) any());
+        
+        long started = System.nanoTime();
+        SocketTimeoutException e = assertThrows(SocketTimeoutException.class,
+            () -> ApiHttpClients.execute(httpClient, request, response -> "unused", 200));
+        
+        assertTrue(request.isCancelled(), "Запрос должен быть прерван");
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2));
+        assertTrue(e.getMessage().contains("deadline"));
+    }
+
+    @Test
+    public void testCancelledContextAbortsRequest() throws Exception {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        HttpGet request = new HttpGet("https://example.com/slow");
+        doAnswer(invocation -> {
+            HttpGet hung = invocation.getArgument(0);
+            while (!hung.isCancelled()) {
+                Thread.sleep(10);
+            }
+            throw new InterruptedIOException("Request aborted");
+        }).when(httpClient).execute(any(ClassicHttpRequest.class), (HttpClientResponseHandler<?>) any());
+        
+        // Отмена контекста (например, отсеком по сроку) прерывает запрос задолго до общего срока
+        RequestContext context = new RequestContext();
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            timer.schedule(context::cancel, 100, TimeUnit.MILLISECONDS);
+            assertThrows(InterruptedIOException.class, () -> context.call(
+                () -> ApiHttpClients.execute(httpClient, request, response -> "unused", 10_000)));
+        } finally {
+            timer.shutdownNow();
+        }
+        assertTrue(request.isCancelled());
+    }
+
+    @Test
+    public void testFastRequestIsNotAborted() throws Exception {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        HttpGet request = new HttpGet("https://example.com/fast");
+        doReturn("ok").when(httpClient).execute(any(ClassicHttpRequest.class), (HttpClientResponseHandler<?>) any());
+        
+        assertEquals("ok", ApiHttpClients.execute(httpClient, request, response -> "unused", 1000));
+        assertFalse(request.isCancelled());
+    }
+
+    @Test
+    public void testOtherErrorsArePropagated() throws Exception {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        doThrow(new IOException("Connection reset"))
+            .when(httpClient).execute(any(ClassicHttpRequest.class), (HttpClientResponseHandler<?>) any());
+        
+        IOException e = assertThrows(IOException.class,
+            () -> ApiHttpClients.execute(httpClient, new HttpGet("https://example.com"), response -> "unused", 1000));
+        assertEquals("Connection reset", e.getMessage());
+    }
+
+    @Test
+    public void testCreateConfiguredClient() throws Exception {
+        try (CloseableHttpClient client = ApiHttpClients.create("news")) {
+            assertNotNull(client);
+        }
+        assertEquals(TimeUnit.SECONDS.toMillis(20), ApiHttpClients.requestDeadlineMillis("news"));
+    }
+
+    private static HedgingPolicy warmedUpPolicy(int budgetPercent, long latencyMillis) {
+        HedgingPolicy policy = new HedgingPolicy(budgetPercent, 95, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+        // Накопленный бюджет позволяет сразу отправить дубль
+        for (int i = 0; i < 100 / Math.max(1, budgetPercent); i++) {
+            policy.onRequest();
+        }
+        return policy;
+    }
+
+    private static CloseableHttpClient slowThenFastClient(AtomicInteger calls) throws IOException {
+        return slowThenFastClient(calls, new CopyOnWriteArrayList<>());
+    }
+
+    /**
+     * Первая попытка зависает до отмены, последующие сразу возвращают ответ
+     */
+    private static CloseableHttpClient slowThenFastClient(AtomicInteger calls, List<Thread> threads) throws IOException {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        doAnswer(invocation -> {
+            HttpGet attempt = invocation.getArgument(0);
+            HttpClientResponseHandler<?> handler = invocation.getArgument(1);
+            threads.add(Thread.currentThread());
+            if (calls.incrementAndGet() == 1) {
+                while (!attempt.isCancelled()) {
+                    Thread.sleep(10);
+                }
+                throw new InterruptedIOException("Request aborted");
+            }
+            BasicClassicHttpResponse response = new BasicClassicHttpResponse(200);
+            response.setEntity(new StringEntity("fast"));
+            return handler.handleResponse(response);
+        }).when(httpClient).execute(any(ClassicHttpRequest.class), (HttpClientResponseHandler<?>) any());
+        return httpClient;
+    }
+
+    @Test
+    public void testSlowRequestIsHedgedAndLoserCancelled() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CloseableHttpClient httpClient = slowThenFastClient(calls);
+        HttpGet request = new HttpGet("https://example.com/tail");
+        HedgingPolicy policy = warmedUpPolicy(10, 50);
+        AtomicInteger handled = new AtomicInteger();
+        
+        String body = ApiHttpClients.execute(httpClient, request, response -> {
+            handled.incrementAndGet();
+            return EntityUtils.toString(response.getEntity());
+        }, 5000, policy);
+        
+        // Используется ответ дубля, обработчик вызван один раз, зависшая попытка прервана
+        assertEquals("fast", body);
+        assertEquals(1, handled.get());
+        assertEquals(2, calls.get());
+        assertEquals(1, policy.getHedgesSent());
+        assertTrue(request.isCancelled());
+    }
+
+    @Test
+    public void testPrimaryAttemptRunsOnCallingThread() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        CloseableHttpClient httpClient = slowThenFastClient(calls, threads);
+        
+        assertEquals("fast", ApiHttpClients.execute(httpClient, new HttpGet("https://example.com/tail"),
+            response -> EntityUtils.toString(response.getEntity()), 5000, warmedUpPolicy(10, 50)));
+        
+        // Основная попытка не покидает поток вызывающего (и его ограничения), дубль - платформенный поток пула
+        assertEquals(2, threads.size());
+        assertSame(Thread.currentThread(), threads.get(0));
+        assertNotSame(Thread.currentThread(), threads.get(1));
+        assertFalse(threads.get(1).isVirtual());
+    }
+
+    @Test
+    public void testVirtualCallerHedgesOnVirtualThread() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        CloseableHttpClient httpClient = slowThenFastClient(calls, threads);
+        AtomicReference<Object> result = new AtomicReference<>();
+        
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                result.set(ApiHttpClients.execute(httpClient, new HttpGet("https://example.com/tail"),
+                    response -> EntityUtils.toString(response.getEntity()), 5000, warmedUpPolicy(10, 50)));
+            } catch (IOException e) {
+                result.set(e);
+            }
+        });
+        caller.join(TimeUnit.SECONDS.toMillis(5));
+        
+        assertEquals("fast", result.get());
+        assertEquals(2, threads.size());
+        assertSame(caller, threads.get(0));
+        assertTrue(threads.get(1).isVirtual());
+    }
+
+    @Test
+    public void testCancelledAttemptLatencyIsRecorded() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CloseableHttpClient httpClient = slowThenFastClient(calls);
+        HedgingPolicy policy = new HedgingPolicy(10, 99, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        
+        assertThrows(SocketTimeoutException.class, () -> ApiHttpClients.execute(
+            httpClient, new HttpGet("https://example.com/tail"), response -> "unused", 300, policy));
+        
+        // Прерванная по сроку попытка попадает в замеры, и перцентиль не занижается
+        assertTrue(policy.hedgeDelayNanos() >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void testHedgeRequiresContextGuards() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CloseableHttpClient httpClient = slowThenFastClient(calls);
+        HedgingPolicy policy = warmedUpPolicy(10, 50);
+        AtomicInteger released = new AtomicInteger();
+        RequestContext context = new RequestContext();
+        context.addHedgeGuard(new RequestContext.HedgeGuard() {
+            @Override
+            public boolean tryAcquire() {
+                return true;
+            }
+
+            @Override
+            public void release() {
+                released.incrementAndGet();
+            }
+        });
+        context.addHedgeGuard(new RequestContext.HedgeGuard() {
+            @Override
+            public boolean tryAcquire() {
+                return false;
+            }
+
+            @Override
+            public void release() {
+            }
+        });
+        
+        // Отсек или квота не позволяют дубль: запрос прерывается по общему сроку без дублирования,
+        // а ресурс, занятый первым ограничением, возвращается
+        assertThrows(SocketTimeoutException.class, () -> context.call(() -> ApiHttpClients.execute(
+            httpClient, new HttpGet("https://example.com/tail"), response -> "unused", 300, policy)));
+        assertEquals(1, calls.get());
+        assertEquals(0, policy.getHedgesSent());
+        assertEquals(1, released.get());
+    }
+
+    @Test
+    public void testHedgeReleasesContextGuardsWhenDone() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CloseableHttpClient httpClient = slowThenFastClient(calls);
+        AtomicInteger held = new AtomicInteger();
+        RequestContext context = new RequestContext();
+        context.addHedgeGuard(new RequestContext.HedgeGuard() {
+            @Override
+            public boolean tryAcquire() {
+                held.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public void release() {
+                held.decrementAndGet();
+            }
+        });
+        
+        assertEquals("fast", context.call(() -> ApiHttpClients.execute(httpClient, new HttpGet("https://example.com/tail"),
+            response -> EntityUtils.toString(response.getEntity()), 5000, warmedUpPolicy(10, 50))));
+        
+        assertEquals(2, calls.get());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (held.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, held.get());
+    }
+
+    @Test
+    public void testNoHedgeWithoutBudget() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CloseableHttpClient httpClient = slowThenFastClient(calls);
+        HedgingPolicy policy = new HedgingPolicy(10, 95, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        
+        // Бюджет пуст: дубль не отправляется, и запрос прерывается по общему сроку
+        assertThrows(SocketTimeoutException.class, () -> ApiHttpClients.execute(
+            httpClient, new HttpGet("https://example.com/tail"), response -> "unused", 300, policy));
+        assertEquals(1, calls.get());
+        assertEquals(0, policy.getHedgesSent());
+    }
+
+    @Test
+    public void testDisabledPolicyUsesPlainExecute() throws Exception {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        doReturn("ok").when(httpClient).execute(any(ClassicHttpRequest.class), (HttpClientResponseHandler<?>) any());
+        
+        assertEquals("ok", ApiHttpClients.execute(httpClient, new HttpGet("https://example.com"), 
+                                                  response -> "unused", 1000, HedgingPolicy.disabled()));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.apipoller.api;
 
+import com.example.apipoller.dedup.DedupRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -27,6 +28,13 @@ public class ApiServiceFactoryTest {
         assertEquals("nasa", nasaService.getServiceName());
     }
 
+    @Test
+    public void testServicesShareProcessWideDedupRegistry() {
+        for (String name : new String[]{"news", "weather", "nasa"}) {
+            assertSame(DedupRegistry.shared().getCache(name), ApiServiceFactory.createService(name).getDedupCache());
+        }
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"NEWS", "Weather", "NASA"})
     public void testCreateServiceCaseInsensitive(String serviceName) {
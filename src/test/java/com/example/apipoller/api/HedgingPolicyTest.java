@@ -0,0 +1,57 @@
+package com.example.apipoller.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgingPolicyTest {
+
+    @Test
+    public void testDisabledByDefault() {
+        assertFalse(HedgingPolicy.disabled().isEnabled());
+        assertFalse(HedgingPolicy.fromConfig("news").isEnabled());
+    }
+
+    @Test
+    public void testDelayFollowsPercentileAfterEnoughSamples() {
+        HedgingPolicy policy = new HedgingPolicy(10, 95, 5, TimeUnit.MILLISECONDS);
+        
+        // Пока замеров мало, дублирование не выполняется
+        for (int i = 1; i < 20; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(i * 10));
+        }
+        assertEquals(-1, policy.hedgeDelayNanos());
+        
+        // 20 замеров от 10 до 200 мс: 95-й перцентиль равен 190 мс
+        policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(190), policy.hedgeDelayNanos());
+    }
+
+    @Test
+    public void testDelayIsNotBelowMinimum() {
+        HedgingPolicy policy = new HedgingPolicy(10, 95, 50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), policy.hedgeDelayNanos());
+    }
+
+    @Test
+    public void testBudgetCapsExtraTraffic() {
+        HedgingPolicy policy = new HedgingPolicy(10, 95, 0, TimeUnit.MILLISECONDS);
+        int hedges = 0;
+        
+        // Даже если каждый запрос медленный, дублей не больше 10% от основных запросов
+        for (int i = 0; i < 1000; i++) {
+            policy.onRequest();
+            if (policy.tryAcquireHedge()) {
+                hedges++;
+            }
+        }
+        
+        assertTrue(hedges <= 100 && hedges >= 99, "hedges: " + hedges);
+        assertEquals(hedges, policy.getHedgesSent());
+    }
+}
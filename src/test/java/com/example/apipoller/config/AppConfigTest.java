@@ -17,6 +17,23 @@ public class AppConfigTest {
         assertTrue(config.getServices().contains("weather"));
     }
 
+    @Test
+    public void testNdjsonFormat() {
+        AppConfig config = AppConfig.fromArgs(new String[]{"3", "10", "NDJSON", "news"});
+        assertEquals("ndjson", config.getOutputFormat());
+        assertEquals("output.ndjson", config.getOutputFile().toString());
+    }
+
+    @Test
+    public void testMultipleFormats() {
+        AppConfig config = AppConfig.fromArgs(new String[]{"3", "10", "ndjson,CSV,ndjson", "news"});
+        assertEquals(java.util.List.of("ndjson", "csv"), config.getOutputFormats());
+        assertEquals("output.ndjson", config.getOutputFile().toString());
+        assertEquals("output.csv", config.getOutputFile("csv").toString());
+        assertThrows(ConfigurationException.class,
+                     () -> AppConfig.fromArgs(new String[]{"3", "10", "ndjson,xml", "news"}));
+    }
+
     @Test
     public void testInvalidArgs() {
         // Заменяем IllegalArgumentException на ConfigurationException
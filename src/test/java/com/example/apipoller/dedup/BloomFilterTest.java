@@ -0,0 +1,66 @@
+package com.example.apipoller.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testAddedItemsAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(FingerprintIndex.fingerprint("url-" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(FingerprintIndex.fingerprint("url-" + i)));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateMatchesTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(FingerprintIndex.fingerprint("url-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(FingerprintIndex.fingerprint("other-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2000, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.getFalsePositiveRate(), 0.005);
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    public void testSizingFollowsExpectedCountAndRate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        // Около 9.6 бита и 7 хеш-функций на элемент при доле ложных срабатываний 1%
+        assertEquals(120_000, filter.getMemoryBytes(), 1000);
+        assertEquals(7, filter.getHashCount());
+        assertTrue(new BloomFilter(100_000, 0.001).getMemoryBytes() > filter.getMemoryBytes());
+    }
+
+    @Test
+    public void testOverfilledFilterIsSaturatedUntilCleared() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put(FingerprintIndex.fingerprint("url-" + i));
+        }
+        assertTrue(filter.isSaturated());
+
+        filter.clear();
+        assertFalse(filter.isSaturated());
+        assertFalse(filter.mightContain(FingerprintIndex.fingerprint("url-1")));
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
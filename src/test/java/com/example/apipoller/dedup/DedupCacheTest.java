@@ -0,0 +1,199 @@
+package com.example.apipoller.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DedupCacheTest {
+
+    @Test
+    public void testRepeatedIdIsRejected() {
+        DedupCache cache = new DedupCache(100, 0, TimeUnit.HOURS);
+
+        assertTrue(cache.add("url-1"));
+        assertFalse(cache.add("url-1"));
+        assertTrue(cache.contains("url-1"));
+        assertFalse(cache.contains("url-2"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testChangedContentIsAccepted() {
+        DedupCache cache = new DedupCache(100, 0, TimeUnit.HOURS);
+
+        assertTrue(cache.add("url-1", 1));
+        assertFalse(cache.add("url-1", 1));
+        assertTrue(cache.add("url-1", 2));
+        assertFalse(cache.add("url-1", 2));
+        assertTrue(cache.add("url-1", 1));
+        assertEquals(2, cache.getContentChanges());
+        assertEquals(1, cache.size());
+        assertTrue(cache.describe().contains("changed=2"));
+    }
+
+    @Test
+    public void testSizeStaysWithinCapacity() {
+        DedupCache cache = new DedupCache(10_000, 0, TimeUnit.HOURS);
+
+        for (int i = 0; i < 200_000; i++) {
+            cache.add("url-" + i);
+        }
+
+        assertTrue(cache.size() <= cache.getCapacity());
+        assertTrue(cache.getCapacity() < 10_100);
+        assertEquals(200_000 - cache.size(), cache.getEvictions());
+        assertTrue(cache.contains("url-199999"));
+        assertFalse(cache.contains("url-0"));
+    }
+
+    @Test
+    public void testRepeatedIdsSurviveBurstOfNewOnes() {
+        DedupCache cache = new DedupCache(100, 0, TimeUnit.HOURS);
+        for (int i = 0; i < 50; i++) {
+            cache.add("hot-" + i);
+            cache.add("hot-" + i);
+        }
+
+        // Разовые идентификаторы вытесняют друг друга, но не встреченные повторно
+        for (int i = 0; i < 1000; i++) {
+            cache.add("cold-" + i);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(cache.contains("hot-" + i), "hot-" + i + " was evicted");
+        }
+    }
+
+    @Test
+    public void testContainsDoesNotChangeEvictionOrder() {
+        DedupCache cache = new DedupCache(3, 0, TimeUnit.HOURS);
+        cache.add("a");
+        cache.add("b");
+        cache.add("c");
+
+        // Проверка не продлевает жизнь идентификатора: вытесняется по-прежнему самый давний
+        assertTrue(cache.contains("a"));
+        cache.add("d");
+
+        assertFalse(cache.contains("a"));
+        assertTrue(cache.contains("b"));
+    }
+
+    @Test
+    public void testRepeatedIdMovesToEndOfProtectedPart() {
+        DedupCache cache = new DedupCache(10, 0, TimeUnit.HOURS);
+        for (int i = 0; i < 8; i++) {
+            cache.add("hot-" + i);
+            cache.add("hot-" + i);
+        }
+        cache.add("hot-0");
+
+        // Переполнение защищенной части возвращает в испытательную hot-1, а не встреченный снова hot-0
+        cache.add("hot-8");
+        cache.add("hot-8");
+        for (int i = 0; i < 10; i++) {
+            cache.add("cold-" + i);
+        }
+
+        assertTrue(cache.contains("hot-0"));
+        assertFalse(cache.contains("hot-1"));
+    }
+
+    @Test
+    public void testIdExpiresAfterTtlSinceLastSeen() {
+        AtomicLong now = new AtomicLong();
+        DedupCache cache = new DedupCache(100, 10, TimeUnit.SECONDS, 0.01, now::get);
+
+        cache.add("weather-1");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(8));
+        assertFalse(cache.add("weather-1"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(8));
+        assertTrue(cache.contains("weather-1"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertFalse(cache.contains("weather-1"));
+        assertTrue(cache.add("weather-1"));
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    public void testConcurrentAddsAcceptEachIdOnce() throws Exception {
+        DedupCache cache = new DedupCache(100_000, 0, TimeUnit.HOURS);
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        if (cache.add("url-" + i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(10_000, accepted.get());
+    }
+
+    @Test
+    public void testFilterSkipsLookupsForNewIds() {
+        DedupCache cache = new DedupCache(20_000, 0, TimeUnit.HOURS, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(cache.add("url-" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(cache.add("url-" + i));
+        }
+
+        assertTrue(cache.getFilterNegatives() > 9_500);
+        assertTrue(cache.getFilterFalsePositiveRate() < 0.05);
+        assertTrue(cache.getFilterMemoryBytes() > 0);
+        assertTrue(cache.describe().contains("filter="));
+    }
+
+    @Test
+    public void testFilterIsRebuiltAfterEvictions() {
+        DedupCache cache = new DedupCache(1_000, 0, TimeUnit.HOURS, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            cache.add("url-" + i);
+        }
+
+        // Вытесненные идентификаторы не накапливаются в фильтре
+        long negatives = cache.getFilterNegatives();
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(cache.add("new-" + i));
+        }
+        assertTrue(cache.getFilterNegatives() - negatives > 900);
+    }
+
+    @Test
+    public void testWorksWithoutFilter() {
+        DedupCache cache = new DedupCache(100, 0, TimeUnit.HOURS, 0);
+        assertTrue(cache.add("url-1"));
+        assertFalse(cache.add("url-1"));
+        assertEquals(0, cache.getFilterMemoryBytes());
+        assertEquals(0, cache.getFilterNegatives());
+    }
+
+    @Test
+    public void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new DedupCache(0, 1, TimeUnit.HOURS));
+        assertThrows(IllegalArgumentException.class, () -> new DedupCache(10, -1, TimeUnit.HOURS));
+    }
+}
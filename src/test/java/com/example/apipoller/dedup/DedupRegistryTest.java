@@ -0,0 +1,88 @@
+package com.example.apipoller.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DedupRegistryTest {
+
+    private static DedupRegistry registry() {
+        return new DedupRegistry(namespace -> new DedupCache(10_000, 0, TimeUnit.HOURS));
+    }
+
+    @Test
+    public void testIdIsClaimedOnce() {
+        DedupRegistry registry = registry();
+
+        assertFalse(registry.isClaimed("news", "url-1"));
+        assertTrue(registry.tryClaim("news", "url-1"));
+        assertFalse(registry.tryClaim("news", "url-1"));
+        assertTrue(registry.isClaimed("news", "url-1"));
+    }
+
+    @Test
+    public void testChangedContentIsClaimedAgain() {
+        DedupRegistry registry = registry();
+
+        assertTrue(registry.tryClaim("nasa", "apod_2025-04-27", 1));
+        assertFalse(registry.tryClaim("nasa", "apod_2025-04-27", 1));
+        assertTrue(registry.tryClaim("nasa", "apod_2025-04-27", 2));
+        assertTrue(registry.isClaimed("nasa", "apod_2025-04-27"));
+    }
+
+    @Test
+    public void testNamespacesAreIndependent() {
+        DedupRegistry registry = registry();
+
+        assertTrue(registry.tryClaim("news", "2025-04-27"));
+        assertTrue(registry.tryClaim("nasa", "2025-04-27"));
+        assertFalse(registry.isClaimed("weather", "2025-04-27"));
+        assertEquals(List.of("nasa", "news"), new ArrayList<>(registry.getCaches().keySet()));
+        assertSame(registry.getCache("news"), registry.getCaches().get("news"));
+    }
+
+    @Test
+    public void testConcurrentPollsClaimEachIdOnce() throws Exception {
+        DedupRegistry registry = registry();
+        AtomicInteger claimed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> polls = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                polls.add(pool.submit(() -> {
+                    start.await();
+                    // Одновременные опросы одного сервиса получают одни и те же статьи
+                    for (int i = 0; i < 1_000; i++) {
+                        if (registry.tryClaim("news", "url-" + i)) {
+                            claimed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> poll : polls) {
+                poll.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1_000, claimed.get());
+    }
+
+    @Test
+    public void testSharedRegistryIsSingleton() {
+        assertSame(DedupRegistry.shared(), DedupRegistry.shared());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.apipoller.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FingerprintIndexTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testFingerprintsSurviveReopen() throws Exception {
+        Path file = directory.resolve("output.json.dedup");
+        try (FingerprintIndex index = new FingerprintIndex(file)) {
+            assertTrue(index.put(FingerprintIndex.fingerprint("apod_2025-04-27"), 11));
+            assertFalse(index.put(FingerprintIndex.fingerprint("apod_2025-04-27"), 11));
+            assertTrue(index.put(FingerprintIndex.fingerprint("https://example.com/news/1"), 12));
+        }
+
+        try (FingerprintIndex reopened = new FingerprintIndex(file)) {
+            assertEquals(2, reopened.size());
+            assertTrue(reopened.contains(FingerprintIndex.fingerprint("apod_2025-04-27")));
+            assertTrue(reopened.contains(FingerprintIndex.fingerprint("https://example.com/news/1")));
+            assertFalse(reopened.contains(FingerprintIndex.fingerprint("apod_2025-04-28")));
+            assertEquals(11, reopened.getContentFingerprint(FingerprintIndex.fingerprint("apod_2025-04-27")));
+        }
+    }
+
+    @Test
+    public void testChangedContentIsUpdated() throws Exception {
+        long id = FingerprintIndex.fingerprint("https://example.com/news/1");
+        try (FingerprintIndex index = new FingerprintIndex(directory.resolve("output.json.dedup"))) {
+            assertEquals(0, index.getContentFingerprint(id));
+            assertTrue(index.put(id, 1));
+            assertTrue(index.put(id, 2));
+            assertFalse(index.put(id, 2));
+            assertEquals(2, index.getContentFingerprint(id));
+            assertEquals(1, index.size());
+        }
+    }
+
+    @Test
+    public void testTableGrowsAndKeepsAllFingerprints() throws Exception {
+        Path file = directory.resolve("output.json.dedup");
+        long initialSize;
+        try (FingerprintIndex index = new FingerprintIndex(file)) {
+            initialSize = Files.size(file);
+            for (int i = 0; i < 10_000; i++) {
+                index.put(FingerprintIndex.fingerprint("url-" + i), i);
+            }
+        }
+
+        assertTrue(Files.size(file) > initialSize);
+        assertFalse(Files.exists(directory.resolve("output.json.dedup.tmp")));
+        try (FingerprintIndex reopened = new FingerprintIndex(file)) {
+            assertEquals(10_000, reopened.size());
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(i, reopened.getContentFingerprint(FingerprintIndex.fingerprint("url-" + i)), "url-" + i);
+            }
+            assertFalse(reopened.contains(FingerprintIndex.fingerprint("url-10000")));
+        }
+    }
+
+    @Test
+    public void testCorruptFileIsReplaced() throws Exception {
+        Path file = directory.resolve("output.json.dedup");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+
+        try (FingerprintIndex index = new FingerprintIndex(file)) {
+            assertEquals(0, index.size());
+            assertTrue(index.put(FingerprintIndex.fingerprint("url-1"), 1));
+        }
+    }
+
+    @Test
+    public void testFingerprintIsNeverZero() {
+        assertNotEquals(0, FingerprintIndex.fingerprint(""));
+        assertNotEquals(FingerprintIndex.fingerprint("url-1"), FingerprintIndex.fingerprint("url-2"));
+    }
+
+    @Test
+    public void testContentFingerprintIgnoresFieldOrder() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("title", "Галактика");
+        fields.put("date", "2025-04-27");
+
+        assertEquals(FingerprintIndex.contentFingerprint(fields),
+                     FingerprintIndex.contentFingerprint(new TreeMap<>(Map.of("date", "2025-04-27", "title", "Галактика"))));
+        fields.put("title", "Туманность");
+        assertNotEquals(FingerprintIndex.contentFingerprint(Map.of("title", "Галактика")),
+                        FingerprintIndex.contentFingerprint(fields));
+        assertNotEquals(FingerprintIndex.contentFingerprint(Map.of("a", "bc")),
+                        FingerprintIndex.contentFingerprint(Map.of("ab", "c")));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.apipoller.metrics;
+
+import com.example.apipoller.api.ApiService;
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.model.NewsRecord;
+import com.example.apipoller.resilience.CallNotPermittedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MeteredApiServiceTest {
+
+    @Mock
+    private ApiService delegate;
+
+    private ServiceMetrics metrics;
+    private MeteredApiService service;
+
+    @BeforeEach
+    public void setUp() {
+        metrics = new ServiceMetrics("news");
+        service = new MeteredApiService(delegate, metrics);
+    }
+
+    @Test
+    public void testSuccessCountsRecords() throws Exception {
+        List<ApiRecord> records = List.of(new NewsRecord("t", "d", "u", "s", "p", "a"));
+        when(delegate.fetchData()).thenReturn(records);
+        
+        assertSame(records, service.fetchData());
+        assertEquals(1, metrics.getSuccesses());
+        assertEquals(1, metrics.getRecords());
+        assertTrue(metrics.latencyPercentileNanos(95) >= 0);
+    }
+
+    @Test
+    public void testWrappedSocketTimeoutCountsAsTimeout() throws Exception {
+        // Сервисы оборачивают тайм-аут сокета в IOException с причиной
+        when(delegate.fetchData()).thenThrow(
+            new IOException("Socket timeout when reading from News API", new SocketTimeoutException("Read timed out")));
+        
+        assertThrows(IOException.class, service::fetchData);
+        assertEquals(1, metrics.getTimeouts());
+        assertEquals(0, metrics.getFailures());
+    }
+
+    @Test
+    public void testFailureAndRejection() throws Exception {
+        when(delegate.fetchData())
+            .thenThrow(new IOException("Connection reset"))
+            .thenThrow(new CallNotPermittedException("Circuit open", 1000));
+        
+        assertThrows(IOException.class, service::fetchData);
+        assertThrows(CallNotPermittedException.class, service::fetchData);
+        assertEquals(1, metrics.getFailures());
+        assertEquals(1, metrics.getRejected());
+    }
+
+    @Test
+    public void testLatencyPercentile() {
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(95), metrics.latencyPercentileNanos(95));
+        assertEquals(-1, new ServiceMetrics("empty").latencyPercentileNanos(95));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.apipoller.model;
 
 import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
 import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,4 +117,11 @@ public class NasaRecordTest {
         assertTrue(((String)map.get("explanation")).contains("iconic images"));
         assertTrue(((String)map.get("url")).contains("apod.nasa.gov"));
     }
+
+    @Test
+    public void testEventDate() {
+        assertEquals(LocalDate.of(2025, 4, 27),
+                     new NasaRecord("id", "t", "2025-04-27", "e", "u", "image", null).getEventDate());
+        assertNull(new NasaRecord("id", "t", null, "e", "u", "image", null).getEventDate());
+    }
 }
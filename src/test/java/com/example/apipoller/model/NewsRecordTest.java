@@ -1,6 +1,7 @@
 package com.example.apipoller.model;
 
 import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
 import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -84,4 +85,17 @@ public class NewsRecordTest {
         assertTrue(toString.contains("Example Source"));
         assertTrue(toString.contains("https://example.com/news"));
     }
+
+    @Test
+    public void testEventDate() {
+        assertEquals(LocalDate.of(2025, 4, 27),
+                     new NewsRecord("t", "d", "u", "s", "2025-04-27T10:15:00Z", "a").getEventDate());
+        // Время с часовым поясом приводится к UTC
+        assertEquals(LocalDate.of(2025, 4, 26),
+                     new NewsRecord("t", "d", "u", "s", "2025-04-27T01:00:00+03:00", "a").getEventDate());
+        assertEquals(LocalDate.of(2025, 4, 27),
+                     new NewsRecord("t", "d", "u", "s", "2025-04-27", "a").getEventDate());
+        assertNull(new NewsRecord("t", "d", "u", "s", null, "a").getEventDate());
+        assertNull(new NewsRecord("t", "d", "u", "s", "yesterday", "a").getEventDate());
+    }
 }
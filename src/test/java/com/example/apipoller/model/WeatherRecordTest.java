@@ -1,6 +1,7 @@
 package com.example.apipoller.model;
 
 import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
 import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -98,4 +99,10 @@ public class WeatherRecordTest {
         assertTrue(toString.contains("15.5"));
         assertTrue(toString.contains("Cloudy"));
     }
+
+    @Test
+    public void testEventDate() {
+        WeatherRecord record = new WeatherRecord("London", 15.5, 5.2, 80, "Cloudy", 1745712000L);
+        assertEquals(LocalDate.of(2025, 4, 27), record.getEventDate());
+    }
 }
@@ -0,0 +1,180 @@
+package com.example.apipoller.resilience;
+
+import com.example.apipoller.api.RequestContext;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReturnsResultWithinDeadline() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, executor);
+        
+        assertEquals("ok", bulkhead.call(() -> "ok", 1, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.getAdmittedCalls());
+    }
+
+    @Test
+    public void testSubmitDoesNotBlockCaller() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, executor);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        CompletableFuture<String> hung = bulkhead.submit(() -> {
+            release.await();
+            return "late";
+        }, 5, TimeUnit.SECONDS);
+        assertFalse(hung.isDone());
+        
+        // Отсек занят, очередь нулевая - следующий вызов отклоняется без ожидания
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+            () -> bulkhead.submit(() -> "x", 1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS));
+        assertInstanceOf(CallNotPermittedException.class, rejected.getCause());
+        
+        release.countDown();
+        assertEquals("late", hung.get(1, TimeUnit.SECONDS));
+        assertEquals("x", bulkhead.submit(() -> "x", 1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSubmittedCallIsCancelledAtDeadline() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, executor);
+        
+        CompletableFuture<Object> hung = bulkhead.submit(() -> {
+            Thread.sleep(10_000);
+            return null;
+        }, 200, TimeUnit.MILLISECONDS);
+        
+        ExecutionException error = assertThrows(ExecutionException.class, () -> hung.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, error.getCause());
+    }
+
+    @Test
+    public void testHungCallIsCancelledAtDeadline() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, executor);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        
+        long started = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> bulkhead.call(() -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            } finally {
+                finished.countDown();
+            }
+            return null;
+        }, 200, TimeUnit.MILLISECONDS));
+        
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2), "Вызывающий поток должен освободиться к сроку");
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        assertTrue(interrupted.get(), "Зависший вызов должен быть прерван");
+    }
+
+    @Test
+    public void testDeadlineAbortsInFlightRequest() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, executor);
+        
+        // Имитируем чтение сокета, которое не реагирует на прерывание потока
+        CompletableFuture<Object> hung = bulkhead.submit(() -> {
+            HttpGet request = new HttpGet("https://example.com/slow");
+            RequestContext.current().register(request);
+            while (!request.isCancelled()) {
+                Thread.onSpinWait();
+            }
+            throw new InterruptedIOException("Request aborted");
+        }, 200, TimeUnit.MILLISECONDS);
+        
+        ExecutionException error = assertThrows(ExecutionException.class, () -> hung.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, error.getCause());
+        
+        // Прерванный запрос сразу освобождает место в отсеке
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (bulkhead.getAdmittedCalls() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, bulkhead.getAdmittedCalls());
+    }
+
+    @Test
+    public void testHedgedAttemptTakesBulkheadSlot() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 2, 0, executor);
+        
+        // Основной вызов занял одно из двух мест: дубль получает второе, третий - нет
+        List<Boolean> hedges = bulkhead.call(() -> {
+            RequestContext context = RequestContext.current();
+            List<Boolean> acquired = List.of(context.tryAcquireHedge(), context.tryAcquireHedge());
+            context.releaseHedge();
+            return acquired;
+        }, 1, TimeUnit.SECONDS);
+        
+        assertEquals(List.of(true, false), hedges);
+        assertEquals(0, bulkhead.getAdmittedCalls());
+        assertEquals("ok", bulkhead.call(() -> "ok", 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConfiguredMaxThreadsCoversSlotsAndWaiters() {
+        // По умолчанию одно место и одно место в очереди: поток вызова и потоки ожидания
+        assertEquals(3, Bulkhead.configuredMaxThreads("test"));
+    }
+
+    @Test
+    public void testFullBulkheadRejectsCalls() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, executor);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        
+        Thread holder = new Thread(() -> {
+            try {
+                bulkhead.call(() -> {
+                    running.countDown();
+                    release.await();
+                    return null;
+                }, 5, TimeUnit.SECONDS);
+            } catch (IOException e) {
+                // не ожидается
+            }
+        });
+        holder.start();
+        assertTrue(running.await(1, TimeUnit.SECONDS));
+        
+        // Отсек занят, очередь нулевая - вызов сразу отклоняется
+        assertThrows(CallNotPermittedException.class, () -> bulkhead.call(() -> "x", 1, TimeUnit.SECONDS));
+        
+        release.countDown();
+        holder.join(1000);
+        assertEquals("x", bulkhead.call(() -> "x", 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testIOExceptionIsPropagated() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, executor);
+        
+        IOException e = assertThrows(IOException.class, () -> bulkhead.call(() -> {
+            throw new IOException("boom");
+        }, 1, TimeUnit.SECONDS));
+        assertEquals("boom", e.getMessage());
+    }
+}
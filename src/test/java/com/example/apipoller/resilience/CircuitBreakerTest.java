@@ -0,0 +1,92 @@
+package com.example.apipoller.resilience;
+
+import com.example.apipoller.api.ApiResponseException;
+import com.example.apipoller.api.ApiService;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private final CircuitBreaker breaker =
+        new CircuitBreaker("test", 50, 4, 4, 30, TimeUnit.SECONDS, clock::get);
+
+    @Test
+    public void testOpensWhenFailureRateReached() {
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "До минимального числа вызовов решение не принимается");
+        
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(TimeUnit.SECONDS.toNanos(30), breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testHalfOpenTrialClosesOnSuccess() {
+        openBreaker();
+        
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(0, breaker.tryAcquirePermission(), "После паузы разрешается пробный вызов");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission() > 0, "Одновременно разрешен только один пробный вызов");
+        
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRatePercent());
+    }
+
+    @Test
+    public void testHalfOpenTrialReopensOnFailure() {
+        openBreaker();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        breaker.tryAcquirePermission();
+        
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.describe().startsWith("OPEN"));
+    }
+
+    @Test
+    public void testOpenBreakerSkipsUpstreamCalls() throws Exception {
+        ApiService delegate = mock(ApiService.class);
+        when(delegate.getServiceName()).thenReturn("test");
+        when(delegate.fetchData()).thenThrow(new IOException("Connection reset"));
+        CircuitBreakerApiService service = new CircuitBreakerApiService(delegate, breaker);
+        
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IOException.class, service::fetchData);
+        }
+        
+        CallNotPermittedException e = assertThrows(CallNotPermittedException.class, service::fetchData);
+        assertTrue(e.getRetryAfterNanos() > 0);
+        verify(delegate, times(4)).fetchData();
+    }
+
+    @Test
+    public void testClientErrorsAreNotCounted() throws Exception {
+        ApiService delegate = mock(ApiService.class);
+        when(delegate.fetchData()).thenThrow(new ApiResponseException(429, "Too Many Requests", null));
+        CircuitBreakerApiService service = new CircuitBreakerApiService(delegate, breaker);
+        
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ApiResponseException.class, service::fetchData);
+        }
+        
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
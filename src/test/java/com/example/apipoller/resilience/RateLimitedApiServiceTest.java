@@ -0,0 +1,101 @@
+package com.example.apipoller.resilience;
+
+import com.example.apipoller.api.ApiResponseException;
+import com.example.apipoller.api.ApiService;
+import com.example.apipoller.api.RateLimitStatus;
+import com.example.apipoller.api.RequestContext;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RateLimitedApiServiceTest {
+
+    @Mock
+    private ApiService delegate;
+
+    private RateLimitedApiService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new RateLimitedApiService(delegate, new TokenBucket(100, 100, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDelegatesWhenTokenAvailable() throws Exception {
+        when(delegate.fetchData()).thenReturn(Collections.emptyList());
+        
+        assertTrue(service.fetchData().isEmpty());
+        verify(delegate).fetchData();
+    }
+
+    @Test
+    public void testHedgedAttemptConsumesToken() throws Exception {
+        RateLimitedApiService limited = new RateLimitedApiService(delegate, new TokenBucket(2, 2, 1, TimeUnit.HOURS));
+        List<Boolean> hedges = new ArrayList<>();
+        when(delegate.fetchData()).thenAnswer(invocation -> {
+            // Основной запрос занял один токен из двух: хватает ровно на один дубль
+            hedges.add(RequestContext.current().tryAcquireHedge());
+            hedges.add(RequestContext.current().tryAcquireHedge());
+            return Collections.emptyList();
+        });
+        
+        new RequestContext().call(limited::fetchData);
+        assertEquals(List.of(true, false), hedges);
+        assertThrows(CallNotPermittedException.class, limited::fetchData);
+    }
+
+    @Test
+    public void testTooManyRequestsPausesFurtherCalls() throws Exception {
+        when(delegate.getServiceName()).thenReturn("nasa");
+        RateLimitStatus status = new RateLimitStatus(30, 0, -1, 120_000);
+        when(delegate.fetchData()).thenThrow(new ApiResponseException(429, "Too Many Requests", status));
+        
+        assertThrows(ApiResponseException.class, () -> service.fetchData());
+        
+        // Следующий вызов не доходит до API и сообщает, когда можно повторить
+        CallNotPermittedException e = assertThrows(CallNotPermittedException.class, () -> service.fetchData());
+        assertTrue(e.getRetryAfterNanos() > TimeUnit.SECONDS.toNanos(100));
+        verify(delegate, times(1)).fetchData();
+    }
+
+    @Test
+    public void testExhaustedRemainingQuotaBlocksUntilReset() throws Exception {
+        when(delegate.getServiceName()).thenReturn("news");
+        when(delegate.fetchData()).thenReturn(Collections.emptyList());
+        when(delegate.getRateLimitStatus()).thenReturn(new RateLimitStatus(100, 0, 60_000, -1));
+        
+        service.fetchData();
+        
+        assertThrows(CallNotPermittedException.class, () -> service.fetchData());
+        verify(delegate, times(1)).fetchData();
+    }
+
+    @Test
+    public void testRateLimitStatusFromHeaders() {
+        BasicClassicHttpResponse response = new BasicClassicHttpResponse(429);
+        response.addHeader("Retry-After", "30");
+        response.addHeader("X-RateLimit-Limit", "40");
+        response.addHeader("X-RateLimit-Remaining", "0");
+        
+        RateLimitStatus status = RateLimitStatus.fromResponse(response);
+        
+        assertNotNull(status);
+        assertEquals(30_000, status.getRetryAfterMillis());
+        assertEquals(40, status.getLimit());
+        assertEquals(0, status.getRemaining());
+        assertEquals(-1, status.getResetAfterMillis());
+        assertNull(RateLimitStatus.fromResponse(new BasicClassicHttpResponse(200)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.apipoller.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+
+    @Test
+    public void testBurstThenRefill() {
+        // 10 запросов за 10 секунд, 2 подряд: 8 токенов пополняются за период
+        TokenBucket bucket = new TokenBucket(10, 2, 10, TimeUnit.SECONDS, clock::get);
+        
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        long wait = bucket.tryAcquire();
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1250), wait, "Один токен пополняется за 1.25 секунды");
+        
+        clock.addAndGet(wait);
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    public void testNeverExceedsQuotaWithinPeriod() {
+        TokenBucket bucket = new TokenBucket(30, 5, 60, TimeUnit.SECONDS, clock::get);
+        long periodNanos = TimeUnit.SECONDS.toNanos(60);
+        int granted = 0;
+        
+        // Опрашиваем ведро каждые 100 мс в течение одного периода
+        for (long t = 0; t < periodNanos; t += TimeUnit.MILLISECONDS.toNanos(100)) {
+            clock.set(t);
+            if (bucket.tryAcquire() == 0) {
+                granted++;
+            }
+        }
+        assertTrue(granted <= 30, "За период выдано больше токенов, чем разрешает квота: " + granted);
+        assertTrue(granted >= 29, "Квота должна использоваться практически полностью: " + granted);
+    }
+
+    @Test
+    public void testBlockForPausesAcquisition() {
+        TokenBucket bucket = new TokenBucket(10, 10, 1, TimeUnit.SECONDS, clock::get);
+        
+        bucket.blockFor(5, TimeUnit.SECONDS);
+        assertEquals(TimeUnit.SECONDS.toNanos(5), bucket.tryAcquire());
+        
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    public void testLimitToServerRemaining() {
+        TokenBucket bucket = new TokenBucket(10, 10, 1, TimeUnit.SECONDS, clock::get);
+        
+        bucket.limitTo(0);
+        assertTrue(bucket.tryAcquire() > 0, "При исчерпанной квоте токенов быть не должно");
+    }
+
+    @Test
+    public void testInvalidQuota() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, 1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 1, 0, TimeUnit.SECONDS));
+    }
+}
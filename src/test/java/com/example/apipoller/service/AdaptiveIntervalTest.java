@@ -0,0 +1,50 @@
+package com.example.apipoller.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveIntervalTest {
+
+    @Test
+    public void testEmptyPollsBackOffAdditivelyUpToMax() {
+        AdaptiveInterval interval = new AdaptiveInterval(10, 2, 30, TimeUnit.SECONDS);
+        
+        // Каждый пустой опрос увеличивает интервал на половину базового
+        assertEquals(TimeUnit.SECONDS.toNanos(15), interval.onPoll(0));
+        assertEquals(TimeUnit.SECONDS.toNanos(20), interval.onPoll(0));
+        
+        // Интервал не превышает максимум
+        for (int i = 0; i < 10; i++) {
+            interval.onPoll(0);
+        }
+        assertEquals(TimeUnit.SECONDS.toNanos(30), interval.currentNanos());
+    }
+
+    @Test
+    public void testProductivePollsSpeedUpMultiplicativelyDownToMin() {
+        AdaptiveInterval interval = new AdaptiveInterval(10, 2, 30, TimeUnit.SECONDS);
+        
+        assertEquals(TimeUnit.SECONDS.toNanos(5), interval.onPoll(3));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2500), interval.onPoll(1));
+        
+        // Интервал не опускается ниже минимума
+        assertEquals(TimeUnit.SECONDS.toNanos(2), interval.onPoll(1));
+    }
+
+    @Test
+    public void testFixedIntervalNeverChanges() {
+        AdaptiveInterval interval = AdaptiveInterval.fixed(5, TimeUnit.SECONDS);
+        
+        assertEquals(TimeUnit.SECONDS.toNanos(5), interval.onPoll(0));
+        assertEquals(TimeUnit.SECONDS.toNanos(5), interval.onPoll(10));
+    }
+
+    @Test
+    public void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveInterval(10, 0, 30, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveInterval(10, 40, 30, TimeUnit.SECONDS));
+    }
+}
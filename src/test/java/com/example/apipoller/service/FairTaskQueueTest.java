@@ -0,0 +1,90 @@
+package com.example.apipoller.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FairTaskQueueTest {
+
+    private static PollTask task(String serviceName, long overdueNanos) {
+        PollTask task = mock(PollTask.class);
+        when(task.getServiceName()).thenReturn(serviceName);
+        lenient().when(task.overdueNanos()).thenReturn(overdueNanos);
+        return task;
+    }
+
+    @Test
+    public void testHigherPriorityIsDispatchedFirst() {
+        FairTaskQueue queue = new FairTaskQueue();
+        queue.register("critical", 10, 1, 0);
+        queue.register("bulk", 0, 1, 0);
+        PollTask bulk = task("bulk", 0);
+        PollTask critical = task("critical", 0);
+        
+        queue.add(bulk);
+        queue.add(critical);
+        
+        assertSame(critical, queue.poll());
+        assertSame(bulk, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testSharesFollowWeightsWithinPriority() {
+        FairTaskQueue queue = new FairTaskQueue();
+        queue.register("heavy", 0, 3, 0);
+        queue.register("light", 0, 1, 0);
+        PollTask heavy = task("heavy", 0);
+        PollTask light = task("light", 0);
+        Map<PollTask, Integer> dispatched = new HashMap<>();
+        
+        // Обе задачи постоянно готовы: после запуска задача сразу возвращается в очередь
+        queue.add(heavy);
+        queue.add(light);
+        for (int i = 0; i < 400; i++) {
+            PollTask next = queue.poll();
+            dispatched.merge(next, 1, Integer::sum);
+            queue.add(next);
+        }
+        
+        assertEquals(300, dispatched.get(heavy), 2);
+        assertEquals(100, dispatched.get(light), 2);
+    }
+
+    @Test
+    public void testShedsOnlyOverdueLowerPriorityTasks() {
+        FairTaskQueue queue = new FairTaskQueue();
+        long maxWait = TimeUnit.SECONDS.toNanos(5);
+        queue.register("critical", 10, 1, maxWait);
+        queue.register("stale", 0, 1, maxWait);
+        queue.register("fresh", 0, 1, maxWait);
+        PollTask critical = task("critical", TimeUnit.SECONDS.toNanos(30));
+        PollTask stale = task("stale", TimeUnit.SECONDS.toNanos(6));
+        PollTask fresh = task("fresh", TimeUnit.SECONDS.toNanos(1));
+        queue.add(critical);
+        queue.add(stale);
+        queue.add(fresh);
+        
+        List<PollTask> shed = queue.shedOverdue();
+        
+        // Задача высшего приоритета не сбрасывается, даже если давно ждет
+        assertEquals(List.of(stale), shed);
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void testNothingIsShedWithoutHigherPriorityWork() {
+        FairTaskQueue queue = new FairTaskQueue();
+        queue.register("a", 0, 1, 1);
+        queue.add(task("a", TimeUnit.SECONDS.toNanos(60)));
+        
+        assertTrue(queue.shedOverdue().isEmpty());
+        assertEquals(1, queue.size());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.apipoller.service;
+
+import com.example.apipoller.config.AppConfig.ConfigurationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JitterTest {
+
+    private static final long DELAY = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void testNoneKeepsDelay() {
+        assertEquals(DELAY, Jitter.none().apply(DELAY));
+    }
+
+    @Test
+    public void testFullJitterSpreadsAroundDelay() {
+        Jitter jitter = new Jitter(Jitter.Mode.FULL);
+        Set<Long> values = new HashSet<>();
+        long sum = 0;
+        int samples = 10_000;
+        
+        for (int i = 0; i < samples; i++) {
+            long value = jitter.apply(DELAY);
+            assertTrue(value >= 0 && value < 2 * DELAY);
+            values.add(value);
+            sum += value;
+        }
+        
+        // Значения различаются, а средний интервал близок к исходному
+        assertTrue(values.size() > 1);
+        assertEquals(DELAY, sum / samples, DELAY / 10);
+    }
+
+    @Test
+    public void testDecorrelatedJitterStaysWithinBounds() {
+        Jitter jitter = new Jitter(Jitter.Mode.DECORRELATED);
+        
+        for (int i = 0; i < 1000; i++) {
+            long value = jitter.apply(DELAY);
+            assertTrue(value >= DELAY / 2 && value <= 2 * DELAY);
+        }
+    }
+
+    @Test
+    public void testParseMode() {
+        assertEquals(Jitter.Mode.FULL, Jitter.parseMode("full"));
+        assertEquals(Jitter.Mode.DECORRELATED, Jitter.parseMode(" Decorrelated "));
+        assertThrows(ConfigurationException.class, () -> Jitter.parseMode("gaussian"));
+    }
+}
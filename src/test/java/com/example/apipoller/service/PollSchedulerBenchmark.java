@@ -0,0 +1,113 @@
+package com.example.apipoller.service;
+
+import com.example.apipoller.api.ApiService;
+import com.example.apipoller.config.AppConfig;
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.writer.DataWriter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сравнение платформенного и виртуального режимов выполнения PollScheduler
+ * на одинаковой нагрузке: множество сервисов, каждый опрос которых блокируется
+ * на время, имитирующее ожидание ответа от сети.
+ * <p>
+ * Запуск (после {@code mvn test-compile}):
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;зависимости&gt; \
+ *     com.example.apipoller.service.PollSchedulerBenchmark [services] [maxThreads] [latencyMs] [seconds]
+ * </pre>
+ * Не является тестом JUnit и не запускается surefire.
+ */
+public class PollSchedulerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int serviceCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long latencyMs = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        System.out.println("Services: " + serviceCount + ", maxThreads: " + maxThreads +
+                           ", fetch latency: " + latencyMs + "ms, duration: " + seconds + "s");
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            run(mode, serviceCount, maxThreads, latencyMs, seconds);
+        }
+    }
+
+    private static void run(ExecutionMode mode, int serviceCount, int maxThreads,
+                            long latencyMs, int seconds) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        AtomicLong polls = new AtomicLong();
+        List<ApiService> services = new ArrayList<>();
+        for (int i = 0; i < serviceCount; i++) {
+            services.add(new BlockingService("bench-" + i, latencyMs, polls));
+        }
+
+        AppConfig config = new AppConfig(maxThreads, 1, Collections.singletonList("bench"), "json");
+        PollScheduler scheduler = new PollScheduler(config, new NoopWriter(), mode);
+
+        long started = System.nanoTime();
+        scheduler.start(services);
+        TimeUnit.SECONDS.sleep(seconds);
+        scheduler.shutdown();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        System.out.printf("%-8s polls: %8d, throughput: %8.1f polls/s, peak platform threads: %d%n",
+                          mode, polls.get(), polls.get() * 1000.0 / elapsedMs, threads.getPeakThreadCount());
+
+        // Даем потокам пула завершиться, чтобы они не попали в замер следующего режима
+        TimeUnit.SECONDS.sleep(1);
+    }
+
+    /**
+     * Сервис, имитирующий блокирующий HTTP-запрос
+     */
+    private static class BlockingService implements ApiService {
+        private final String name;
+        private final long latencyMs;
+        private final AtomicLong polls;
+
+        BlockingService(String name, long latencyMs, AtomicLong polls) {
+            this.name = name;
+            this.latencyMs = latencyMs;
+            this.polls = polls;
+        }
+
+        @Override
+        public String getServiceName() {
+            return name;
+        }
+
+        @Override
+        public List<ApiRecord> fetchData() {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            polls.incrementAndGet();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Писатель, не выполняющий ввода-вывода
+     */
+    private static class NoopWriter implements DataWriter {
+        @Override
+        public void writeRecords(List<ApiRecord> records) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.example.apipoller.writer.DataWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -16,10 +17,13 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -219,10 +223,12 @@ public class PollSchedulerTest {
         Future mockFuture = mock(Future.class);
         when(mockExecutor.submit(any(Runnable.class))).thenReturn(mockFuture);
         
-        // Создаем реальную задачу и очередь для тестирования координатора
-        Runnable mockRunnable = mock(Runnable.class);
-        BlockingQueue<Runnable> taskQueue = new LinkedBlockingQueue<>();
-        taskQueue.add(mockRunnable);
+        // Задача с нулевой задержкой готова к немедленному запуску
+        when(mockPollTask.getDelay(any(TimeUnit.class))).thenReturn(0L);
+        CompletableFuture<Void> poll = new CompletableFuture<>();
+        when(mockPollTask.start(mockExecutor)).thenReturn(poll);
+        DelayQueue<PollTask> taskQueue = new DelayQueue<>();
+        taskQueue.add(mockPollTask);
         
         // Получаем доступ к приватным полям
         Field taskQueueField = PollScheduler.class.getDeclaredField("taskQueue");
@@ -253,14 +259,108 @@ public class PollSchedulerTest {
         // Ждем немного, чтобы coordinateTasks успел запустить задачу
         Thread.sleep(500);
         
-        // Устанавливаем isRunning в false, чтобы координатор завершил работу
+        // Останавливаем координатор, заблокированный на пустой очереди
         isRunningField.set(pollScheduler, false);
+        testThread.interrupt();
         
         // Ждем завершения потока
         testThread.join(1000);
         
-        // Проверяем, что задача была отправлена на выполнение
-        verify(mockExecutor, atLeastOnce()).submit(mockRunnable);
+        // Проверяем, что задача была отправлена на выполнение, а поток координатора завершился
+        ArgumentCaptor<Runnable> submitted = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockExecutor, atLeastOnce()).submit(submitted.capture());
+        assertFalse(testThread.isAlive());
+        
+        // Переданная исполнителю обертка запускает саму задачу, не дожидаясь ответа сервиса
+        submitted.getValue().run();
+        verify(mockPollTask).start(mockExecutor);
+        
+        // Разрешение возвращается только по завершении опроса
+        Field permitsField = PollScheduler.class.getDeclaredField("permits");
+        permitsField.setAccessible(true);
+        Semaphore permits = (Semaphore) permitsField.get(pollScheduler);
+        int available = permits.availablePermits();
+        poll.complete(null);
+        assertEquals(available + 1, permits.availablePermits());
+    }
+    
+    @Test
+    public void testPermitIsHeldUntilPollCompletes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        CountDownLatch allStarted = new CountDownLatch(3);
+        
+        // Все три сервиса зависают до сигнала
+        List<ApiService> services = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ApiService service = mock(ApiService.class);
+            when(service.getServiceName()).thenReturn("hung-" + i);
+            when(service.fetchData()).thenAnswer(invocation -> {
+                started.incrementAndGet();
+                allStarted.countDown();
+                release.await();
+                return Collections.emptyList();
+            });
+            services.add(service);
+        }
+        
+        // maxThreads = 2: третий опрос ждет, пока зависшие опросы удерживают разрешения
+        PollScheduler scheduler = new PollScheduler(mockConfig, mockWriter, ExecutionMode.PLATFORM);
+        scheduler.start(services);
+        try {
+            assertFalse(allStarted.await(500, TimeUnit.MILLISECONDS));
+            assertEquals(2, started.get(), "Одновременно должно выполняться не более maxThreads опросов");
+            release.countDown();
+            assertTrue(allStarted.await(5, TimeUnit.SECONDS), "Разрешение должно возвращаться по завершении опроса");
+        } finally {
+            release.countDown();
+            scheduler.shutdown();
+        }
+    }
+    
+    @Test
+    public void testVirtualModeRespectsConcurrencyLimit() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        AtomicBoolean allVirtual = new AtomicBoolean(true);
+        CountDownLatch polled = new CountDownLatch(6);
+        
+        // Каждый сервис блокируется на время "сетевого" запроса
+        List<ApiService> services = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ApiService service = mock(ApiService.class);
+            when(service.getServiceName()).thenReturn("service-" + i);
+            when(service.fetchData()).thenAnswer(invocation -> {
+                int current = active.incrementAndGet();
+                maxActive.accumulateAndGet(current, Math::max);
+                if (!Thread.currentThread().isVirtual()) {
+                    allVirtual.set(false);
+                }
+                Thread.sleep(100);
+                active.decrementAndGet();
+                polled.countDown();
+                return Collections.emptyList();
+            });
+            services.add(service);
+        }
+        
+        PollScheduler scheduler = new PollScheduler(mockConfig, mockWriter, ExecutionMode.VIRTUAL);
+        scheduler.start(services);
+        try {
+            assertTrue(polled.await(5, TimeUnit.SECONDS), "Все сервисы должны быть опрошены");
+        } finally {
+            scheduler.shutdown();
+        }
+        
+        assertTrue(allVirtual.get(), "Опросы должны выполняться на виртуальных потоках");
+        assertTrue(maxActive.get() <= 2, "Одновременно должно выполняться не более maxThreads опросов");
+    }
+    
+    @Test
+    public void testExecutionModeFromString() {
+        assertEquals(ExecutionMode.PLATFORM, ExecutionMode.fromString("platform"));
+        assertEquals(ExecutionMode.VIRTUAL, ExecutionMode.fromString("Virtual"));
+        assertThrows(AppConfig.ConfigurationException.class, () -> ExecutionMode.fromString("green"));
     }
     
     /**
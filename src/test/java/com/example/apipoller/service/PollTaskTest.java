@@ -1,7 +1,9 @@
 package com.example.apipoller.service;
 
 import com.example.apipoller.api.ApiService;
+import com.example.apipoller.model.ApiRecord;
 import com.example.apipoller.model.NewsRecord;
+import com.example.apipoller.resilience.CallNotPermittedException;
 import com.example.apipoller.writer.DataWriter;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +17,8 @@ import java.net.SocketTimeoutException;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.DelayQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -68,6 +72,37 @@ public class PollTaskTest {
         assertEquals(1, taskQueue.size(), "Задача должна быть добавлена в очередь");
     }
 
+    @Test
+    public void testStartCompletesFromCallback() throws Exception {
+        NewsRecord record = new NewsRecord(
+            "Test Title", "Test Description", "https://example.com",
+            "Test Source", "2025-04-27T00:00:00Z", "Test Author"
+        );
+        CompletableFuture<List<ApiRecord>> response = new CompletableFuture<>();
+        when(apiService.fetchDataAsync(any())).thenReturn(response);
+
+        // Запуск не ждет ответа сервиса
+        CompletableFuture<Void> polled = pollTask.start(Runnable::run);
+        assertFalse(polled.isDone());
+        assertTrue(taskQueue.isEmpty());
+
+        response.complete(List.of(record));
+        polled.get(1, TimeUnit.SECONDS);
+        verify(writer, times(1)).writeRecords(List.of(record));
+        assertEquals(1, taskQueue.size(), "Задача должна быть добавлена в очередь");
+    }
+
+    @Test
+    public void testStartHandlesFailedRequest() throws Exception {
+        when(apiService.fetchDataAsync(any()))
+            .thenReturn(CompletableFuture.failedFuture(new CallNotPermittedException("open", TimeUnit.SECONDS.toNanos(30))));
+
+        pollTask.start(Runnable::run).get(1, TimeUnit.SECONDS);
+
+        verify(writer, never()).writeRecords(any());
+        assertEquals(1, taskQueue.size(), "Задача должна быть добавлена в очередь");
+    }
+
     @Test
     public void testRunWithNoNewRecords() throws Exception {
         // Настройка поведения моков
@@ -191,19 +226,90 @@ public class PollTaskTest {
     }
     
     @Test
-    public void testScheduleNextExecutionInterruptedException() throws Exception {
-        // Создаем мок для TimeUnit, который будет выбрасывать исключение
+    public void testScheduleNextExecutionDoesNotBlockWorker() throws Exception {
+        // Мок TimeUnit позволяет убедиться, что поток не засыпает между опросами
         TimeUnit mockedTimeUnit = mock(TimeUnit.class);
-        doThrow(new InterruptedException("Interrupted")).when(mockedTimeUnit).sleep(anyLong());
+        when(mockedTimeUnit.toNanos(anyLong())).thenReturn(TimeUnit.SECONDS.toNanos(30));
         
-        // Создаем задачу с мокированным TimeUnit
         PollTask task = new PollTask(apiService, writer, taskQueue, timeout, mockedTimeUnit);
         
         // Запуск задачи
         task.run();
         
-        // Задача не должна быть добавлена в очередь из-за прерывания
-        assertEquals(0, taskQueue.size(), "Задача не должна быть добавлена в очередь при прерывании");
+        // Задача сразу возвращается в очередь с отложенным временем запуска
+        verify(mockedTimeUnit, never()).sleep(anyLong());
+        assertEquals(1, taskQueue.size(), "Задача должна быть добавлена в очередь без ожидания");
+        assertTrue(task.getDelay(TimeUnit.SECONDS) > 25, "Следующий запуск должен быть отложен на таймаут");
+    }
+    
+    @Test
+    public void testAdaptiveIntervalBacksOffOnEmptyPolls() throws Exception {
+        when(apiService.fetchData()).thenReturn(Collections.emptyList());
+        AdaptiveInterval interval = new AdaptiveInterval(10, 5, 60, TimeUnit.SECONDS);
+        PollTask task = new PollTask(apiService, writer, taskQueue, 10, TimeUnit.SECONDS, interval);
+        
+        task.run();
+        
+        // Пустой опрос увеличивает интервал с 10 до 15 секунд
+        assertTrue(task.getDelay(TimeUnit.SECONDS) > 10, "Интервал должен увеличиться после пустого опроса");
+        assertEquals(TimeUnit.SECONDS.toNanos(15), interval.currentNanos());
+    }
+    
+    @Test
+    public void testCallNotPermittedDefersNextPoll() throws Exception {
+        when(apiService.fetchData()).thenThrow(new CallNotPermittedException("Rate limit", TimeUnit.SECONDS.toNanos(60)));
+        
+        pollTask.run();
+        
+        // Опрос откладывается до разрешенного момента, а не до обычного таймаута
+        verify(writer, never()).writeRecords(any());
+        assertEquals(1, taskQueue.size(), "Задача должна быть добавлена в очередь");
+        assertTrue(pollTask.getDelay(TimeUnit.SECONDS) > 50, "Следующий опрос должен быть отложен");
+    }
+    
+    @Test
+    public void testScheduleNextExecutionInterruptedException() throws Exception {
+        // Создаем мок для очереди задач, прерывающий постановку задачи
+        BlockingQueue<Runnable> mockQueue = mock(BlockingQueue.class);
+        doThrow(new InterruptedException("Interrupted")).when(mockQueue).put(any());
+        
+        PollTask task = new PollTask(apiService, writer, mockQueue, timeout, timeUnit);
+        
+        // Запуск задачи
+        task.run();
+        
+        // Флаг прерывания должен быть восстановлен
+        assertTrue(Thread.interrupted(), "Флаг прерывания потока должен быть восстановлен");
+        verify(mockQueue).put(any());
+    }
+    
+    @Test
+    public void testDelayQueueOrdersTasksByNextRun() throws Exception {
+        // Задачи в DelayQueue становятся доступны только после наступления их времени
+        DelayQueue<PollTask> delayQueue = new DelayQueue<>();
+        PollTask task = new PollTask(apiService, writer, delayQueue, timeout, timeUnit);
+        when(apiService.fetchData()).thenReturn(Collections.emptyList());
+        
+        delayQueue.put(task);
+        assertSame(task, delayQueue.poll(), "Новая задача должна быть готова к немедленному запуску");
+        
+        task.run();
+        
+        assertNull(delayQueue.poll(), "До истечения таймаута задача не должна быть доступна");
+        assertSame(task, delayQueue.poll(2, TimeUnit.SECONDS), "После таймаута задача должна стать доступной");
+    }
+    
+    @Test
+    public void testDelayFirstRunPostponesTask() throws Exception {
+        // Разнесенный старт: задача недоступна до истечения задержки первого запуска
+        DelayQueue<PollTask> delayQueue = new DelayQueue<>();
+        PollTask task = new PollTask(apiService, writer, delayQueue, timeout, timeUnit);
+        
+        task.delayFirstRun(TimeUnit.MILLISECONDS.toNanos(300));
+        delayQueue.put(task);
+        
+        assertNull(delayQueue.poll(), "Задача не должна быть доступна до истечения задержки");
+        assertSame(task, delayQueue.poll(2, TimeUnit.SECONDS), "После задержки задача должна стать доступной");
     }
     
     @Test
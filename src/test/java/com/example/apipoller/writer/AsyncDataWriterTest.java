@@ -0,0 +1,167 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.config.AppConfig.ConfigurationException;
+import com.example.apipoller.model.ApiRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.apipoller.writer.RecordingWriter.news;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncDataWriterTest {
+
+    @Test
+    public void testRecordsAreBatchedAndWrittenInBackground() throws Exception {
+        RecordingWriter delegate = new RecordingWriter();
+        AsyncDataWriter writer = new AsyncDataWriter(delegate, 1000, 100, 200, 0,
+                                                     AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+        
+        // Несколько мелких вызовов объединяются в один пакет за время задержки
+        for (int i = 0; i < 5; i++) {
+            writer.writeRecords(news(2, "batch" + i + "-"));
+        }
+        writer.close();
+        
+        assertEquals(10, delegate.recordCount());
+        assertTrue(delegate.batches.size() < 5, "batches: " + delegate.batches.size());
+        assertTrue(delegate.closed);
+        assertEquals(0, delegate.syncs.get());
+    }
+
+    @Test
+    public void testFullBufferRejectsExplicitly() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter delegate = new RecordingWriter(release);
+        AsyncDataWriter writer = new AsyncDataWriter(delegate, 10, 10, 0, 0,
+                                                     AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+        
+        // Первый пакет уходит в запись и блокируется, второй заполняет буфер
+        writer.writeRecords(news(10, "a"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (writer.getBufferedRecords() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        writer.writeRecords(news(10, "b"));
+        
+        WriterOverflowException e = assertThrows(WriterOverflowException.class, 
+                                                 () -> writer.writeRecords(news(1, "c")));
+        assertEquals(1, e.getRejectedRecords());
+        assertEquals(1, writer.getRejectedRecords());
+        
+        release.countDown();
+        writer.close();
+        assertEquals(20, delegate.recordCount());
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedInOrder() throws Exception {
+        RecordingWriter delegate = new RecordingWriter().failFirst(2);
+        AsyncDataWriter writer = new AsyncDataWriter(delegate, 100, 100, 0, 0,
+                                                     AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+        
+        writer.writeRecords(news(2, "a"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!writer.isRetrying() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(writer.isRetrying());
+        writer.writeRecords(news(1, "b"));
+        
+        // Пакет, запись которого не удалась, записывается повторно раньше более поздних записей
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delegate.recordCount() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        writer.sync();
+        writer.close();
+        
+        assertEquals(List.of("a0", "a1", "b0"), delegate.records.stream().map(ApiRecord::getId).toList());
+        assertEquals(0, writer.getFailedRecords());
+        assertFalse(writer.isRetrying());
+    }
+
+    @Test
+    public void testRetryingBatchAppliesBackpressure() throws Exception {
+        RecordingWriter delegate = new RecordingWriter().failAlways();
+        AsyncDataWriter writer = new AsyncDataWriter(delegate, 3, 3, 0, 0,
+                                                     AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+        
+        writer.writeRecords(news(3, "a"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!writer.isRetrying() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        
+        // Незаписанный пакет занимает буфер: новые записи отклоняются, а sync сообщает об ошибке
+        assertEquals(3, writer.getBufferedRecords());
+        assertThrows(WriterOverflowException.class, () -> writer.writeRecords(news(1, "b")));
+        assertThrows(IOException.class, writer::sync);
+        
+        // Записи теряются, только если не удалась и последняя попытка при закрытии
+        IOException e = assertThrows(IOException.class, writer::close);
+        assertTrue(e.getMessage().contains("lost 3 records"));
+        assertEquals(3, writer.getFailedRecords());
+        assertTrue(delegate.records.isEmpty());
+    }
+
+    @Test
+    public void testBlockedProducerResumesWhenSpaceFrees() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter delegate = new RecordingWriter(release);
+        AsyncDataWriter writer = new AsyncDataWriter(delegate, 10, 10, 0, 5000,
+                                                     AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+        writer.writeRecords(news(10, "a"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (writer.getBufferedRecords() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        writer.writeRecords(news(10, "b"));
+        
+        // Освобождаем запись чуть позже: ожидающий производитель должен быть принят
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        }).start();
+        writer.writeRecords(news(5, "c"));
+        writer.close();
+        
+        assertEquals(25, delegate.recordCount());
+        assertEquals(0, writer.getRejectedRecords());
+    }
+
+    @Test
+    public void testBatchFsyncPolicySyncsAfterEachBatch() throws Exception {
+        RecordingWriter delegate = new RecordingWriter();
+        AsyncDataWriter writer = new AsyncDataWriter(delegate, 100, 10, 0, 0,
+                                                     AsyncDataWriter.FsyncPolicy.BATCH, 1000);
+        
+        writer.writeRecords(news(3, "a"));
+        writer.sync();
+        
+        assertEquals(3, delegate.recordCount());
+        assertTrue(delegate.syncs.get() >= 1);
+        writer.close();
+    }
+
+    @Test
+    public void testWritesAfterCloseAreRejected() throws Exception {
+        AsyncDataWriter writer = new AsyncDataWriter(new RecordingWriter(), 10, 10, 0, 0,
+                                                     AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+        writer.close();
+        assertThrows(IOException.class, () -> writer.writeRecords(news(1, "late")));
+    }
+
+    @Test
+    public void testFsyncPolicyParsing() {
+        assertEquals(AsyncDataWriter.FsyncPolicy.INTERVAL, AsyncDataWriter.FsyncPolicy.fromString("Interval"));
+        assertThrows(ConfigurationException.class, () -> AsyncDataWriter.FsyncPolicy.fromString("always"));
+    }
+}
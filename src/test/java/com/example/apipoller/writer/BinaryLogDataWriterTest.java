@@ -0,0 +1,131 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.model.NasaRecord;
+import com.example.apipoller.model.NewsRecord;
+import com.example.apipoller.model.WeatherRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryLogDataWriterTest {
+    @TempDir
+    Path directory;
+
+    private static List<ApiRecord> news(int count, String prefix) {
+        List<ApiRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(new NewsRecord("title " + i, "desc", prefix + i, "source", "2025-04-27T00:00:00Z", null));
+        }
+        return records;
+    }
+
+    private static List<Map<String, Object>> readAll(Path output) throws Exception {
+        try (BinaryLogReader reader = new BinaryLogReader(output)) {
+            return reader.readAll();
+        }
+    }
+
+    @Test
+    public void testRoundTripPreservesFieldsAndTypes() throws Exception {
+        Path output = directory.resolve("output.binlog");
+        WeatherRecord weather = new WeatherRecord("Moscow", 12.5, 3.0, 70, "clear", 1745712000L);
+        NasaRecord nasa = new NasaRecord("apod_1", "Галактика", "2025-04-27", "text", "url", "image", null);
+        BinaryLogDataWriter writer = new BinaryLogDataWriter(output, 1024 * 1024);
+        
+        writer.writeRecords(List.of(weather, nasa));
+        writer.close();
+        
+        List<Map<String, Object>> records = readAll(output);
+        assertEquals(List.of(weather.toMap(), nasa.toMap()), records);
+    }
+
+    @Test
+    public void testRollsOverToNextSegmentWhenFull() throws Exception {
+        Path output = directory.resolve("output.binlog");
+        BinaryLogDataWriter writer = new BinaryLogDataWriter(output, 1024);
+        
+        writer.writeRecords(news(50, "url-"));
+        writer.close();
+        
+        assertTrue(BinaryLogDataWriter.listSegments(output).size() > 1);
+        List<Map<String, Object>> records = readAll(output);
+        assertEquals(50, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals("url-" + i, records.get(i).get("url"));
+        }
+    }
+
+    @Test
+    public void testReopenAppendsAfterExistingFrames() throws Exception {
+        Path output = directory.resolve("output.binlog");
+        BinaryLogDataWriter first = new BinaryLogDataWriter(output, 64 * 1024);
+        first.writeRecords(news(3, "a"));
+        first.close();
+        
+        BinaryLogDataWriter second = new BinaryLogDataWriter(output, 64 * 1024);
+        second.writeRecords(news(2, "b"));
+        second.close();
+        
+        assertEquals(1, BinaryLogDataWriter.listSegments(output).size());
+        List<Map<String, Object>> records = readAll(output);
+        assertEquals(5, records.size());
+        assertEquals("b1", records.get(4).get("url"));
+    }
+
+    @Test
+    public void testClosedSegmentIsTruncatedToWrittenFrames() throws Exception {
+        Path output = directory.resolve("output.binlog");
+        BinaryLogDataWriter writer = new BinaryLogDataWriter(output, 1024 * 1024);
+        
+        writer.writeRecords(news(3, "url-"));
+        long written = writer.getWrittenBytes();
+        assertTrue(written > 0 && written < 1024 * 1024);
+        writer.close();
+        
+        assertEquals(written, Files.size(BinaryLogDataWriter.segmentPath(output, 1)));
+        assertEquals(3, readAll(output).size());
+    }
+
+    @Test
+    public void testCorruptedFrameEndsReadingAndIsOverwritten() throws Exception {
+        Path output = directory.resolve("output.binlog");
+        BinaryLogDataWriter writer = new BinaryLogDataWriter(output, 64 * 1024);
+        writer.writeRecords(news(2, "a"));
+        writer.close();
+        
+        // Портим последний байт нагрузки второго кадра, имитируя оборванную запись
+        Path segment = BinaryLogDataWriter.listSegments(output).get(0);
+        int secondFrameEnd;
+        try (BinaryLogReader reader = new BinaryLogReader(output)) {
+            int[] end = {0};
+            reader.forEachFrame(payload -> end[0] += BinaryRecordCodec.FRAME_HEADER_SIZE + payload.remaining());
+            secondFrameEnd = end[0];
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondFrameEnd - 1);
+            int last = file.read();
+            file.seek(secondFrameEnd - 1);
+            file.write(last ^ 0xFF);
+        }
+        assertEquals(1, readAll(output).size());
+        
+        // Новый писатель продолжает с последнего целого кадра
+        BinaryLogDataWriter reopened = new BinaryLogDataWriter(output, 64 * 1024);
+        reopened.writeRecords(news(1, "b"));
+        reopened.close();
+        
+        List<Map<String, Object>> records = readAll(output);
+        assertEquals(2, records.size());
+        assertEquals("a0", records.get(0).get("url"));
+        assertEquals("b0", records.get(1).get("url"));
+    }
+}
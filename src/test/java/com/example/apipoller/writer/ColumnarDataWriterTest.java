@@ -0,0 +1,187 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.model.NewsRecord;
+import com.example.apipoller.model.WeatherRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarDataWriterTest {
+    @TempDir
+    Path directory;
+
+    private static List<ApiRecord> weather(int count, long firstTimestamp) {
+        List<ApiRecord> records = new ArrayList<>();
+        String[] cities = {"Moscow", "London", "Tokyo"};
+        for (int i = 0; i < count; i++) {
+            records.add(new WeatherRecord(cities[i % cities.length], 10.0 + (i % 7) * 0.25, 3.5,
+                                          60 + i % 5, "clear", firstTimestamp + i * 60L));
+        }
+        return records;
+    }
+
+    @Test
+    public void testColumnsRoundTripWithTypes() throws Exception {
+        Path output = directory.resolve("output.columnar");
+        ColumnarDataWriter writer = new ColumnarDataWriter(output, 100, 60000);
+        List<ApiRecord> records = weather(250, 1745712000L);
+
+        writer.writeRecords(records);
+        writer.close();
+
+        try (ColumnarReader reader = new ColumnarReader(writer.fileFor("weather"))) {
+            assertEquals(3, reader.getChunks().size());
+            List<Object> cities = reader.readColumn("city");
+            List<Object> temperatures = reader.readColumn("temperature");
+            List<Object> humidity = reader.readColumn("humidity");
+            List<Object> timestamps = reader.readColumn("timestamp");
+            assertEquals(250, cities.size());
+            for (int i = 0; i < records.size(); i++) {
+                WeatherRecord record = (WeatherRecord) records.get(i);
+                assertEquals(record.toMap().get("city"), cities.get(i));
+                assertEquals(record.toMap().get("temperature"), temperatures.get(i));
+                assertEquals(((Integer) record.toMap().get("humidity")).longValue(), humidity.get(i));
+                assertEquals(record.toMap().get("timestamp"), timestamps.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testChunkStatsAndFilteredScan() throws Exception {
+        Path output = directory.resolve("output.columnar");
+        ColumnarDataWriter writer = new ColumnarDataWriter(output, 100, 60000);
+        writer.writeRecords(weather(300, 1000L));
+        writer.close();
+
+        try (ColumnarReader reader = new ColumnarReader(writer.fileFor("weather"))) {
+            ColumnarReader.ColumnStats first = reader.getChunks().get(0).getColumn("timestamp");
+            assertEquals(1000L, first.getMin());
+            assertEquals(1000L + 99 * 60L, first.getMax());
+            assertEquals(3, reader.getChunks().get(0).getColumn("city").getDictionarySize());
+            assertEquals(10.0, reader.getChunks().get(0).getColumn("temperature").getMin());
+
+            // Условие по статистике отбрасывает первые два фрагмента без чтения их данных
+            List<Object> recent = reader.readColumn("timestamp", stats -> (Long) stats.getMax() >= 1000L + 250 * 60L);
+            assertEquals(100, recent.size());
+            assertEquals(1000L + 200 * 60L, recent.get(0));
+        }
+    }
+
+    @Test
+    public void testReadingOneColumnReadsFractionOfFile() throws Exception {
+        Path output = directory.resolve("output.columnar");
+        ColumnarDataWriter writer = new ColumnarDataWriter(output, 1000, 60000);
+        List<ApiRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            records.add(new NewsRecord("title " + i, "description of article " + i, "https://example.com/" + i,
+                                       i % 2 == 0 ? "BBC" : "CNN", "2025-04-27T00:00:00Z", null));
+        }
+        writer.writeRecords(records);
+        writer.close();
+
+        Path file = writer.fileFor("news");
+        try (ColumnarReader reader = new ColumnarReader(file)) {
+            List<Object> sources = reader.readColumn("source");
+            assertEquals(3000, sources.size());
+            assertEquals("CNN", sources.get(1));
+            assertTrue(reader.getBytesRead() * 10 < Files.size(file),
+                       "read " + reader.getBytesRead() + " of " + Files.size(file) + " bytes");
+        }
+    }
+
+    @Test
+    public void testMissingColumnsReadAsNulls() throws Exception {
+        Path output = directory.resolve("output.columnar");
+        ColumnarDataWriter writer = new ColumnarDataWriter(output, 10, 60000);
+        writer.writeRecords(List.of(
+            new NewsRecord("a", null, "u1", "BBC", null, null),
+            new NewsRecord("b", "text", "u2", "CNN", null, null)));
+        writer.close();
+
+        try (ColumnarReader reader = new ColumnarReader(writer.fileFor("news"))) {
+            assertEquals(Arrays.asList("", "text"), reader.readColumn("description"));
+            assertEquals(Arrays.asList(null, null), reader.readColumn("unknown"));
+            assertTrue(reader.readColumn("unknown", stats -> true).isEmpty());
+        }
+    }
+
+    @Test
+    public void testEncodingsRoundTripWithNulls() {
+        List<List<Object>> columns = List.of(
+            Arrays.asList(5L, null, -3L, Long.MAX_VALUE, Long.MIN_VALUE, 0L),
+            Arrays.asList(null, "a", "b", "a", null, "a"),
+            Arrays.asList(true, null, false, true, true, null),
+            Arrays.asList(null, null, null));
+        byte[] expected = {ColumnarEncoding.LONG, ColumnarEncoding.DICTIONARY,
+                           ColumnarEncoding.BOOLEAN, ColumnarEncoding.NULL};
+        for (int i = 0; i < columns.size(); i++) {
+            List<Object> values = columns.get(i);
+            ColumnarEncoding.EncodedColumn column = ColumnarEncoding.encode(values);
+            assertEquals(expected[i], column.encoding);
+            assertEquals(values, ColumnarEncoding.decode(column.encoding, ByteBuffer.wrap(column.data),
+                                                         values.size()));
+        }
+    }
+
+    @Test
+    public void testIncompleteChunkIsDiscardedOnReopen() throws Exception {
+        Path output = directory.resolve("output.columnar");
+        ColumnarDataWriter writer = new ColumnarDataWriter(output, 10, 60000);
+        writer.writeRecords(weather(10, 0L));
+        writer.close();
+        Path file = writer.fileFor("weather");
+        long complete = Files.size(file);
+
+        // Имитируем оборванную запись следующего фрагмента
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(complete);
+            raf.writeInt(ColumnarReader.CHUNK_MAGIC);
+            raf.writeInt(100);
+        }
+        try (ColumnarReader reader = new ColumnarReader(file)) {
+            assertEquals(complete, reader.getValidLength());
+        }
+
+        ColumnarDataWriter reopened = new ColumnarDataWriter(output, 10, 60000);
+        reopened.writeRecords(weather(5, 600L));
+        reopened.close();
+
+        try (ColumnarReader reader = new ColumnarReader(file)) {
+            assertEquals(2, reader.getChunks().size());
+            assertEquals(Files.size(file), reader.getValidLength());
+            assertEquals(15, reader.readColumn("timestamp").size());
+        }
+    }
+
+    @Test
+    public void testPartialChunkWrittenOnSync() throws Exception {
+        Path output = directory.resolve("output.columnar");
+        ColumnarDataWriter writer = new ColumnarDataWriter(output, 1000, 60000);
+        writer.writeRecords(weather(3, 0L));
+        writer.sync();
+
+        try (ColumnarReader reader = new ColumnarReader(writer.fileFor("weather"))) {
+            assertEquals(List.of(0L, 60L, 120L), reader.readColumn("timestamp"));
+        }
+        writer.close();
+    }
+
+    @Test
+    public void testDoubleEncodingRoundTripsSpecialValues() {
+        List<Object> values = Arrays.asList(0.0, -0.0, 1.5, 1.5, null, Double.NaN, Double.MAX_VALUE, -273.15);
+        ColumnarEncoding.EncodedColumn column = ColumnarEncoding.encode(values);
+        assertEquals(ColumnarEncoding.DOUBLE, column.encoding);
+        assertEquals(values, ColumnarEncoding.decode(column.encoding, ByteBuffer.wrap(column.data),
+                                                     values.size()));
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.apipoller.writer;
 
+import com.example.apipoller.model.NasaRecord;
 import com.example.apipoller.model.NewsRecord;
+import com.example.apipoller.model.WeatherRecord;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,14 +27,64 @@ public class CsvDataWriterTest {
     public void tearDown() throws Exception {
         writer.close();
         Files.deleteIfExists(tempFile);
+        for (String type : List.of("news", "weather", "nasa")) {
+            Files.deleteIfExists(writer.fileFor(type));
+        }
     }
 
     @Test
     public void testWriteRecords() throws Exception {
         NewsRecord record = new NewsRecord("title", "desc", "url", "source", "2025-04-27T00:00:00Z", "author");
         writer.writeRecords(List.of(record));
-        String content = Files.readString(tempFile);
+        writer.close();
+        String content = Files.readString(writer.fileFor("news"));
         assertTrue(content.contains("title"));
         assertTrue(content.contains("url"));
     }
+
+    @Test
+    public void testEachTypeGetsOwnFileWithSingleHeader() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            writer.writeRecords(List.of(
+                new NewsRecord("title" + i, "desc", "url" + i, "source", "2025-04-27T00:00:00Z", "author"),
+                new WeatherRecord("Moscow", 10 + i, 3.0, 70, "clear", 1745712000L + i),
+                new NasaRecord("apod_" + i, "title", "2025-04-27", "text", "url", "image", "NASA")));
+        }
+        writer.close();
+        
+        for (String type : List.of("news", "weather", "nasa")) {
+            List<String> lines = Files.readAllLines(writer.fileFor(type));
+            assertEquals(4, lines.size(), "Заголовок и три записи в файле " + type);
+            assertEquals(1, lines.stream().filter(line -> line.equals(lines.get(0))).count());
+        }
+        assertTrue(Files.readAllLines(writer.fileFor("news")).get(1).contains("title0"));
+    }
+
+    @Test
+    public void testRecoversHeaderOnRestart() throws Exception {
+        Path newsFile = writer.fileFor("news");
+        // Файл из предыдущего запуска с нестандартным порядком столбцов и оборванной строкой
+        Files.writeString(newsFile, "url,title\nold-url,old-title");
+        
+        writer.writeRecords(List.of(
+            new NewsRecord("new-title", "desc", "new-url", "source", "2025-04-27T00:00:00Z", "author")));
+        writer.close();
+        
+        List<String> lines = Files.readAllLines(newsFile);
+        assertEquals(List.of("url,title", "old-url,old-title", "new-url,new-title"), lines);
+    }
+
+    @Test
+    public void testFlushesAfterRecordThreshold() throws Exception {
+        writer.close();
+        writer = new CsvDataWriter(tempFile, 2, 60_000);
+        NewsRecord first = new NewsRecord("t1", "desc", "u1", "source", "2025-04-27T00:00:00Z", "author");
+        NewsRecord second = new NewsRecord("t2", "desc", "u2", "source", "2025-04-27T00:00:00Z", "author");
+        
+        writer.writeRecords(List.of(first));
+        writer.writeRecords(List.of(second));
+        
+        // Буфер сброшен без закрытия писателя
+        assertEquals(3, Files.readAllLines(writer.fileFor("news")).size());
+    }
 }
@@ -0,0 +1,165 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.model.NasaRecord;
+import com.example.apipoller.model.NewsRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.apipoller.writer.RecordingWriter.news;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class DedupDataWriterTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> ids(List<ApiRecord> records) {
+        return records.stream().map(ApiRecord::getId).toList();
+    }
+
+    @Test
+    public void testRestartDoesNotRepeatRecords() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        NasaRecord apod = new NasaRecord("apod_2025-04-27", "Галактика", "2025-04-27", "text", "url", "image", null);
+        DedupDataWriter first = new DedupDataWriter(output, new NdjsonDataWriter(output));
+        first.writeRecords(List.of(news("url-1"), apod));
+        first.close();
+
+        RecordingWriter delegate = new RecordingWriter();
+        DedupDataWriter second = new DedupDataWriter(output, delegate);
+        second.writeRecords(List.of(news("url-1"), apod, news("url-2")));
+        second.close();
+
+        assertEquals(List.of("url-2"), ids(delegate.records));
+        assertEquals(2, second.getSkippedRecords());
+        assertEquals(3, second.getIndexedRecords());
+        assertTrue(Files.exists(directory.resolve("output.ndjson.dedup")));
+    }
+
+    @Test
+    public void testBatchesWrittenBeforeCrashAreNotReplayed() throws Exception {
+        assumeTrue(Files.isReadable(Path.of("/proc/sys/kernel/random/boot_id")));
+        Path output = directory.resolve("output.ndjson");
+        DedupDataWriter crashed = new DedupDataWriter(output, new RecordingWriter());
+        crashed.writeRecords(List.of(news("url-1")), 1);
+        crashed.sync();
+        crashed.writeRecords(List.of(news("url-2")), 2);
+        crashed.writeRecords(List.of(news("url-2", "fixed title")), 3);
+        // Процесс "падает": отпечатки пакетов 2 и 3 не попали в индекс
+
+        RecordingWriter delegate = new RecordingWriter();
+        DedupDataWriter recovered = new DedupDataWriter(output, delegate);
+        recovered.writeRecords(List.of(news("url-2")), 2);
+        recovered.writeRecords(List.of(news("url-2", "fixed title")), 3);
+        recovered.writeRecords(List.of(news("url-2", "fixed title"), news("url-3")), 4);
+        recovered.close();
+
+        assertEquals(List.of("url-3"), ids(delegate.records));
+        assertEquals(3, recovered.getIndexedRecords());
+    }
+
+    @Test
+    public void testCleanCloseEndsReplayWindow() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        DedupDataWriter first = new DedupDataWriter(output, new RecordingWriter());
+        first.writeRecords(List.of(news("url-1")), 5);
+        first.close();
+
+        // Журнал после корректного закрытия начинает нумерацию заново
+        RecordingWriter delegate = new RecordingWriter();
+        DedupDataWriter second = new DedupDataWriter(output, delegate);
+        second.writeRecords(List.of(news("url-2")), 1);
+        second.close();
+
+        assertEquals(List.of("url-2"), ids(delegate.records));
+    }
+
+    @Test
+    public void testDuplicatesWithinRunAreSkipped() throws Exception {
+        RecordingWriter delegate = new RecordingWriter();
+        DedupDataWriter writer = new DedupDataWriter(directory.resolve("output.json"), delegate);
+
+        writer.writeRecords(List.of(news("url-1"), news("url-1"), news("url-2")));
+        writer.writeRecords(List.of(news("url-2"), news("url-3")));
+
+        assertEquals(List.of("url-1", "url-2", "url-3"), ids(delegate.records));
+        assertEquals(2, writer.getSkippedRecords());
+        writer.close();
+    }
+
+    @Test
+    public void testChangedContentIsWrittenAgain() throws Exception {
+        Path output = directory.resolve("output.json");
+        RecordingWriter delegate = new RecordingWriter();
+        DedupDataWriter first = new DedupDataWriter(output, delegate);
+        first.writeRecords(List.of(news("url-1", "Draft"), news("url-2")));
+        first.writeRecords(List.of(news("url-1", "Fixed"), news("url-2")));
+        first.close();
+
+        RecordingWriter restarted = new RecordingWriter();
+        DedupDataWriter second = new DedupDataWriter(output, restarted);
+        second.writeRecords(List.of(news("url-1", "Fixed"), news("url-2", "Updated")));
+        second.close();
+
+        assertEquals(List.of("url-1", "url-2", "url-1"), ids(delegate.records));
+        assertEquals(1, first.getUpdatedRecords());
+        assertEquals(List.of("url-2"), ids(restarted.records));
+        assertEquals(1, second.getSkippedRecords());
+        assertEquals(1, second.getUpdatedRecords());
+        assertEquals(2, second.getIndexedRecords());
+    }
+
+    @Test
+    public void testIndexIsUpdatedOnlyAfterSync() throws Exception {
+        Path output = directory.resolve("output.json");
+        RecordingWriter delegate = new RecordingWriter();
+        DedupDataWriter crashed = new DedupDataWriter(output, delegate);
+        crashed.writeRecords(List.of(news("synced")));
+        crashed.sync();
+        crashed.writeRecords(List.of(news("unsynced")));
+        assertEquals(1, crashed.getIndexedRecords());
+        // Процесс "падает" без закрытия писателя
+
+        RecordingWriter replayed = new RecordingWriter();
+        DedupDataWriter recovered = new DedupDataWriter(output, replayed);
+        recovered.writeRecords(List.of(news("synced"), news("unsynced")));
+        assertEquals(List.of("unsynced"), ids(replayed.records));
+        recovered.close();
+    }
+
+    @Test
+    public void testFailedBatchIsNotIndexed() throws Exception {
+        RecordingWriter delegate = new RecordingWriter();
+        DedupDataWriter writer = new DedupDataWriter(directory.resolve("output.json"), delegate);
+        delegate.failing = true;
+        assertThrows(IOException.class, () -> writer.writeRecords(List.of(news("url-1"))));
+
+        delegate.failing = false;
+        writer.writeRecords(List.of(news("url-1")));
+        assertEquals(List.of("url-1"), ids(delegate.records));
+        writer.close();
+    }
+
+    @Test
+    public void testPendingFingerprintsAreCommittedInBulk() throws Exception {
+        RecordingWriter delegate = new RecordingWriter();
+        DedupDataWriter writer = new DedupDataWriter(directory.resolve("output.json"), delegate);
+        List<ApiRecord> records = new ArrayList<>();
+        for (int i = 0; i < DedupDataWriter.PENDING_LIMIT; i++) {
+            records.add(news("url-" + i));
+        }
+
+        writer.writeRecords(records);
+
+        assertEquals(1, delegate.syncs.get());
+        assertEquals(DedupDataWriter.PENDING_LIMIT, writer.getIndexedRecords());
+        writer.close();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.apipoller.writer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.apipoller.writer.RecordingWriter.news;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FanOutDataWriterTest {
+
+    private static AsyncDataWriter sink(DataWriter delegate, int capacity) {
+        return new AsyncDataWriter(delegate, capacity, capacity, 0, 0, AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+    }
+
+    @Test
+    public void testSlowSinkDoesNotDelayOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter slow = new RecordingWriter(release);
+        RecordingWriter fast = new RecordingWriter();
+        Map<String, AsyncDataWriter> sinks = new LinkedHashMap<>();
+        sinks.put("csv", sink(slow, 2));
+        sinks.put("ndjson", sink(fast, 100));
+        FanOutDataWriter writer = new FanOutDataWriter(sinks);
+
+        // Буфер медленного вывода переполняется, но быстрый вывод получает все пакеты
+        for (int i = 0; i < 5; i++) {
+            writer.writeRecords(news(2, "batch" + i + "-"));
+        }
+        sinks.get("ndjson").sync();
+        assertEquals(10, fast.records.size());
+        assertTrue(sinks.get("csv").getRejectedRecords() > 0);
+        assertTrue(sinks.get("csv").getLagMillis() >= 0);
+        assertEquals(0, sinks.get("ndjson").getLagMillis());
+
+        release.countDown();
+        writer.close();
+        assertTrue(slow.closed);
+        assertTrue(fast.closed);
+        assertEquals(10, slow.records.size() + sinks.get("csv").getRejectedRecords());
+    }
+
+    @Test
+    public void testFailingSinkIsIsolated() throws Exception {
+        RecordingWriter failing = new RecordingWriter().failAlways();
+        RecordingWriter healthy = new RecordingWriter();
+        Map<String, AsyncDataWriter> sinks = new LinkedHashMap<>();
+        sinks.put("json", sink(failing, 100));
+        sinks.put("csv", sink(healthy, 100));
+        FanOutDataWriter writer = new FanOutDataWriter(sinks);
+
+        writer.writeRecords(news(3, "url-"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!sinks.get("json").isRetrying() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // Отказавший вывод повторяет запись и сообщает об ошибке, исправный вывод записывает все
+        assertThrows(IOException.class, writer::sync);
+        sinks.get("csv").sync();
+
+        assertEquals(3, healthy.records.size());
+        assertEquals(3, sinks.get("json").getBufferedRecords());
+        assertEquals(3, sinks.get("csv").getWrittenRecords());
+        // Ошибка отказавшего вывода сообщается при закрытии, но остальные выводы закрываются
+        assertThrows(IOException.class, writer::close);
+        assertEquals(3, sinks.get("json").getFailedRecords());
+        assertTrue(failing.closed);
+        assertTrue(healthy.closed);
+    }
+
+    @Test
+    public void testRejectedByAllSinksIsReported() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, AsyncDataWriter> sinks = new LinkedHashMap<>();
+        sinks.put("json", sink(new RecordingWriter(release), 1));
+        sinks.put("csv", sink(new RecordingWriter(release), 1));
+        FanOutDataWriter writer = new FanOutDataWriter(sinks);
+
+        writer.writeRecords(news(1, "first-"));
+        // Дожидаемся, пока фоновые потоки заберут первые пакеты и заблокируются
+        while (sinks.get("json").getBufferedRecords() > 0 || sinks.get("csv").getBufferedRecords() > 0) {
+            Thread.sleep(5);
+        }
+        writer.writeRecords(news(1, "second-"));
+        assertThrows(IOException.class, () -> writer.writeRecords(news(1, "third-")));
+
+        release.countDown();
+        writer.close();
+    }
+
+    @Test
+    public void testRequiresAtLeastOneSink() {
+        assertThrows(IllegalArgumentException.class, () -> new FanOutDataWriter(Map.of()));
+    }
+}
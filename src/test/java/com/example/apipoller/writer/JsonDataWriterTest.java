@@ -1,13 +1,17 @@
 package com.example.apipoller.writer;
 
 import com.example.apipoller.model.NewsRecord;
+import com.example.apipoller.model.WeatherRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -35,4 +39,85 @@ public class JsonDataWriterTest {
         assertTrue(content.contains("title"));
         assertTrue(content.contains("url"));
     }
+
+    @Test
+    public void testBatchesAppendToValidArray() throws Exception {
+        writer.writeRecords(List.of(
+            new NewsRecord("first", "desc", "url-1", "source", "2025-04-27T00:00:00Z", "author")));
+        writer.writeRecords(List.of(
+            new NewsRecord("second", "desc", "url-2", "source", "2025-04-27T00:00:00Z", "author"),
+            new WeatherRecord("Moscow", 12.5, 3.0, 70, "clear", 1745712000L)));
+        
+        List<Map<String, Object>> written = readArray(tempFile);
+        assertEquals(3, written.size());
+        assertEquals("first", written.get(0).get("title"));
+        assertEquals("second", written.get(1).get("title"));
+        assertEquals("Moscow", written.get(2).get("city"));
+    }
+
+    @Test
+    public void testAppendsToExistingArray() throws Exception {
+        writer.close();
+        // Файл в формате, который создавал прежний писатель
+        Files.writeString(tempFile, "[ {\n  \"title\" : \"old\"\n} ]\n");
+        writer = new JsonDataWriter(tempFile);
+        
+        writer.writeRecords(List.of(
+            new NewsRecord("new", "desc", "url", "source", "2025-04-27T00:00:00Z", "author")));
+        
+        List<Map<String, Object>> written = readArray(tempFile);
+        assertEquals(2, written.size());
+        assertEquals("old", written.get(0).get("title"));
+        assertEquals("new", written.get(1).get("title"));
+    }
+
+    @Test
+    public void testRejectsFileThatIsNotArray() throws Exception {
+        writer.close();
+        Files.writeString(tempFile, "{\"title\": \"object\"}");
+        writer = new JsonDataWriter(tempFile);
+        
+        NewsRecord record = new NewsRecord("title", "desc", "url", "source", "2025-04-27T00:00:00Z", "author");
+        assertThrows(IOException.class, () -> writer.writeRecords(List.of(record)));
+    }
+
+    @Test
+    public void testRepairsTruncatedTail() throws Exception {
+        writer.writeRecords(List.of(
+            new NewsRecord("first", "desc", "url-1", "source", "2025-04-27T00:00:00Z", "author"),
+            new NewsRecord("second", "desc", "url-2", "source", "2025-04-27T00:00:00Z", "author")));
+        writer.close();
+        // Имитируем сбой посреди записи второго элемента
+        String content = Files.readString(tempFile);
+        Files.writeString(tempFile, content.substring(0, content.indexOf("second")));
+        writer = new JsonDataWriter(tempFile);
+        
+        writer.writeRecords(List.of(
+            new NewsRecord("third", "desc", "url-3", "source", "2025-04-27T00:00:00Z", "author")));
+        
+        List<Map<String, Object>> written = readArray(tempFile);
+        assertEquals(2, written.size());
+        assertEquals("first", written.get(0).get("title"));
+        assertEquals("third", written.get(1).get("title"));
+    }
+
+    @Test
+    public void testRepairsArrayWithoutCompleteElements() throws Exception {
+        writer.close();
+        Files.writeString(tempFile, "[\n{\n  \"title\" : \"torn");
+        writer = new JsonDataWriter(tempFile);
+        
+        writer.writeRecords(List.of(
+            new NewsRecord("new", "desc", "url", "source", "2025-04-27T00:00:00Z", "author")));
+        
+        List<Map<String, Object>> written = readArray(tempFile);
+        assertEquals(1, written.size());
+        assertEquals("new", written.get(0).get("title"));
+    }
+
+    private static List<Map<String, Object>> readArray(Path path) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        return mapper.readValue(path.toFile(), 
+                                mapper.getTypeFactory().constructCollectionType(List.class, Map.class));
+    }
 }
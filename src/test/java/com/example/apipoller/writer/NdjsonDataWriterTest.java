@@ -0,0 +1,105 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.model.NewsRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NdjsonDataWriterTest {
+    private Path tempFile;
+    private NdjsonDataWriter writer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempFile = Files.createTempFile("test", ".ndjson");
+        writer = new NdjsonDataWriter(tempFile);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        writer.close();
+        Files.deleteIfExists(tempFile);
+    }
+
+    private static NewsRecord news(String url) {
+        return new NewsRecord("title", "desc", url, "source", "2025-04-27T00:00:00Z", "author");
+    }
+
+    @Test
+    public void testWritesOneCompactRecordPerLine() throws Exception {
+        writer.writeRecords(List.of(news("url-1"), news("url-2")));
+        writer.writeRecords(List.of(news("url-3")));
+        
+        List<String> lines = Files.readAllLines(tempFile);
+        assertEquals(3, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < lines.size(); i++) {
+            assertFalse(lines.get(i).contains("\n"));
+            Map<?, ?> record = mapper.readValue(lines.get(i), Map.class);
+            assertEquals("url-" + (i + 1), record.get("url"));
+        }
+    }
+
+    @Test
+    public void testConcurrentWritesAreNotInterleaved() throws Exception {
+        int threads = 8;
+        int batchesPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int b = 0; b < batchesPerThread; b++) {
+                    List<ApiRecord> batch = List.of(news(thread + "-" + b + "-a"), news(thread + "-" + b + "-b"));
+                    writer.writeRecords(batch);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        
+        // Каждая строка - целая запись, ни одна запись не потеряна и не продублирована
+        List<String> lines = Files.readAllLines(tempFile);
+        assertEquals(threads * batchesPerThread * 2, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        Set<Object> urls = new HashSet<>();
+        for (String line : lines) {
+            urls.add(mapper.readValue(line, Map.class).get("url"));
+        }
+        assertEquals(lines.size(), urls.size());
+    }
+
+    @Test
+    public void testFactoryCreatesNdjsonWriter() throws Exception {
+        DataWriter created = DataWriterFactory.createWriter("ndjson", tempFile);
+        assertTrue(created instanceof DedupDataWriter);
+        assertTrue(((DedupDataWriter) created).getDelegate() instanceof NdjsonDataWriter);
+        DataWriter logged = DataWriterFactory.withWriteAheadLog(tempFile, created);
+        assertTrue(logged instanceof WriteAheadLogDataWriter);
+        assertSame(created, ((WriteAheadLogDataWriter) logged).getDelegate());
+        logged.close();
+    }
+}
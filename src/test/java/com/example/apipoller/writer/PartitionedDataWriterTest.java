@@ -0,0 +1,190 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.model.NasaRecord;
+import com.example.apipoller.model.NewsRecord;
+import com.example.apipoller.model.WeatherRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedDataWriterTest {
+    @TempDir
+    Path directory;
+
+    private static NewsRecord news(String url, String publishedAt) {
+        return new NewsRecord("title", "desc", url, "source", publishedAt, null);
+    }
+
+    @Test
+    public void testRecordsAreRoutedByTypeAndEventDate() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        PartitionedDataWriter writer = new PartitionedDataWriter(output, NdjsonDataWriter::new, 8, 2);
+
+        writer.writeRecords(List.of(
+            news("a", "2025-04-27T10:00:00Z"),
+            news("b", "2025-04-28T10:00:00Z"),
+            new WeatherRecord("Moscow", 12.5, 3.0, 70, "clear", 1745712000L),
+            new NasaRecord("apod", "Галактика", "2025-04-27", "text", "url", "image", null),
+            news("c", "not a date"),
+            news("d", "2025-04-27T23:00:00Z")));
+        writer.close();
+
+        Path root = directory.resolve("output");
+        assertEquals(root, writer.getRoot());
+        assertEquals(2, Files.readAllLines(root.resolve("type=news/date=2025-04-27/part-00000.ndjson")).size());
+        assertEquals(1, Files.readAllLines(root.resolve("type=news/date=2025-04-28/part-00000.ndjson")).size());
+        assertEquals(1, Files.readAllLines(root.resolve("type=news/date=unknown/part-00000.ndjson")).size());
+        assertTrue(Files.exists(root.resolve("type=weather/date=2025-04-27/part-00000.ndjson")));
+        assertTrue(Files.exists(root.resolve("type=nasa/date=2025-04-27/part-00000.ndjson")));
+    }
+
+    @Test
+    public void testEachRunStartsNewPart() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        PartitionedDataWriter first = new PartitionedDataWriter(output, NdjsonDataWriter::new, 8, 1);
+        first.writeRecords(List.of(news("a", "2025-04-27T10:00:00Z")));
+        first.close();
+
+        PartitionedDataWriter second = new PartitionedDataWriter(output, NdjsonDataWriter::new, 8, 1);
+        second.writeRecords(List.of(news("b", "2025-04-27T11:00:00Z")));
+        second.close();
+
+        Path partition = directory.resolve("output/type=news/date=2025-04-27");
+        assertEquals(1, Files.readAllLines(partition.resolve("part-00000.ndjson")).size());
+        assertEquals(1, Files.readAllLines(partition.resolve("part-00001.ndjson")).size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPartitionsAreClosed() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        AtomicInteger synced = new AtomicInteger();
+        PartitionedDataWriter writer = new PartitionedDataWriter(output, path -> {
+            opened.incrementAndGet();
+            return new NdjsonDataWriter(path) {
+                @Override
+                public void sync() throws IOException {
+                    synced.incrementAndGet();
+                    super.sync();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    closed.incrementAndGet();
+                    super.close();
+                }
+            };
+        }, 2, 1);
+
+        for (int day = 1; day <= 5; day++) {
+            writer.writeRecords(List.of(news("url-" + day, "2025-04-0" + day + "T00:00:00Z")));
+            assertTrue(writer.getOpenPartitions() <= 2);
+        }
+        assertEquals(5, opened.get());
+        assertEquals(3, closed.get());
+        // Вытесненные разделы сбрасываются на устройство до закрытия
+        assertEquals(3, synced.get());
+
+        // Вытесненный раздел открывается снова и дописывается в ту же часть
+        writer.writeRecords(List.of(news("again", "2025-04-01T12:00:00Z")));
+        writer.close();
+        assertEquals(6, opened.get());
+        assertEquals(6, closed.get());
+        assertEquals(2, Files.readAllLines(
+            directory.resolve("output/type=news/date=2025-04-01/part-00000.ndjson")).size());
+    }
+
+    @Test
+    public void testEvictedPartitionSyncFailureIsReportedBySync() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        PartitionedDataWriter writer = new PartitionedDataWriter(output, path -> new DataWriter() {
+            @Override
+            public void writeRecords(List<ApiRecord> records) {
+            }
+
+            @Override
+            public void sync() throws IOException {
+                if (path.toString().contains("2025-04-01")) {
+                    throw new IOException("fsync failed");
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 2, 1);
+
+        for (int day = 1; day <= 3; day++) {
+            writer.writeRecords(List.of(news("url-" + day, "2025-04-0" + day + "T00:00:00Z")));
+        }
+
+        IOException error = assertThrows(IOException.class, writer::sync);
+        assertEquals("fsync failed", error.getCause().getMessage());
+        writer.sync();
+        writer.close();
+    }
+
+    @Test
+    public void testPartitionsOfOneBatchAreWrittenInParallel() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        PartitionedDataWriter writer = new PartitionedDataWriter(output, path -> new DataWriter() {
+            @Override
+            public void writeRecords(List<ApiRecord> records) {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                active.decrementAndGet();
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 8, 4);
+
+        List<ApiRecord> records = new ArrayList<>();
+        for (int day = 1; day <= 4; day++) {
+            records.add(news("url-" + day, "2025-04-0" + day + "T00:00:00Z"));
+        }
+        writer.writeRecords(records);
+        writer.close();
+
+        assertTrue(maxActive.get() > 1, "partitions were written sequentially");
+    }
+
+    @Test
+    public void testPartitionFailureIsReported() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        PartitionedDataWriter writer = new PartitionedDataWriter(output, path -> new DataWriter() {
+            @Override
+            public void writeRecords(List<ApiRecord> records) throws IOException {
+                if (path.toString().contains("2025-04-02")) {
+                    throw new IOException("disk full");
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 8, 2);
+
+        IOException error = assertThrows(IOException.class, () -> writer.writeRecords(List.of(
+            news("a", "2025-04-01T00:00:00Z"), news("b", "2025-04-02T00:00:00Z"))));
+        assertEquals("disk full", error.getMessage());
+        writer.close();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.model.NewsRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовый писатель, запоминающий записанные пакеты, вызовы sync и закрытие.
+ * Запись может ждать открытия защелки и завершаться ошибкой: заданное число раз
+ * или постоянно, пока установлен флаг failing.
+ */
+class RecordingWriter implements DataWriter {
+    final List<ApiRecord> records = Collections.synchronizedList(new ArrayList<>());
+    final List<List<ApiRecord>> batches = Collections.synchronizedList(new ArrayList<>());
+    final AtomicInteger syncs = new AtomicInteger();
+    final CountDownLatch release;
+    volatile int failures;
+    volatile boolean failing;
+    volatile boolean closed;
+
+    RecordingWriter() {
+        this(new CountDownLatch(0));
+    }
+
+    RecordingWriter(CountDownLatch release) {
+        this.release = release;
+    }
+
+    /**
+     * Первые count вызовов записи завершатся ошибкой
+     */
+    RecordingWriter failFirst(int count) {
+        failures = count;
+        return this;
+    }
+
+    /**
+     * Все вызовы записи завершаются ошибкой, пока флаг не будет снят
+     */
+    RecordingWriter failAlways() {
+        failing = true;
+        return this;
+    }
+
+    @Override
+    public void writeRecords(List<ApiRecord> batch) throws IOException {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failing) {
+            throw new IOException("disk full");
+        }
+        if (failures > 0) {
+            failures--;
+            throw new IOException("disk full");
+        }
+        batches.add(new ArrayList<>(batch));
+        records.addAll(batch);
+    }
+
+    @Override
+    public void sync() {
+        syncs.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    int recordCount() {
+        return records.size();
+    }
+
+    /**
+     * @return count новостей с URL вида prefix + номер
+     */
+    static List<ApiRecord> news(int count, String prefix) {
+        List<ApiRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(news(prefix + i, "title"));
+        }
+        return records;
+    }
+
+    static NewsRecord news(String url) {
+        return news(url, "title");
+    }
+
+    static NewsRecord news(String url, String title) {
+        return new NewsRecord(title, "desc", url, "source", "2025-04-27T00:00:00Z", "author");
+    }
+}
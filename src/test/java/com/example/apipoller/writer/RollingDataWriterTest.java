@@ -0,0 +1,158 @@
+package com.example.apipoller.writer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static com.example.apipoller.writer.RecordingWriter.news;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollingDataWriterTest {
+    @TempDir
+    Path directory;
+
+    private static String gunzip(Path path) throws Exception {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testRotatesBySizeAndCompressesClosedSegments() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        RollingDataWriter writer = new RollingDataWriter(output, NdjsonDataWriter::new, 1, 0);
+        
+        // Предел в один байт: каждый пакет закрывает свой сегмент
+        writer.writeRecords(news(2, "a"));
+        writer.writeRecords(news(3, "b"));
+        writer.close();
+        
+        List<RollingDataWriter.Segment> segments = writer.getSegments();
+        assertEquals(2, segments.size());
+        assertEquals(0, segments.get(0).firstRecord);
+        assertEquals(1, segments.get(0).lastRecord);
+        assertEquals(2, segments.get(1).firstRecord);
+        assertEquals(4, segments.get(1).lastRecord);
+        
+        for (RollingDataWriter.Segment segment : segments) {
+            assertTrue(segment.compressed);
+            assertNotNull(segment.closedAt);
+            assertEquals(List.of(segment.name + ".ndjson.gz"), segment.files);
+            assertFalse(Files.exists(directory.resolve(segment.name + ".ndjson")));
+        }
+        String second = gunzip(directory.resolve("output.000002.ndjson.gz"));
+        assertEquals(3, second.lines().count());
+        assertTrue(second.contains("b2"));
+        assertTrue(Files.exists(directory.resolve("output.ndjson.manifest")));
+    }
+
+    @Test
+    public void testClosedSegmentIsSyncedBeforeClose() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        AtomicInteger syncs = new AtomicInteger();
+        RollingDataWriter writer = new RollingDataWriter(output, path -> new NdjsonDataWriter(path) {
+            @Override
+            public void sync() throws IOException {
+                syncs.incrementAndGet();
+                super.sync();
+            }
+        }, 1, 0);
+
+        writer.writeRecords(news(2, "a"));
+
+        // Контрольная точка сбрасывает только текущий сегмент, поэтому закрытый сбрасывается при ротации
+        assertEquals(1, syncs.get());
+        writer.close();
+    }
+
+    @Test
+    public void testBinaryLogSegmentsRotateByWrittenBytes() throws Exception {
+        Path output = directory.resolve("output.binlog");
+        RollingDataWriter writer = new RollingDataWriter(output,
+            path -> new BinaryLogDataWriter(path, 1024 * 1024), 64 * 1024, 0);
+        
+        // Выделенный мегабайт сегмента не считается записанными данными
+        for (int i = 0; i < 5; i++) {
+            writer.writeRecords(news(2, "batch" + i + "-"));
+        }
+        writer.close();
+        
+        List<RollingDataWriter.Segment> segments = writer.getSegments();
+        assertEquals(1, segments.size());
+        assertEquals(9, segments.get(0).lastRecord);
+        // Сжимаются только записанные кадры, без нулевого хвоста сегмента
+        String content = gunzip(directory.resolve(segments.get(0).files.get(0)));
+        assertTrue(content.length() < 64 * 1024, "uncompressed: " + content.length());
+    }
+
+    @Test
+    public void testSizeIsReportedBySegmentWriter() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        RollingDataWriter writer = new RollingDataWriter(output, path -> new RecordingWriter() {
+            @Override
+            public long getWrittenBytes() {
+                return 100L * batches.size();
+            }
+        }, 250, 0);
+        // Посторонний файл с подходящим именем не учитывается в размере сегмента
+        Files.write(directory.resolve("output.000001.copy.ndjson"), new byte[1024]);
+        
+        for (int i = 0; i < 4; i++) {
+            writer.writeRecords(news(1, "batch" + i + "-"));
+        }
+        
+        List<RollingDataWriter.Segment> segments = writer.getSegments();
+        assertEquals(2, segments.size());
+        assertEquals(2, segments.get(0).lastRecord);
+        writer.close();
+    }
+
+    @Test
+    public void testNoRotationBelowLimits() throws Exception {
+        Path output = directory.resolve("output.json");
+        RollingDataWriter writer = new RollingDataWriter(output, JsonDataWriter::new, 1024 * 1024, 60_000);
+        
+        writer.writeRecords(news(2, "a"));
+        writer.writeRecords(news(2, "b"));
+        
+        assertEquals(1, writer.getSegments().size());
+        assertTrue(Files.exists(directory.resolve("output.000001.json")));
+        writer.close();
+    }
+
+    @Test
+    public void testResumesNumberingFromManifest() throws Exception {
+        Path output = directory.resolve("output.ndjson");
+        RollingDataWriter first = new RollingDataWriter(output, NdjsonDataWriter::new, 0, 60_000);
+        first.writeRecords(news(4, "a"));
+        first.close();
+        
+        RollingDataWriter second = new RollingDataWriter(output, NdjsonDataWriter::new, 0, 60_000);
+        second.writeRecords(news(1, "b"));
+        second.close();
+        
+        List<RollingDataWriter.Segment> segments = second.getSegments();
+        assertEquals(2, segments.size());
+        assertEquals(2, segments.get(1).sequence);
+        assertEquals(4, segments.get(1).firstRecord);
+        assertEquals(4, segments.get(1).lastRecord);
+    }
+
+    @Test
+    public void testCsvSegmentsIncludeTypeFiles() throws Exception {
+        Path output = directory.resolve("output.csv");
+        RollingDataWriter writer = new RollingDataWriter(output, CsvDataWriter::new, 0, 60_000);
+        writer.writeRecords(news(2, "a"));
+        writer.close();
+        
+        assertEquals(List.of("output.000001-news.csv.gz"), writer.getSegments().get(0).files);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.apipoller.writer;
+
+import com.example.apipoller.model.ApiRecord;
+import com.example.apipoller.model.WeatherRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.apipoller.writer.RecordingWriter.news;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class WriteAheadLogDataWriterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testBatchIsLoggedBeforeApplied() throws Exception {
+        Path output = directory.resolve("output.json");
+        RecordingWriter delegate = new RecordingWriter();
+        WriteAheadLogDataWriter writer = new WriteAheadLogDataWriter(output, delegate, 1024 * 1024);
+        assertFalse(Files.exists(writer.getWalPath()));
+
+        writer.writeRecords(news(3, "url-"));
+
+        assertEquals(3, delegate.records.size());
+        assertTrue(Files.size(writer.getWalPath()) > 0);
+        assertEquals(directory.resolve("output.json.wal"), writer.getWalPath());
+    }
+
+    @Test
+    public void testReplaysBatchesAfterLastCheckpoint() throws Exception {
+        Path output = directory.resolve("output.json");
+        WeatherRecord weather = new WeatherRecord("Moscow", 12.5, 3.0, 70, "clear", 1745712000L);
+        WriteAheadLogDataWriter crashed = new WriteAheadLogDataWriter(output, new RecordingWriter(), 1024 * 1024);
+        crashed.writeRecords(news(2, "applied-"));
+        crashed.sync();
+        crashed.writeRecords(List.of(weather));
+        crashed.writeRecords(news(1, "lost-"));
+        // Процесс "падает" без закрытия писателя
+
+        RecordingWriter recovered = new RecordingWriter();
+        new WriteAheadLogDataWriter(output, recovered, 1024 * 1024);
+
+        assertEquals(2, recovered.records.size());
+        ApiRecord replayed = recovered.records.get(0);
+        assertEquals(weather.getId(), replayed.getId());
+        assertEquals("weather", replayed.getType());
+        assertEquals(weather.getEventDate(), replayed.getEventDate());
+        assertEquals(weather.toMap(), replayed.toMap());
+        assertEquals("lost-0", recovered.records.get(1).getId());
+        assertTrue(recovered.syncs.get() > 0);
+    }
+
+    @Test
+    public void testBufferedAsyncRecordsAreRecoveredAfterCrash() throws Exception {
+        Path output = directory.resolve("output.json");
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncDataWriter async = new AsyncDataWriter(new RecordingWriter(release), 100, 100, 0, 0,
+                                                    AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+        WriteAheadLogDataWriter crashed = new WriteAheadLogDataWriter(output, async, 1024 * 1024);
+
+        // Вызов записи вернул управление, пока пакет еще лежит в буфере асинхронной ступени
+        crashed.writeRecords(news(3, "buffered-"));
+        // Процесс "падает" без закрытия писателя
+
+        RecordingWriter recovered = new RecordingWriter();
+        new WriteAheadLogDataWriter(output, recovered, 1024 * 1024);
+        release.countDown();
+
+        assertEquals(3, recovered.records.size());
+        assertEquals("buffered-0", recovered.records.get(0).getId());
+    }
+
+    @Test
+    public void testReplayDoesNotDuplicateOutputAfterCrash() throws Exception {
+        assumeTrue(Files.isReadable(Path.of("/proc/sys/kernel/random/boot_id")));
+        Path output = directory.resolve("output.ndjson");
+        AsyncDataWriter async = new AsyncDataWriter(new DedupDataWriter(output, new NdjsonDataWriter(output)),
+                                                    100, 100, 0, 0, AsyncDataWriter.FsyncPolicy.NEVER, 1000);
+        WriteAheadLogDataWriter crashed = new WriteAheadLogDataWriter(output, async, 1024 * 1024);
+        crashed.writeRecords(news(2, "first-"));
+        crashed.sync();
+        crashed.writeRecords(news(2, "second-"));
+        crashed.writeRecords(news(2, "third-"));
+        // Пакеты дошли до вывода, но их отпечатки еще не сохранены в индексе
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.readAllLines(output).size() < 6 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // Процесс "падает" без закрытия писателя
+
+        WriteAheadLogDataWriter recovered = new WriteAheadLogDataWriter(output,
+            new AsyncDataWriter(new DedupDataWriter(output, new NdjsonDataWriter(output)),
+                                100, 100, 0, 0, AsyncDataWriter.FsyncPolicy.NEVER, 1000), 1024 * 1024);
+        recovered.writeRecords(news(3, "third-"));
+        recovered.close();
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(7, lines.size());
+        assertTrue(lines.get(6).contains("third-2"));
+    }
+
+    @Test
+    public void testCleanCloseRemovesLog() throws Exception {
+        Path output = directory.resolve("output.json");
+        RecordingWriter delegate = new RecordingWriter();
+        WriteAheadLogDataWriter writer = new WriteAheadLogDataWriter(output, delegate, 1024 * 1024);
+        writer.writeRecords(news(2, "url-"));
+        writer.sync();
+
+        writer.close();
+
+        assertTrue(delegate.closed);
+        assertFalse(Files.exists(directory.resolve("output.json.wal")));
+        assertFalse(Files.exists(directory.resolve("output.json.wal.checkpoint")));
+        RecordingWriter next = new RecordingWriter();
+        new WriteAheadLogDataWriter(output, next, 1024 * 1024);
+        assertTrue(next.records.isEmpty());
+    }
+
+    @Test
+    public void testIncompleteTailIsDiscarded() throws Exception {
+        Path output = directory.resolve("output.json");
+        WriteAheadLogDataWriter crashed = new WriteAheadLogDataWriter(output, new RecordingWriter(), 1024 * 1024);
+        crashed.writeRecords(news(1, "complete-"));
+        long complete = Files.size(crashed.getWalPath());
+        Files.write(crashed.getWalPath(), new byte[]{0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);
+
+        RecordingWriter recovered = new RecordingWriter();
+        WriteAheadLogDataWriter writer = new WriteAheadLogDataWriter(output, recovered, 1024 * 1024);
+        writer.writeRecords(news(1, "after-"));
+
+        assertEquals(List.of("complete-0", "after-0"),
+                     recovered.records.stream().map(ApiRecord::getId).toList());
+        assertTrue(Files.size(writer.getWalPath()) > 0);
+        assertTrue(Files.size(writer.getWalPath()) < complete * 2);
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedBeforeNextBatch() throws Exception {
+        Path output = directory.resolve("output.json");
+        RecordingWriter delegate = new RecordingWriter().failFirst(1);
+        WriteAheadLogDataWriter writer = new WriteAheadLogDataWriter(output, delegate, 1);
+
+        assertThrows(IOException.class, () -> writer.writeRecords(news(1, "failed-")));
+        assertTrue(Files.size(writer.getWalPath()) > 0);
+        writer.writeRecords(news(1, "written-"));
+
+        assertEquals(List.of("failed-0", "written-0"),
+                     delegate.records.stream().map(ApiRecord::getId).toList());
+        assertEquals(0, Files.size(writer.getWalPath()));
+        assertEquals("2", Files.readString(directory.resolve("output.json.wal.checkpoint")));
+
+        // После восстановления журнал снова очищается на каждой контрольной точке
+        writer.writeRecords(news(1, "next-"));
+        assertEquals(0, Files.size(writer.getWalPath()));
+        writer.close();
+        assertFalse(Files.exists(writer.getWalPath()));
+    }
+
+    @Test
+    public void testFailedBatchIsKeptForReplay() throws Exception {
+        Path output = directory.resolve("output.json");
+        RecordingWriter failing = new RecordingWriter().failFirst(3);
+        WriteAheadLogDataWriter writer = new WriteAheadLogDataWriter(output, failing, 1);
+
+        assertThrows(IOException.class, () -> writer.writeRecords(news(1, "failed-")));
+        // Новый пакет попадает в журнал, но не применяется раньше неудавшегося
+        assertThrows(IOException.class, () -> writer.writeRecords(news(1, "written-")));
+        assertTrue(failing.records.isEmpty());
+        writer.close();
+        assertTrue(Files.exists(directory.resolve("output.json.wal")));
+
+        RecordingWriter recovered = new RecordingWriter();
+        new WriteAheadLogDataWriter(output, recovered, 1);
+        assertEquals(List.of("failed-0", "written-0"),
+                     recovered.records.stream().map(ApiRecord::getId).toList());
+    }
+
+    @Test
+    public void testCheckpointTruncatesFullLog() throws Exception {
+        Path output = directory.resolve("output.json");
+        RecordingWriter delegate = new RecordingWriter();
+        WriteAheadLogDataWriter writer = new WriteAheadLogDataWriter(output, delegate, 1);
+
+        writer.writeRecords(news(5, "url-"));
+
+        assertEquals(1, delegate.syncs.get());
+        assertEquals(0, Files.size(writer.getWalPath()));
+        assertEquals("1", Files.readString(directory.resolve("output.json.wal.checkpoint")));
+    }
+
+    @Test
+    public void testJsonOutputRecoversAfterCrash() throws Exception {
+        Path output = directory.resolve("output.json");
+        WriteAheadLogDataWriter crashed = new WriteAheadLogDataWriter(output, new JsonDataWriter(output), 1024 * 1024);
+        crashed.writeRecords(news(2, "first-"));
+        crashed.sync();
+        crashed.writeRecords(news(1, "second-"));
+        // Последний пакет оборван посреди записи в файл вывода
+        String content = Files.readString(output);
+        Files.writeString(output, content.substring(0, content.indexOf("second-0")));
+
+        WriteAheadLogDataWriter recovered = new WriteAheadLogDataWriter(output, new JsonDataWriter(output), 1024 * 1024);
+        recovered.close();
+
+        String repaired = Files.readString(output);
+        assertTrue(repaired.contains("first-1"));
+        assertTrue(repaired.contains("second-0"));
+        assertTrue(repaired.trim().endsWith("]"));
+    }
+}